@@ -2,6 +2,8 @@ package com.rfid.tracker.config;
 
 import com.rfid.tracker.filter.JwtRequestFilter;
 
+import jakarta.servlet.DispatcherType;
+
 import com.rfid.tracker.service.MyUserDetailsService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -112,6 +114,10 @@ public class SecurityConfig {
 
             .authorizeHttpRequests(authz -> authz
 
+                // ✅ ASYNC DISPATCHES (SSE streams) - already authorized on the initial request
+
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // ✅ HARDWARE/RFID/BIOMETRIC - ESP32 (NO AUTH REQUIRED)
 
                 .requestMatchers("/api/attendance/rfid/**").permitAll()
@@ -2,10 +2,15 @@ package com.rfid.tracker.controller;
 
 import com.rfid.tracker.entity.StaffLateAlert;
 import com.rfid.tracker.repository.StaffLateAlertRepository;
+import com.rfid.tracker.service.DailyStaffPresence;
+import com.rfid.tracker.service.StaffAlertStreamService;
+import com.rfid.tracker.service.StaffLateTimerWheel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -21,6 +26,57 @@ public class AdminAlertController {
     @Autowired
     private StaffLateAlertRepository staffLateAlertRepository;
 
+    @Autowired
+    private StaffAlertStreamService staffAlertStreamService;
+
+    @Autowired
+    private StaffLateTimerWheel staffLateTimerWheel;
+
+    @Autowired
+    private DailyStaffPresence dailyStaffPresence;
+
+    /**
+     * SSE stream of staff late alerts (replaces polling /staff-late)
+     * First event is a "snapshot" of unacknowledged alerts, then one "alert" event per change
+     * (CREATED / UPDATED / ACKNOWLEDGED / DISMISSED). Reconnect with Last-Event-ID to resume.
+     *
+     * @param lastEventId - id of the last event the client received, if any
+     * @return open event stream
+     */
+    @GetMapping(value = "/staff-late/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public SseEmitter streamStaffAlerts(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return staffAlertStreamService.subscribe(lastEventId);
+    }
+
+    /**
+     * Open alert streams and events pushed / replayed since startup
+     */
+    @GetMapping("/staff-late/stream/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<java.util.Map<String, Object>> streamStats() {
+        return ResponseEntity.ok(staffAlertStreamService.getStats());
+    }
+
+    /**
+     * Late detection wheel: today's pending class deadlines, cancelled by scans, fired and alerted
+     */
+    @GetMapping("/staff-late/wheel/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<java.util.Map<String, Object>> lateWheelStats() {
+        return ResponseEntity.ok(staffLateTimerWheel.getStats());
+    }
+
+    /**
+     * Staff presence snapshot behind the late checks (morning fingerprints and class entries per day)
+     */
+    @GetMapping("/staff-late/presence/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<java.util.Map<String, Object>> presenceStats() {
+        return ResponseEntity.ok(dailyStaffPresence.getStats());
+    }
+
     /**
      * GET endpoint to fetch all unacknowledged staff late alerts
      * Returns alerts ordered by creation time (newest first)
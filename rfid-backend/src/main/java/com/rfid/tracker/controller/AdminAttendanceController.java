@@ -1,6 +1,14 @@
 package com.rfid.tracker.controller;
 
 import com.rfid.tracker.service.AdminAttendanceOverrideService;
+import com.rfid.tracker.service.AttendanceFinalizationService;
+import com.rfid.tracker.service.AttendanceMatrix;
+import com.rfid.tracker.service.ClosedMonthExportStore;
+import com.rfid.tracker.service.CodeEntryPipeline;
+import com.rfid.tracker.service.SectionCodeChannel;
+import com.rfid.tracker.service.StudentSemesterSummaryService;
+import com.rfid.tracker.service.VerificationCodeRegistry;
+import com.rfid.tracker.service.VerificationCodeSweeper;
 import com.rfid.tracker.dto.HardwareResponseDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -8,6 +16,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/attendance")
@@ -16,6 +25,30 @@ public class AdminAttendanceController {
     @Autowired
     private AdminAttendanceOverrideService adminAttendanceOverrideService;
 
+    @Autowired
+    private AttendanceFinalizationService attendanceFinalizationService;
+
+    @Autowired
+    private ClosedMonthExportStore closedMonthExportStore;
+
+    @Autowired
+    private AttendanceMatrix attendanceMatrix;
+
+    @Autowired
+    private StudentSemesterSummaryService studentSemesterSummaryService;
+
+    @Autowired
+    private SectionCodeChannel sectionCodeChannel;
+
+    @Autowired
+    private VerificationCodeRegistry verificationCodeRegistry;
+
+    @Autowired
+    private CodeEntryPipeline codeEntryPipeline;
+
+    @Autowired
+    private VerificationCodeSweeper verificationCodeSweeper;
+
     /**
      * Override attendance status
      * Only accessible by ADMIN role
@@ -53,4 +86,97 @@ public class AdminAttendanceController {
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * End-of-day progress per section (finalized vs pending students)
+     */
+    @GetMapping("/eod/progress")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> eodProgress(@RequestParam String date) {
+        LocalDate processDate = LocalDate.parse(date, DateTimeFormatter.ISO_DATE);
+        return ResponseEntity.ok(attendanceFinalizationService.getProgress(processDate));
+    }
+
+    /**
+     * Run (or resume) end-of-day processing for a date; finished sections are skipped
+     */
+    @PostMapping("/eod/run")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> runEod(@RequestParam String date) {
+        LocalDate processDate = LocalDate.parse(date, DateTimeFormatter.ISO_DATE);
+        return ResponseEntity.ok(attendanceFinalizationService.finalizeAllSections(processDate));
+    }
+
+    /**
+     * Archived closed-month exports: renders, hits and override invalidations
+     */
+    @GetMapping("/exports/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> archivedExportStats() {
+        return ResponseEntity.ok(closedMonthExportStore.getStats());
+    }
+
+    /**
+     * In-memory attendance matrix: loaded month scopes, user-months and approximate size
+     */
+    @GetMapping("/matrix/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> attendanceMatrixStats() {
+        return ResponseEntity.ok(attendanceMatrix.getStats());
+    }
+
+    /**
+     * Cached student semester counters behind the live summary
+     */
+    @GetMapping("/summary/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> semesterSummaryStats() {
+        return ResponseEntity.ok(studentSemesterSummaryService.getStats());
+    }
+
+    /**
+     * Verification code push: sections, open code windows, subscribers and deliveries
+     */
+    @GetMapping("/code-push/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> codePushStats() {
+        return ResponseEntity.ok(sectionCodeChannel.getStats());
+    }
+
+    /**
+     * In-memory verification codes: entries, duplicates and unflushed entry counts
+     */
+    @GetMapping("/code-registry/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> codeRegistryStats() {
+        return ResponseEntity.ok(verificationCodeRegistry.getStats());
+    }
+
+    /**
+     * Striped code-entry pipeline: queued submissions, batches, accepted / rejected / busy
+     */
+    @GetMapping("/code-entry/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> codeEntryStats() {
+        return ResponseEntity.ok(codeEntryPipeline.getStats());
+    }
+
+    /**
+     * Archive (or delete) verification codes that expired before today, in batches
+     */
+    @PostMapping("/codes/sweep")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> sweepExpiredCodes() {
+        int swept = verificationCodeSweeper.sweep();
+        System.out.println("🧹 Verification code sweep: " + swept + " rows");
+        Map<String, Object> response = new java.util.LinkedHashMap<>(verificationCodeSweeper.getStats());
+        response.put("swept", swept);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/codes/sweep/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> codeSweepStats() {
+        return ResponseEntity.ok(verificationCodeSweeper.getStats());
+    }
 }
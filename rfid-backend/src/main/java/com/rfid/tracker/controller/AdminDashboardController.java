@@ -0,0 +1,67 @@
+package com.rfid.tracker.controller;
+
+import com.rfid.tracker.service.DailyAttendanceRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/dashboard")
+@CrossOrigin(origins = "*")
+public class AdminDashboardController {
+
+    @Autowired
+    private DailyAttendanceRollupService dailyAttendanceRollupService;
+
+    /**
+     * Attendance counts by branch -> section for today / week / month (anchor date defaults to today)
+     */
+    @GetMapping("/attendance")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> attendance(
+            @RequestParam(defaultValue = "today") String range,
+            @RequestParam(required = false) String date) {
+        try {
+            LocalDate anchor = date != null ? LocalDate.parse(date, DateTimeFormatter.ISO_DATE) : null;
+            return ResponseEntity.ok(dailyAttendanceRollupService.getDashboard(range, anchor));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Recount the rollup from attendance for a date range (backfill / repair)
+     */
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildRollup(@RequestParam String from, @RequestParam String to) {
+        LocalDate fromDate = LocalDate.parse(from, DateTimeFormatter.ISO_DATE);
+        LocalDate toDate = LocalDate.parse(to, DateTimeFormatter.ISO_DATE);
+        if (toDate.isBefore(fromDate)) {
+            return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "message", "to is before from"));
+        }
+
+        int rows = dailyAttendanceRollupService.rebuild(fromDate, toDate);
+        System.out.println("✅ Attendance rollup rebuilt for " + fromDate + " .. " + toDate + ": " + rows + " rows");
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "SUCCESS");
+        response.put("from", fromDate.toString());
+        response.put("to", toDate.toString());
+        response.put("rows", rows);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/rollup/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rollupStats() {
+        return ResponseEntity.ok(dailyAttendanceRollupService.getStats());
+    }
+}
@@ -2,13 +2,25 @@ package com.rfid.tracker.controller;
 
 import com.rfid.tracker.entity.*;
 import com.rfid.tracker.repository.*;
+import com.rfid.tracker.service.AttendanceExcelExporter;
+import com.rfid.tracker.service.AttendanceMatrix;
 import com.rfid.tracker.service.AttendanceService;
+import com.rfid.tracker.service.ClosedMonthExportStore;
+import com.rfid.tracker.service.PeriodLogWriteBehindQueue;
+import com.rfid.tracker.service.RfidCardResolutionCache;
+import com.rfid.tracker.service.StudentSemesterSummaryService;
+import com.rfid.tracker.service.TimetableIndex;
+import com.rfid.tracker.service.VerificationCodeRegistry;
 import com.rfid.tracker.dto.AttendanceBatchRequest;
+import com.rfid.tracker.dto.AttendanceMonthGrid;
 import com.rfid.tracker.dto.AttendanceMarkRequest;
+import com.rfid.tracker.dto.CardOwner;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -17,11 +29,15 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -54,7 +70,9 @@ public class AttendanceController {
     @Autowired
     private FingerprintTemplateRepository fingerprintTemplateRepository;
     @Autowired
-    private RfidCardRepository rfidCardRepository;
+    private RfidCardResolutionCache rfidCardResolutionCache;
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
 
     // ADDED NEW LOG REPOSITORIES FOR STAGING
     @Autowired
@@ -68,46 +86,34 @@ public class AttendanceController {
     @Autowired
     private VerificationCodeRepository verificationCodeRepository;
     @Autowired
-    private TimetableRepository timetableRepository;
+    private TimetableIndex timetableIndex;
+    @Autowired
+    private VerificationCodeRegistry verificationCodeRegistry;
+    @Autowired
+    private AttendanceExcelExporter attendanceExcelExporter;
+    @Autowired
+    private ClosedMonthExportStore closedMonthExportStore;
+    @Autowired
+    private AttendanceMatrix attendanceMatrix;
+    @Autowired
+    private StudentSemesterSummaryService studentSemesterSummaryService;
+
+    @Value("${app.summary.max-age-seconds:60}")
+    private long liveSummaryMaxAgeSeconds;
+
+    private static final List<String> STAFF_GRID_COLUMNS =
+            List.of("id", "name", "staffId", "days", "present", "late", "absent");
 
     // ========== EXISTING ENDPOINTS ==========
 
     @GetMapping("/view/student/{sectionId}/{year}/{month}")
-    public ResponseEntity<Map<String, Object>> getStudentAttendanceGrid(
+    public ResponseEntity<?> getStudentAttendanceGrid(
             @PathVariable String sectionId,
             @PathVariable int year,
             @PathVariable int month) {
         try {
-            YearMonth ym = YearMonth.of(year, month);
-            LocalDate startDate = ym.atDay(1);
-            LocalDate endDate = ym.atEndOfMonth();
-
-            List<Student> students = studentRepository.findBySectionId(sectionId);
-            List<Map<String, Object>> attendanceList = new ArrayList<>();
-
-            for (Student student : students) {
-                Map<String, Object> studentData = new HashMap<>();
-                studentData.put("id", student.getId());
-                studentData.put("name", student.getName());
-                studentData.put("registrationNumber", student.getRegistrationNumber());
-
-                List<Attendance> records = attendanceRepository.findByStudentIdAndDateBetween(
-                        student.getId(), startDate, endDate);
-
-                Map<String, String> dayStatus = new HashMap<>();
-                for (Attendance record : records) {
-                    dayStatus.put(record.getDate().toString(), record.getStatus().toString());
-                }
-
-                studentData.put("attendance", dayStatus);
-                attendanceList.add(studentData);
-            }
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("students", attendanceList);
-            response.put("totalDays", ym.lengthOfMonth());
-
-            return ResponseEntity.ok(response);
+            // ✅ One query for the whole section, compact rows (see AttendanceMonthGrid)
+            return ResponseEntity.ok(attendanceService.getSectionMonthGrid(sectionId, year, month));
         } catch (Exception e) {
             System.err.println("Error fetching attendance grid: " + e.getMessage());
             e.printStackTrace();
@@ -119,34 +125,17 @@ public class AttendanceController {
     }
 
     @GetMapping("/month/{sectionId}/{yearMonth}")
-    public ResponseEntity<List<Map<String, Object>>> getAttendanceByMonth(
+    public ResponseEntity<?> getAttendanceByMonth(
             @PathVariable String sectionId,
             @PathVariable String yearMonth) {
         try {
             System.out.println("Fetching attendance for section: " + sectionId + ", Month: " + yearMonth);
             YearMonth ym = YearMonth.parse(yearMonth);
-            LocalDate startDate = ym.atDay(1);
-            LocalDate endDate = ym.atEndOfMonth();
-
-            List<Student> students = studentRepository.findBySectionId(sectionId);
-            List<Map<String, Object>> attendanceData = new ArrayList<>();
 
-            for (Student student : students) {
-                List<Attendance> records = attendanceRepository.findByStudentIdAndDateBetween(
-                        student.getId(), startDate, endDate);
+            AttendanceMonthGrid grid = attendanceService.getSectionMonthGrid(sectionId, ym.getYear(), ym.getMonthValue());
 
-                Map<String, Object> studentData = new HashMap<>();
-                studentData.put("studentId", student.getId());
-                studentData.put("studentName", student.getName());
-                studentData.put("registrationNumber", student.getRegistrationNumber());
-                studentData.put("section", student.getSection());
-                studentData.put("records", records);
-
-                attendanceData.add(studentData);
-            }
-
-            System.out.println("Attendance data fetched for " + students.size() + " students");
-            return ResponseEntity.ok(attendanceData);
+            System.out.println("Attendance data fetched for " + grid.size() + " students");
+            return ResponseEntity.ok(grid);
         } catch (Exception e) {
             System.err.println("Error fetching attendance: " + e.getMessage());
             e.printStackTrace();
@@ -158,6 +147,48 @@ public class AttendanceController {
         }
     }
 
+    // ========== EXCEL DOWNLOADS (STREAMED) ==========
+
+    @GetMapping("/download/student/{sectionId}/{year}/{month}")
+    public void downloadStudentAttendance(
+            @PathVariable String sectionId,
+            @PathVariable int year,
+            @PathVariable int month,
+            ServletWebRequest webRequest,
+            HttpServletResponse response) throws IOException {
+        if (ClosedMonthExportStore.isClosed(year, month)) {
+            // ✅ Closed month: serve the pre-rendered workbook, or 304 if the client already has it
+            ClosedMonthExportStore.ArchivedExport export = closedMonthExportStore.getStudentMonth(sectionId, year, month);
+            if (webRequest.checkNotModified(export.getETag(), export.getLastModified())) {
+                return;
+            }
+            startExcelDownload(response, String.format("student_attendance_%s_%d_%02d.xlsx", sectionId, year, month));
+            response.setContentLengthLong(export.getSize());
+            closedMonthExportStore.copyTo(export, response.getOutputStream());
+            return;
+        }
+
+        startExcelDownload(response, String.format("student_attendance_%s_%d_%02d.xlsx", sectionId, year, month));
+        // ✅ SXSSF writes straight to the servlet stream, memory stays flat
+        attendanceExcelExporter.writeStudentMonth(sectionId, year, month, response.getOutputStream());
+    }
+
+    @GetMapping("/download/staff/{branch}/{year}/{month}")
+    public void downloadStaffAttendance(
+            @PathVariable String branch,
+            @PathVariable int year,
+            @PathVariable int month,
+            HttpServletResponse response) throws IOException {
+        startExcelDownload(response, String.format("staff_attendance_%s_%d_%02d.xlsx", branch, year, month));
+        attendanceExcelExporter.writeStaffMonth(branch, year, month, response.getOutputStream());
+    }
+
+    private void startExcelDownload(HttpServletResponse response, String fileName) {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + fileName.replaceAll("[^A-Za-z0-9._-]", "_") + "\"");
+    }
+
     @PostMapping("/mark")
     public ResponseEntity<Map<String, Object>> markAttendance(@RequestBody AttendanceRequest request) {
         try {
@@ -260,13 +291,12 @@ public class AttendanceController {
     public ResponseEntity<Map<String, Object>> getStaffAttendanceGrid(
             @PathVariable String branch,
             @PathVariable int year,
-            @PathVariable int month) {
+            @PathVariable int month,
+            @RequestParam(required = false) String format) {
         try {
             System.out.println("📌 Fetching staff attendance for branch: " + branch);
 
             YearMonth ym = YearMonth.of(year, month);
-            LocalDate startDate = ym.atDay(1);
-            LocalDate endDate = ym.atEndOfMonth();
 
             // ✅ DEFENSIVE: Handle null/empty branch
             if (branch == null || branch.trim().isEmpty()) {
@@ -277,79 +307,50 @@ public class AttendanceController {
                 return ResponseEntity.ok(response);
             }
 
-            // ✅ DEFENSIVE: Safe load with null checking
-            List<Staff> allStaff = staffRepository.findAll();
-            if (allStaff == null) {
-                allStaff = new ArrayList<>();
-            }
-
-            // ✅ Filter with null guards
-            List<Staff> staffMembers = allStaff.stream()
-                    .filter(Objects::nonNull)
-                    .filter(s -> s.getBranch() != null)
-                    .filter(s -> branch.equalsIgnoreCase(s.getBranch()))
-                    .collect(Collectors.toList());
-
+            // ✅ Only this branch's staff; their days come from the packed attendance matrix
+            List<Staff> staffMembers = staffRepository.findByBranchIgnoreCase(branch.trim());
             System.out.println("✅ Found " + staffMembers.size() + " staff members for branch " + branch);
+            AttendanceMatrix.MonthScope days = attendanceMatrix.branchStaff(branch, ym);
+            boolean compact = "compact".equalsIgnoreCase(format);
 
-            // ✅ DEFENSIVE: Safe load of all attendance records once
-            List<Attendance> allRecords = attendanceRepository.findAll();
-            if (allRecords == null) {
-                allRecords = new ArrayList<>();
-            }
+            List<Object> attendanceList = new ArrayList<>();
+            for (Staff staff : staffMembers) {
+                char[] staffDays = days.days(staff.getStaffId());
+                long[] counts = new long[3];   // [present, late, absent]
+                for (char code : staffDays) {
+                    if (code == 'P') counts[0]++;
+                    else if (code == 'L') counts[1]++;
+                    else if (code == 'A') counts[2]++;
+                }
 
-            List<Map<String, Object>> attendanceList = new ArrayList<>();
+                if (compact) {
+                    // ✅ [id, name, staffId, days, present, late, absent]; days is one short code per day
+                    attendanceList.add(Arrays.asList(staff.getId(), staff.getName(), staff.getStaffId(),
+                            new String(staffDays), counts[0], counts[1], counts[2]));
+                    continue;
+                }
 
-            for (Staff staff : staffMembers) {
-                try {
-                    Map<String, Object> staffData = new HashMap<>();
-                    staffData.put("id", staff.getId());
-                    staffData.put("name", staff.getName());
-                    staffData.put("staffId", staff.getStaffId());
-
-                    // ✅ DEFENSIVE: Filter attendance with multiple null checks
-                    List<Attendance> records = allRecords.stream()
-                            .filter(Objects::nonNull)
-                            .filter(a -> a.getUserIdentifier() != null)
-                            .filter(a -> a.getDate() != null)
-                            .filter(a -> a.getUserType() != null)
-                            .filter(a -> staff.getStaffId() != null && staff.getStaffId().equals(a.getUserIdentifier()))
-                            .filter(a -> !a.getDate().isBefore(startDate) && !a.getDate().isAfter(endDate))
-                            .filter(a -> a.getUserType() == Attendance.UserType.STAFF)
-                            .collect(Collectors.toList());
-
-                    // ✅ Calculate P/L/A counts safely
-                    long presentCount = records.stream()
-                            .filter(r -> r.getStatus() == AttendanceStatus.PRESENT)
-                            .count();
-                    long lateCount = records.stream()
-                            .filter(r -> r.getStatus() == AttendanceStatus.LATE)
-                            .count();
-                    long absentCount = records.stream()
-                            .filter(r -> r.getStatus() == AttendanceStatus.ABSENT)
-                            .count();
-
-                    Map<String, String> dayStatus = new HashMap<>();
-                    for (Attendance record : records) {
-                        if (record.getDate() != null && record.getStatus() != null) {
-                            dayStatus.put(record.getDate().toString(), record.getStatus().toString());
-                        }
-                    }
-
-                    staffData.put("attendance", dayStatus);
-                    staffData.put("present", presentCount);
-                    staffData.put("late", lateCount);
-                    staffData.put("absent", absentCount);
-
-                    attendanceList.add(staffData);
-                } catch (Exception staffEx) {
-                    System.err.println("❌ Error processing staff " + staff.getStaffId() + ": " + staffEx.getMessage());
-                    staffEx.printStackTrace();
-                    // Continue with next staff member
+                Map<String, String> attendance = new HashMap<>();
+                for (int day = 1; day <= staffDays.length; day++) {
+                    AttendanceStatus status = days.statusOn(staff.getStaffId(), day);
+                    if (status != null) attendance.put(ym.atDay(day).toString(), status.toString());
                 }
+
+                Map<String, Object> staffData = new HashMap<>();
+                staffData.put("id", staff.getId());
+                staffData.put("name", staff.getName());
+                staffData.put("staffId", staff.getStaffId());
+                staffData.put("attendance", attendance);
+                staffData.put("present", counts[0]);
+                staffData.put("late", counts[1]);
+                staffData.put("absent", counts[2]);
+                attendanceList.add(staffData);
             }
 
             Map<String, Object> response = new HashMap<>();
+            if (compact) {
+                response.put("columns", STAFF_GRID_COLUMNS);
+            }
             response.put("staff", attendanceList);
             response.put("totalDays", ym.lengthOfMonth());
 
@@ -366,7 +367,7 @@ public class AttendanceController {
     }
 
     @GetMapping("/student/live-summary")
-    public ResponseEntity<Map<String, Object>> getLiveAttendanceSummary() {
+    public ResponseEntity<Map<String, Object>> getLiveAttendanceSummary(WebRequest webRequest) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String email = authentication.getName();
@@ -375,71 +376,32 @@ public class AttendanceController {
             Student student = studentRepository.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("Student not found"));
 
-            String currentAcademicYear = "2024-2025";
-            Integer currentSemester = student.getSemester();
-            Integer currentYear = student.getYear();
-            Long regulationId = student.getRegulationId();
-
-            if (regulationId == null) {
-                regulationId = 1L;
-            }
-
-            Optional<SemesterConfig> semesterConfigOpt = semesterConfigRepository
-                    .findByAcademicYearAndRegulationIdAndYearAndSemester(
-                            currentAcademicYear, regulationId, currentYear, currentSemester);
-
-            if (semesterConfigOpt.isEmpty()) {
+            // ✅ Read-only: counters are maintained when attendance is finalized or overridden
+            Optional<StudentSemesterSummaryService.LiveSummary> liveOpt = studentSemesterSummaryService.getLive(student);
+            if (liveOpt.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("message", "Semester dates not configured yet");
                 return ResponseEntity.ok(response);
             }
 
-            SemesterConfig config = semesterConfigOpt.get();
-            LocalDate today = LocalDate.now();
-            LocalDate endDate = today.isAfter(config.getEndDate()) ? config.getEndDate() : today;
-
-            List<Attendance> records = attendanceRepository.findByStudentIdAndDateBetween(
-                    student.getId(), config.getStartDate(), endDate);
-
-            long total = records.size();
-            long attended = records.stream()
-                    .filter(a -> a.getStatus() == AttendanceStatus.PRESENT)
-                    .count();
-
-            double percentage = total > 0 ? (double) attended / total * 100 : 0.0;
-
-            String status;
-            if (percentage < 65) {
-                status = "DETAINED";
-            } else if (percentage < 75) {
-                status = "CONDONATION";
-            } else {
-                status = "NORMAL";
+            StudentSemesterSummaryService.LiveSummary live = liveOpt.get();
+            String eTag = "\"" + live.getVersion() + "\"";
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
             }
 
-            AttendanceSummary summary = attendanceSummaryRepository
-                    .findByStudentIdAndSemesterAndAcademicYear(
-                            student.getId(), currentSemester, currentAcademicYear)
-                    .orElse(new AttendanceSummary(student.getId(), currentSemester, currentAcademicYear));
-
-            summary.setTotalClasses((int) total);
-            summary.setAttendedClasses((int) attended);
-            summary.calculateAttendance();
-            attendanceSummaryRepository.save(summary);
-
-            student.setAttendanceStatus(status);
-            studentRepository.save(student);
-
             Map<String, Object> response = new HashMap<>();
-            response.put("percentage", Math.round(percentage * 100.0) / 100.0);
-            response.put("totalClasses", total);
-            response.put("attendedClasses", attended);
-            response.put("status", status);
-            response.put("startDate", config.getStartDate());
-            response.put("endDate", config.getEndDate());
-
-            System.out.println("Live attendance summary calculated");
-            return ResponseEntity.ok(response);
+            response.put("percentage", live.getPercentage());
+            response.put("totalClasses", live.getTotalClasses());
+            response.put("attendedClasses", live.getAttendedClasses());
+            response.put("status", live.getStatus());
+            response.put("startDate", live.getStartDate());
+            response.put("endDate", live.getEndDate());
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(Duration.ofSeconds(liveSummaryMaxAgeSeconds)).cachePrivate())
+                    .eTag(eTag)
+                    .body(response);
         } catch (Exception e) {
             System.err.println("Error fetching live attendance summary: " + e.getMessage());
             e.printStackTrace();
@@ -449,8 +411,6 @@ public class AttendanceController {
         }
     }
 
-    // ========== HARDWARE ENDPOINTS FOR LOGGING (FINGERPRINT + RFID) ==========
-
     @PostMapping("/log-fingerprint")
     public ResponseEntity<Map<String, Object>> logFingerprintScan(@RequestBody Map<String, Object> request) {
         try {
@@ -543,29 +503,22 @@ public class AttendanceController {
             LocalDate scanDate = scanDateStr != null ? LocalDate.parse(scanDateStr) : LocalDate.now();
             LocalTime scanTime = scanTimeStr != null ? LocalTime.parse(scanTimeStr) : LocalTime.now();
 
-            Optional<RfidCard> cardOpt = rfidCardRepository.findByCardUidAndIsActiveTrue(cardUid);
+            Optional<CardOwner> ownerOpt = rfidCardResolutionCache.resolve(cardUid);
 
-            if (cardOpt.isEmpty()) {
+            if (ownerOpt.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("status", "ERROR", "message", "Card not registered"));
             }
 
-            RfidCard card = cardOpt.get();
+            CardOwner owner = ownerOpt.get();
 
-            if (card.getUserType() == RfidCard.UserType.STUDENT) {
+            if (owner.isStudent()) {
                 // STUDENT PERIOD ATTENDANCE
-                Optional<Student> studentOpt = studentRepository.findById(card.getUserId());
-
-                if (studentOpt.isEmpty()) {
-                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                            .body(Map.of("status", "ERROR", "message", "Student not found"));
-                }
-
-                Student student = studentOpt.get();
+                CardOwner student = owner;
                 String timeSlot = String.format("%02d:00-%02d:00", scanTime.getHour(), scanTime.getHour() + 1);
 
                 PeriodAttendanceLog log = new PeriodAttendanceLog();
-                log.setStudentRegistrationNumber(student.getRegistrationNumber());
+                log.setStudentRegistrationNumber(student.getIdentifier());
                 log.setSectionId(student.getSectionId());
                 log.setScanDate(scanDate);
                 log.setScanTime(scanTime);
@@ -573,24 +526,20 @@ public class AttendanceController {
                 log.setTimeSlot(timeSlot);
                 log.setVerifiedVia("RFID");
 
-                periodAttendanceLogRepository.save(log);
-                System.out.println("LOG: Saved Period Log for Student: " + student.getName());
+                if (!periodLogWriteBehindQueue.offer(log)) {
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .body(Map.of("status", "RETRY", "message", "Server busy, please scan again"));
+                }
+                System.out.println("LOG: Queued Period Log for Student: " + student.getName());
 
             } else {
                 // STAFF ENTRY LOG WITH TIMETABLE MATCHING
-                Optional<Staff> staffOpt = staffRepository.findById(card.getUserId());
-
-                if (staffOpt.isEmpty()) {
-                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                            .body(Map.of("status", "ERROR", "message", "Staff not found"));
-                }
-
-                Staff staff = staffOpt.get();
+                CardOwner staff = owner;
                 String dayOfWeek = scanDate.getDayOfWeek()
                         .getDisplayName(java.time.format.TextStyle.FULL, java.util.Locale.ENGLISH);
 
-                Optional<Timetable> timetableOpt = timetableRepository
-                        .findByRoomAndDayAndTimeRange(roomNumber, dayOfWeek, scanTime);
+                Optional<Timetable> timetableOpt = timetableIndex
+                        .findByRoomAndTime(roomNumber, scanDate.getDayOfWeek(), scanTime);
 
                 String timeSlotForLog;
                 if (timetableOpt.isPresent()) {
@@ -601,10 +550,10 @@ public class AttendanceController {
 
                 // Prevent duplicate log
                 Optional<StaffEntryLog> existingLog = staffEntryLogRepository
-                        .findByStaffIdNumberAndEntryDateAndTimeSlot(staff.getStaffId(), scanDate, timeSlotForLog);
+                        .findByStaffIdNumberAndEntryDateAndTimeSlot(staff.getIdentifier(), scanDate, timeSlotForLog);
 
                 if (existingLog.isPresent()) {
-                    System.out.println("DUPLICATE: Staff " + staff.getStaffId() + " already logged at " + timeSlotForLog);
+                    System.out.println("DUPLICATE: Staff " + staff.getIdentifier() + " already logged at " + timeSlotForLog);
                     return ResponseEntity.ok(Map.of(
                             "status", "DUPLICATE_SKIPPED",
                             "message", "Entry already logged for this time slot"
@@ -612,8 +561,8 @@ public class AttendanceController {
                 }
 
                 StaffEntryLog log = new StaffEntryLog();
-                log.setStaffIdNumber(staff.getStaffId());
-                log.setStaffDbId(staff.getId().intValue());
+                log.setStaffIdNumber(staff.getIdentifier());
+                log.setStaffDbId(staff.getUserId().intValue());
                 log.setRoomNumber(roomNumber);
                 log.setEntryDate(scanDate);
                 log.setEntryTime(scanTime);
@@ -631,9 +580,9 @@ public class AttendanceController {
 
                     staffEntryLogRepository.save(log);
 
-                    String code = generateRandomCode();
+                    String code = verificationCodeRegistry.reserveNewCode();
                     VerificationCode verificationCode = new VerificationCode(
-                            staff.getStaffId(),
+                            staff.getIdentifier(),
                             timetable.getSubject(),
                             timetable.getSectionId(),
                             code,
@@ -941,12 +890,6 @@ public class AttendanceController {
         }
     }
 
-    // ========== HELPER METHODS ==========
-
-    private String generateRandomCode() {
-        return String.format("%06d", new java.util.Random().nextInt(1000000));
-    }
-
     // ========== INNER CLASS ==========
 
     public static class AttendanceRequest {
@@ -1,12 +1,18 @@
 package com.rfid.tracker.controller;
 
 import com.rfid.tracker.dto.*;
+import com.rfid.tracker.service.DailyAttendanceTally;
 import com.rfid.tracker.service.HardwareIntegrationService;
+import com.rfid.tracker.service.PeriodLogWriteBehindQueue;
+import com.rfid.tracker.service.RfidCardResolutionCache;
+import com.rfid.tracker.service.ScanBatchService;
 import com.rfid.tracker.entity.HardwareDevice;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @CrossOrigin(origins = "*")
 public class HardwareController {
@@ -14,6 +20,18 @@ public class HardwareController {
     @Autowired
     private HardwareIntegrationService hardwareIntegrationService;
 
+    @Autowired
+    private ScanBatchService scanBatchService;
+
+    @Autowired
+    private RfidCardResolutionCache rfidCardResolutionCache;
+
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
     @PostMapping("/api/attendance/log/fingerprint")
     public ResponseEntity<HardwareResponseDTO> fingerprintScan(@RequestBody FingerprintScanRequest request) {
         System.out.println(">>> ESP32 FINGERPRINT REQUEST RECEIVED");
@@ -39,6 +57,18 @@ public class HardwareController {
         return ResponseEntity.ok(response);
     }
 
+    // Bulk upload: gate bursts and events buffered while the device was offline
+    @PostMapping("/api/attendance/log/batch")
+    public ResponseEntity<HardwareResponseDTO> batchScan(@RequestBody ScanBatchRequest request) {
+        System.out.println(">>> ESP32 BATCH REQUEST RECEIVED");
+        System.out.println("Device ID: " + request.getDeviceId());
+        System.out.println("RFID events: " + (request.getRfidScans() != null ? request.getRfidScans().size() : 0));
+        System.out.println("Fingerprint events: " + (request.getFingerprintScans() != null ? request.getFingerprintScans().size() : 0));
+
+        HardwareResponseDTO response = scanBatchService.processBatch(request);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/api/hardware/register-device")
     public ResponseEntity<HardwareResponseDTO> registerDevice(@RequestBody HardwareDevice device) {
         System.out.println(">>> DEVICE REGISTRATION REQUEST");
@@ -56,6 +86,21 @@ public class HardwareController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/api/hardware/cache/rfid-stats")
+    public ResponseEntity<Map<String, Object>> rfidCacheStats() {
+        return ResponseEntity.ok(rfidCardResolutionCache.getStats());
+    }
+
+    @GetMapping("/api/hardware/queue/period-log-stats")
+    public ResponseEntity<Map<String, Object>> periodLogQueueStats() {
+        return ResponseEntity.ok(periodLogWriteBehindQueue.getStats());
+    }
+
+    @GetMapping("/api/hardware/tally/stats")
+    public ResponseEntity<Map<String, Object>> dailyTallyStats() {
+        return ResponseEntity.ok(dailyAttendanceTally.getStats());
+    }
+
     @GetMapping("/api/hardware/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("{\"status\": \"Hardware API is running\"}");
@@ -0,0 +1,87 @@
+package com.rfid.tracker.controller;
+
+import com.rfid.tracker.dto.ReportJobRequest;
+import com.rfid.tracker.service.ReportJobService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin/reports")
+@CrossOrigin(origins = "*")
+public class ReportJobController {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    /**
+     * Queue a branch / college / section attendance workbook
+     */
+    @PostMapping("/jobs")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> submit(@RequestBody ReportJobRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportJobService.submit(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<List<ReportJobService.ReportJob>> listJobs() {
+        return ResponseEntity.ok(reportJobService.listJobs());
+    }
+
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getJob(@PathVariable String id) {
+        return reportJobService.getJob(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stream a finished workbook from the spool directory with FileChannel.transferTo
+     */
+    @GetMapping("/jobs/{id}/download")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public void download(@PathVariable String id, HttpServletResponse response) throws IOException {
+        Optional<ReportJobService.ReportJob> job = reportJobService.getJob(id);
+        Optional<Path> file = reportJobService.getFile(id);
+        if (job.isEmpty() || file.isEmpty()) {
+            response.sendError(job.isEmpty() ? HttpServletResponse.SC_NOT_FOUND : HttpServletResponse.SC_CONFLICT,
+                    job.isEmpty() ? "Unknown report job" : "Report is not ready: " + job.get().getStatus());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.get(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setContentLengthLong(size);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + job.get().getFileName() + "\"");
+
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+            response.flushBuffer();
+        }
+    }
+}
@@ -35,7 +35,7 @@ public class StaffController {
             System.out.println("🔥 MANUALLY TRIGGERING STAFF LATE CHECK...");
             System.out.println("Current Time: " + java.time.LocalDateTime.now());
             
-            // Calls the scheduled task method manually
+            // Full scan of today's classes (late detection itself runs on StaffLateTimerWheel)
             emailService.checkAndSendStaffAbsenceAlerts(); 
             
             return ResponseEntity.ok("Late check triggered successfully! Check console logs.");
@@ -3,14 +3,18 @@ package com.rfid.tracker.controller;
 import com.rfid.tracker.entity.Student;
 import com.rfid.tracker.repository.StudentRepository;
 import com.rfid.tracker.repository.PeriodAttendanceLogRepository;
+import com.rfid.tracker.service.CodeEntryPipeline;
+import com.rfid.tracker.service.SectionCodeChannel;
 import com.rfid.tracker.service.StudentService;
 import com.rfid.tracker.entity.PeriodAttendanceLog;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -32,6 +36,12 @@ public class StudentController {
     @Autowired
     private PeriodAttendanceLogRepository periodAttendanceLogRepository;
 
+    @Autowired
+    private SectionCodeChannel sectionCodeChannel;
+
+    @Autowired
+    private CodeEntryPipeline codeEntryPipeline;
+
     // ========== STUDENT PROFILE ENDPOINT ==========
 
     /**
@@ -254,22 +264,21 @@ public class StudentController {
 
     /**
      * POST /api/students/enter-code
-     * Student submits verification code from their dashboard
+     * Authenticated student submits verification code from their dashboard.
+     * Student, section and date come from the login, not from the request body.
      */
     @PostMapping("/enter-code")
     public ResponseEntity<Map<String, Object>> studentEnterCode(@RequestBody Map<String, Object> request) {
         try {
-            Long studentId = ((Number) request.get("studentId")).longValue();
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String email = authentication.getName();
             String code = (String) request.get("code");
-            String sectionId = (String) request.get("sectionId");
-            String dateStr = (String) request.get("date");
             String timeSlot = (String) request.get("timeSlot");
 
-            System.out.println("📌 [ENDPOINT] /students/enter-code called");
-            System.out.println("   Student ID: " + studentId + " | Code: " + code + " | Section: " + sectionId);
+            System.out.println("📌 [ENDPOINT] /students/enter-code called for: " + email);
 
             // Validate student
-            Optional<Student> studentOpt = studentRepository.findById(studentId);
+            Optional<Student> studentOpt = studentRepository.findByEmail(email);
             if (studentOpt.isEmpty()) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("success", false);
@@ -279,15 +288,21 @@ public class StudentController {
 
             Student student = studentOpt.get();
             String studentRegNo = student.getRegistrationNumber();
+            String sectionId = student.getSectionId();
 
-            LocalDate date = dateStr != null ? LocalDate.parse(dateStr) : LocalDate.now();
+            // Codes are only valid for the day they are read out
+            LocalDate date = LocalDate.now();
             if (timeSlot == null) timeSlot = "GENERAL";
 
-            // Call AttendanceService to verify code and mark attendance
-            // Note: You'll need to inject AttendanceService here
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "Code entry endpoint - integrate with AttendanceService");
+            if (code == null || code.isBlank() || sectionId == null) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("success", false, "message", "Missing required fields"));
+            }
+
+            System.out.println("   Student: " + studentRegNo + " | Code: " + code + " | Section: " + sectionId);
+
+            // ✅ Verified and logged by the section's stripe together with the rest of the burst
+            Map<String, Object> result = codeEntryPipeline.submit(studentRegNo, code, sectionId, date, timeSlot);
 
             return ResponseEntity.ok(result);
 
@@ -322,10 +337,15 @@ public class StudentController {
             Student student = studentOpt.get();
             String sectionId = student.getSectionId();
 
+            // ✅ Served from memory; use /active-code/stream instead of polling this
             Map<String, Object> response = new HashMap<>();
             response.put("studentSectionId", sectionId);
-            response.put("codeActive", false);
-            response.put("message", "No active verification code at this time");
+            sectionCodeChannel.current(sectionId).ifPresentOrElse(
+                    code -> response.putAll(SectionCodeChannel.describe(code)),
+                    () -> {
+                        response.put("codeActive", false);
+                        response.put("message", "No active verification code at this time");
+                    });
 
             return ResponseEntity.ok(response);
 
@@ -339,6 +359,22 @@ public class StudentController {
         }
     }
 
+    /**
+     * GET /api/students/active-code/stream
+     * SSE push of code windows for the authenticated student's section ("code" / "expired" / "idle")
+     */
+    @GetMapping(value = "/active-code/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStudentActiveCode() {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        Optional<Student> studentOpt = studentRepository.findByEmail(email);
+        if (studentOpt.isEmpty() || studentOpt.get().getSectionId() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        System.out.println("📡 [ENDPOINT] /students/active-code/stream opened for section: " + studentOpt.get().getSectionId());
+        return ResponseEntity.ok(sectionCodeChannel.subscribe(studentOpt.get().getSectionId()));
+    }
+
     /**
      * GET /api/students/attendance-details/{date}
      * Show student's attendance with code/RFID verification method
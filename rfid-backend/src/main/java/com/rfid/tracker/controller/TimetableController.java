@@ -9,6 +9,11 @@ import com.rfid.tracker.repository.SectionRepository;
 import com.rfid.tracker.repository.StaffRepository;
 import com.rfid.tracker.repository.TimetableRepository;
 import com.rfid.tracker.repository.StudentRepository;
+import com.rfid.tracker.service.DailyAttendanceTally;
+import com.rfid.tracker.service.DailyStaffPresence;
+import com.rfid.tracker.service.PeriodLogWriteBehindQueue;
+import com.rfid.tracker.service.SectionCodeChannel;
+import com.rfid.tracker.service.VerificationCodeRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,9 +21,12 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.transaction.annotation.Transactional; // ✅ ADDED
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import jakarta.persistence.EntityManager; // ✅ ADDED
 import jakarta.persistence.PersistenceContext; // ✅ ADDED
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -43,6 +51,21 @@ public class TimetableController {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private VerificationCodeRegistry verificationCodeRegistry;
+
+    @Autowired
+    private SectionCodeChannel sectionCodeChannel;
+
+    @Autowired
+    private DailyStaffPresence dailyStaffPresence;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
+
     // ✅ ADDED: EntityManager to handle manual deletion of related records
     @PersistenceContext
     private EntityManager entityManager;
@@ -218,6 +241,27 @@ public class TimetableController {
 
             System.out.println("♻️ Starting deletion for Timetable ID: " + id);
 
+            // Queued period scans of this class must be in MySQL, or they are inserted after the delete
+            if (!periodLogWriteBehindQueue.flushNow()) {
+                return new ResponseEntity<>("Period scans are still being saved, please try again",
+                        HttpStatus.SERVICE_UNAVAILABLE);
+            }
+
+            // ✅ The bulk deletes below bypass the entity listeners: collect what the in-memory registries hold
+            List<Object[]> codes = entityManager.createQuery(
+                            "SELECT v.code, v.sectionId FROM VerificationCode v WHERE v.timetableId = :id", Object[].class)
+                    .setParameter("id", id)
+                    .getResultList();
+            List<LocalDate> staffLogDates = entityManager.createQuery(
+                            "SELECT DISTINCT s.entryDate FROM StaffEntryLog s WHERE s.timetableId = :id", LocalDate.class)
+                    .setParameter("id", id)
+                    .getResultList();
+            List<Object[]> periodLogs = entityManager.createQuery(
+                            "SELECT p.studentRegistrationNumber, p.scanDate, p.timeSlot FROM PeriodAttendanceLog p " +
+                            "WHERE p.timetableId = :id", Object[].class)
+                    .setParameter("id", id)
+                    .getResultList();
+
             // 1. Delete associated verification codes first (Foreign Key Constraint Fix)
             int deletedCodes = entityManager.createQuery("DELETE FROM VerificationCode v WHERE v.timetableId = :id")
                     .setParameter("id", id)
@@ -238,6 +282,22 @@ public class TimetableController {
             // 4. Finally delete the timetable entry
             timetableRepository.deleteById(id);
             System.out.println("✅ Timetable entry deleted successfully: " + id);
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (Object[] c : codes) {
+                        verificationCodeRegistry.evict((String) c[0]);
+                        sectionCodeChannel.withdraw((String) c[1], (String) c[0]);
+                    }
+                    for (LocalDate date : staffLogDates) {
+                        dailyStaffPresence.forgetDay(date);
+                    }
+                    for (Object[] p : periodLogs) {
+                        dailyAttendanceTally.clearPeriod((String) p[0], (LocalDate) p[1], (String) p[2]);
+                    }
+                }
+            });
             
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         } catch (Exception e) {
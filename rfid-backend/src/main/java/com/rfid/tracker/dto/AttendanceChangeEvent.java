@@ -0,0 +1,65 @@
+package com.rfid.tracker.dto;
+
+import com.rfid.tracker.entity.Attendance;
+import com.rfid.tracker.entity.AttendanceStatus;
+
+import java.time.LocalDate;
+
+/**
+ * One committed change to an attendance row: the day's status before (null for a new row) and after
+ * (null for a deleted row).
+ * Published through Spring's ApplicationEventPublisher after commit by finalization, manual marking,
+ * bulk marking and admin overrides; consumers update their counters by delta.
+ */
+public class AttendanceChangeEvent {
+    private final Attendance.UserType userType;
+    private final Long studentId;
+    private final String userIdentifier;
+    private final String sectionId;
+    private final String branch;
+    private final LocalDate date;
+    private final AttendanceStatus previousStatus;
+    private final AttendanceStatus status;
+
+    public AttendanceChangeEvent(Attendance.UserType userType, Long studentId, String userIdentifier,
+                                 String sectionId, String branch, LocalDate date,
+                                 AttendanceStatus previousStatus, AttendanceStatus status) {
+        this.userType = userType;
+        this.studentId = studentId;
+        this.userIdentifier = userIdentifier;
+        this.sectionId = sectionId;
+        this.branch = branch;
+        this.date = date;
+        this.previousStatus = previousStatus;
+        this.status = status;
+    }
+
+    public static AttendanceChangeEvent of(Attendance attendance, AttendanceStatus previousStatus) {
+        String identifier = attendance.getUserType() == Attendance.UserType.STAFF
+                ? attendance.getStaffId() : attendance.getUserIdentifier();
+        return new AttendanceChangeEvent(attendance.getUserType(), attendance.getStudentId(), identifier,
+                attendance.getSectionId(), attendance.getBranch(), attendance.getDate(),
+                previousStatus, attendance.getStatus());
+    }
+
+    public static AttendanceChangeEvent deleted(Attendance attendance, AttendanceStatus previousStatus) {
+        String identifier = attendance.getUserType() == Attendance.UserType.STAFF
+                ? attendance.getStaffId() : attendance.getUserIdentifier();
+        return new AttendanceChangeEvent(attendance.getUserType(), attendance.getStudentId(), identifier,
+                attendance.getSectionId(), attendance.getBranch(), attendance.getDate(),
+                previousStatus, null);
+    }
+
+    public Attendance.UserType getUserType() { return userType; }
+    public Long getStudentId() { return studentId; }
+    public String getUserIdentifier() { return userIdentifier; }
+    public String getSectionId() { return sectionId; }
+    public String getBranch() { return branch; }
+    public LocalDate getDate() { return date; }
+    public AttendanceStatus getPreviousStatus() { return previousStatus; }
+    public AttendanceStatus getStatus() { return status; }
+
+    public boolean isNewRow() { return previousStatus == null; }
+    public boolean isDeletedRow() { return status == null && previousStatus != null; }
+    public boolean isStudent() { return userType != Attendance.UserType.STAFF && studentId != null; }
+}
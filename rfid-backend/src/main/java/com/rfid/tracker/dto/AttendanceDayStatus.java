@@ -0,0 +1,25 @@
+package com.rfid.tracker.dto;
+
+import com.rfid.tracker.entity.AttendanceStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of one attendance row: who, which day, which status. Used by the monthly grids
+ * so they don't load whole Attendance entities.
+ */
+public class AttendanceDayStatus {
+    private final String userIdentifier;
+    private final LocalDate date;
+    private final AttendanceStatus status;
+
+    public AttendanceDayStatus(String userIdentifier, LocalDate date, AttendanceStatus status) {
+        this.userIdentifier = userIdentifier;
+        this.date = date;
+        this.status = status;
+    }
+
+    public String getUserIdentifier() { return userIdentifier; }
+    public LocalDate getDate() { return date; }
+    public AttendanceStatus getStatus() { return status; }
+}
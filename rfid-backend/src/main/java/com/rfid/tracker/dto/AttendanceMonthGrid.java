@@ -0,0 +1,110 @@
+package com.rfid.tracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.rfid.tracker.entity.AttendanceStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact month grid for one section.
+ *
+ * Each row is serialized as a JSON array in {@link #COLUMNS} order, and a row's days are one
+ * string with one character per day of the month (status short code, '-' when there is no
+ * record), e.g. [42, "23CS001", "Asha", "A", "PP-LA...", 18, 2, 1, 0].
+ */
+public class AttendanceMonthGrid {
+
+    public static final char NO_RECORD = '-';
+    public static final List<String> COLUMNS = List.of(
+            "id", "registrationNumber", "name", "section", "days", "present", "late", "absent", "halfDay");
+
+    private String sectionId;
+    private int year;
+    private int month;
+    private int daysInMonth;
+    private List<Row> rows = new ArrayList<>();
+
+    public AttendanceMonthGrid() {}
+
+    public AttendanceMonthGrid(String sectionId, int year, int month, int daysInMonth) {
+        this.sectionId = sectionId;
+        this.year = year;
+        this.month = month;
+        this.daysInMonth = daysInMonth;
+    }
+
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    @JsonPropertyOrder({"id", "registrationNumber", "name", "section", "days", "present", "late", "absent", "halfDay"})
+    public static class Row {
+        private final Long id;
+        private final String registrationNumber;
+        private final String name;
+        private final String section;
+        private final char[] days;
+        private int present;
+        private int late;
+        private int absent;
+        private int halfDay;
+
+        public Row(Long id, String registrationNumber, String name, String section, int daysInMonth) {
+            this.id = id;
+            this.registrationNumber = registrationNumber;
+            this.name = name;
+            this.section = section;
+            this.days = new char[daysInMonth];
+            Arrays.fill(this.days, NO_RECORD);
+        }
+
+        public void mark(int dayOfMonth, AttendanceStatus status) {
+            days[dayOfMonth - 1] = status.getShortCode().charAt(0);
+            switch (status) {
+                case PRESENT: present++; break;
+                case LATE: late++; break;
+                case ABSENT: absent++; break;
+                case HALF_DAY: halfDay++; break;
+            }
+        }
+
+        /**
+         * Status recorded on the day, or null.
+         */
+        public AttendanceStatus statusOn(int dayOfMonth) {
+            char c = days[dayOfMonth - 1];
+            return c == NO_RECORD ? null : AttendanceStatus.fromShortCode(String.valueOf(c));
+        }
+
+        public Long getId() { return id; }
+        public String getRegistrationNumber() { return registrationNumber; }
+        public String getName() { return name; }
+        public String getSection() { return section; }
+        public String getDays() { return new String(days); }
+        public int getPresent() { return present; }
+        public int getLate() { return late; }
+        public int getAbsent() { return absent; }
+        public int getHalfDay() { return halfDay; }
+    }
+
+    public List<String> getColumns() { return COLUMNS; }
+
+    @JsonIgnore
+    public int size() { return rows.size(); }
+
+    public String getSectionId() { return sectionId; }
+    public void setSectionId(String sectionId) { this.sectionId = sectionId; }
+
+    public int getYear() { return year; }
+    public void setYear(int year) { this.year = year; }
+
+    public int getMonth() { return month; }
+    public void setMonth(int month) { this.month = month; }
+
+    public int getDaysInMonth() { return daysInMonth; }
+    public void setDaysInMonth(int daysInMonth) { this.daysInMonth = daysInMonth; }
+
+    public List<Row> getRows() { return rows; }
+    public void setRows(List<Row> rows) { this.rows = rows; }
+}
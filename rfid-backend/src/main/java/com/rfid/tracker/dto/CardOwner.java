@@ -0,0 +1,48 @@
+package com.rfid.tracker.dto;
+
+import com.rfid.tracker.entity.RfidCard;
+
+/**
+ * Immutable projection of an active RFID card and the student / staff it belongs to.
+ * Holds only what the scan path needs, so it can be cached safely across threads.
+ */
+public final class CardOwner {
+    private final Long cardId;
+    private final String cardUid;
+    private final RfidCard.UserType userType;
+    private final Long userId;          // students.id or staff.id
+    private final String identifier;    // registration_number or staff_id
+    private final String name;
+    private final String sectionId;
+    private final String branch;
+    private final String email;
+    private final String phone;
+
+    public CardOwner(Long cardId, String cardUid, RfidCard.UserType userType, Long userId, String identifier,
+                     String name, String sectionId, String branch, String email, String phone) {
+        this.cardId = cardId;
+        this.cardUid = cardUid;
+        this.userType = userType;
+        this.userId = userId;
+        this.identifier = identifier;
+        this.name = name;
+        this.sectionId = sectionId;
+        this.branch = branch;
+        this.email = email;
+        this.phone = phone;
+    }
+
+    public Long getCardId() { return cardId; }
+    public String getCardUid() { return cardUid; }
+    public RfidCard.UserType getUserType() { return userType; }
+    public Long getUserId() { return userId; }
+    public String getIdentifier() { return identifier; }
+    public String getName() { return name; }
+    public String getSectionId() { return sectionId; }
+    public String getBranch() { return branch; }
+    public String getEmail() { return email; }
+    public String getPhone() { return phone; }
+
+    public boolean isStudent() { return userType == RfidCard.UserType.STUDENT; }
+    public boolean isStaff() { return userType == RfidCard.UserType.STAFF; }
+}
@@ -0,0 +1,34 @@
+package com.rfid.tracker.dto;
+
+/**
+ * Export spec for an asynchronous attendance workbook.
+ *
+ * scope: SECTION (sectionId), BRANCH (branch) or COLLEGE. The workbook has one student sheet per
+ * section, plus one staff sheet per branch when includeStaff is set.
+ */
+public class ReportJobRequest {
+    private String scope;
+    private String branch;
+    private String sectionId;
+    private Integer year;
+    private Integer month;
+    private boolean includeStaff;
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+
+    public String getBranch() { return branch; }
+    public void setBranch(String branch) { this.branch = branch; }
+
+    public String getSectionId() { return sectionId; }
+    public void setSectionId(String sectionId) { this.sectionId = sectionId; }
+
+    public Integer getYear() { return year; }
+    public void setYear(Integer year) { this.year = year; }
+
+    public Integer getMonth() { return month; }
+    public void setMonth(Integer month) { this.month = month; }
+
+    public boolean isIncludeStaff() { return includeStaff; }
+    public void setIncludeStaff(boolean includeStaff) { this.includeStaff = includeStaff; }
+}
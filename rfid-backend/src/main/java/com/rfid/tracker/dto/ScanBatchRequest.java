@@ -0,0 +1,27 @@
+package com.rfid.tracker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of scans uploaded by one reader, either a burst from the gate queue
+ * or events that were buffered on the ESP32 while it was offline.
+ */
+public class ScanBatchRequest {
+    private String deviceId;
+    private List<RFIDScanRequest> rfidScans = new ArrayList<>();
+    private List<FingerprintScanRequest> fingerprintScans = new ArrayList<>();
+
+    public ScanBatchRequest() {}
+
+    public String getDeviceId() { return deviceId; }
+    public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+    public List<RFIDScanRequest> getRfidScans() { return rfidScans; }
+    public void setRfidScans(List<RFIDScanRequest> rfidScans) { this.rfidScans = rfidScans; }
+
+    public List<FingerprintScanRequest> getFingerprintScans() { return fingerprintScans; }
+    public void setFingerprintScans(List<FingerprintScanRequest> fingerprintScans) {
+        this.fingerprintScans = fingerprintScans;
+    }
+}
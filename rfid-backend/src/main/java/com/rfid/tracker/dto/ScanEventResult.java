@@ -0,0 +1,39 @@
+package com.rfid.tracker.dto;
+
+/**
+ * Outcome of a single event inside a {@link ScanBatchRequest}.
+ * eventType is RFID or FINGERPRINT and index is the position in that list,
+ * so the device can match results back to its local buffer.
+ */
+public class ScanEventResult {
+    private String eventType;
+    private int index;
+    private String status;
+    private String message;
+    private Object data;
+
+    public ScanEventResult() {}
+
+    public ScanEventResult(String eventType, int index, HardwareResponseDTO response) {
+        this.eventType = eventType;
+        this.index = index;
+        this.status = response.getStatus();
+        this.message = response.getMessage();
+        this.data = response.getData();
+    }
+
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Object getData() { return data; }
+    public void setData(Object data) { this.data = data; }
+}
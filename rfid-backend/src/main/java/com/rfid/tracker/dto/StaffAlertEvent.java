@@ -0,0 +1,23 @@
+package com.rfid.tracker.dto;
+
+import com.rfid.tracker.entity.StaffLateAlert;
+
+/**
+ * One committed change to a staff late alert, published after commit by {@code StaffLateAlertWriteListener}
+ * and pushed to open admin dashboards by {@code StaffAlertStreamService}.
+ */
+public class StaffAlertEvent {
+
+    public enum Type { CREATED, UPDATED, ACKNOWLEDGED, DISMISSED }
+
+    private final Type type;
+    private final StaffLateAlert alert;
+
+    public StaffAlertEvent(Type type, StaffLateAlert alert) {
+        this.type = type;
+        this.alert = alert;
+    }
+
+    public Type getType() { return type; }
+    public StaffLateAlert getAlert() { return alert; }
+}
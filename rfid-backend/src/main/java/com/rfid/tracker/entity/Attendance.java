@@ -1,5 +1,7 @@
 package com.rfid.tracker.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rfid.tracker.service.AttendanceWriteListener;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -7,6 +9,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "attendance")
+@EntityListeners(AttendanceWriteListener.class)
 public class Attendance {
 
     @Id
@@ -64,6 +67,10 @@ public class Attendance {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Status as last loaded from / written to the database, for change events
+    @Transient
+    private AttendanceStatus persistedStatus;
+
     public Attendance() {
         this.createdAt = LocalDateTime.now();
         this.markTime = LocalTime.now(); // Default mark time
@@ -122,4 +129,8 @@ public class Attendance {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    @JsonIgnore
+    public AttendanceStatus getPersistedStatus() { return persistedStatus; }
+    public void setPersistedStatus(AttendanceStatus persistedStatus) { this.persistedStatus = persistedStatus; }
 }
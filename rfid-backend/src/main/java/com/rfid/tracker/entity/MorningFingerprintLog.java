@@ -1,5 +1,7 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.DailyTallyListener;
+import com.rfid.tracker.service.StaffPresenceListener;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -7,6 +9,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "morning_fingerprint_logs")
+@EntityListeners({DailyTallyListener.class, StaffPresenceListener.class})
 public class MorningFingerprintLog {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
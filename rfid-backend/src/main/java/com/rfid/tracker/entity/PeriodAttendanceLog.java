@@ -1,5 +1,6 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.DailyTallyListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDate;
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "period_attendance_logs")
+@EntityListeners(DailyTallyListener.class)
 public class PeriodAttendanceLog {
 
     @Id
@@ -1,10 +1,12 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.CardOwnerCacheListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "rfid_cards")
+@EntityListeners(CardOwnerCacheListener.class)
 public class RfidCard {
 
     @Id
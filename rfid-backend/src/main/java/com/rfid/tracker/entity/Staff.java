@@ -1,11 +1,13 @@
 package com.rfid.tracker.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.rfid.tracker.service.CardOwnerCacheListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "staff")
+@EntityListeners(CardOwnerCacheListener.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Staff {
 
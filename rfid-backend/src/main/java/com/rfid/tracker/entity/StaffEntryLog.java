@@ -1,5 +1,6 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.StaffPresenceListener;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -7,6 +8,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "staff_entry_logs")
+@EntityListeners(StaffPresenceListener.class)
 public class StaffEntryLog {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,5 +1,6 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.StaffLateAlertWriteListener;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -7,6 +8,7 @@ import java.time.LocalTime;
 
 @Entity
 @Table(name = "staff_late_alerts")
+@EntityListeners(StaffLateAlertWriteListener.class)
 public class StaffLateAlert {
 
     @Id
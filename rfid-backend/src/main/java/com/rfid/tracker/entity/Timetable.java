@@ -1,10 +1,12 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.TimetableChangeListener;
 import jakarta.persistence.*;
 import java.time.LocalTime;
 
 @Entity
 @Table(name = "timetable")
+@EntityListeners(TimetableChangeListener.class)
 public class Timetable {
 
     @Id
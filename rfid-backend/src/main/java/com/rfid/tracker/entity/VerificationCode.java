@@ -1,10 +1,12 @@
 package com.rfid.tracker.entity;
 
+import com.rfid.tracker.service.VerificationCodeWriteListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "verification_codes")
+@EntityListeners(VerificationCodeWriteListener.class)
 public class VerificationCode {
 
     @Id
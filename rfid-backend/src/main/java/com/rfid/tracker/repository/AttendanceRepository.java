@@ -1,5 +1,6 @@
 package com.rfid.tracker.repository;
 
+import com.rfid.tracker.dto.AttendanceDayStatus;
 import com.rfid.tracker.entity.Attendance;
 import com.rfid.tracker.entity.AttendanceStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +34,27 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
         @Param("month") int month
     );
     
+    // ✅ (studentId, total days, present days) per student in the range, for semester summaries
+    @Query("SELECT a.studentId, COUNT(a), " +
+           "SUM(CASE WHEN a.status = com.rfid.tracker.entity.AttendanceStatus.PRESENT THEN 1 ELSE 0 END) " +
+           "FROM Attendance a WHERE a.studentId IN :studentIds " +
+           "AND a.date BETWEEN :startDate AND :endDate GROUP BY a.studentId")
+    List<Object[]> countSemesterAttendance(
+        @Param("studentIds") Collection<Long> studentIds,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    // ✅ (studentId, date, status) for a section's students in the range, for the attendance matrix
+    @Query("SELECT a.studentId, a.date, a.status FROM Attendance a " +
+           "WHERE a.studentId IN (SELECT s.id FROM Student s WHERE s.sectionId = :sectionId) " +
+           "AND a.date BETWEEN :startDate AND :endDate")
+    List<Object[]> findSectionMonthStatuses(
+        @Param("sectionId") String sectionId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
     // ✅ CHANGED: sectionId parameter is now String
     @Query("SELECT COUNT(a) FROM Attendance a WHERE a.sectionId = :sectionId " +
            "AND a.date = :date AND a.status = :status")
@@ -55,6 +78,19 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
         @Param("month") int month
     );
     
+    // ✅ Projection for the staff grid: one branch, one date range, only (staffId, date, status)
+    @Query("SELECT new com.rfid.tracker.dto.AttendanceDayStatus(a.userIdentifier, a.date, a.status) " +
+           "FROM Attendance a WHERE a.userType = :userType " +
+           "AND a.date BETWEEN :startDate AND :endDate " +
+           "AND a.userIdentifier IN (SELECT s.staffId FROM Staff s WHERE LOWER(s.branch) = LOWER(:branch)) " +
+           "ORDER BY a.userIdentifier, a.date")
+    List<AttendanceDayStatus> findStaffDayStatusesByBranchAndDateRange(
+        @Param("branch") String branch,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("userType") Attendance.UserType userType
+    );
+
     @Query("SELECT COUNT(a) FROM Attendance a WHERE a.branch = :branch " +
            "AND a.date = :date AND a.status = :status AND a.staffId IS NOT NULL")
     long countByBranchAndDateAndStatus(
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 import java.util.List;
+import java.util.Collection;
 
 @Repository
 public interface FingerprintTemplateRepository extends JpaRepository<FingerprintTemplate, Long> {
@@ -14,6 +15,8 @@ public interface FingerprintTemplateRepository extends JpaRepository<Fingerprint
     // ✅ ADDED THIS MISSING METHOD
     Optional<FingerprintTemplate> findByFingerprintIdAndIsActiveTrue(Integer fingerprintId);
 
+    List<FingerprintTemplate> findByFingerprintIdIn(Collection<Integer> fingerprintIds);
+
     Optional<FingerprintTemplate> findByUserIdentifier(String userIdentifier);
     
     List<FingerprintTemplate> findByUserType(FingerprintTemplate.UserType userType);
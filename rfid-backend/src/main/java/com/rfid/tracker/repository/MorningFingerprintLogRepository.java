@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
 import java.util.Optional;
 import java.util.List;
+import java.util.Collection;
 
 @Repository
 public interface MorningFingerprintLogRepository extends JpaRepository<MorningFingerprintLog, Long> {
@@ -22,4 +23,6 @@ public interface MorningFingerprintLogRepository extends JpaRepository<MorningFi
     List<MorningFingerprintLog> findUnprocessedBySection(@Param("sectionId") String sectionId, @Param("scanDate") LocalDate scanDate);
     
     List<MorningFingerprintLog> findByUserTypeAndScanDate(MorningFingerprintLog.UserType userType, LocalDate scanDate);
+
+    List<MorningFingerprintLog> findByUserIdentifierInAndScanDateIn(Collection<String> userIdentifiers, Collection<LocalDate> scanDates);
 }
@@ -19,6 +19,10 @@ public interface PeriodAttendanceLogRepository extends JpaRepository<PeriodAtten
 
     List<PeriodAttendanceLog> findBySectionIdAndScanDate(String sectionId, LocalDate scanDate);
 
+    // Students who already entered a verification code (warms the code registry's duplicate check)
+    @Query("SELECT DISTINCT p.studentRegistrationNumber FROM PeriodAttendanceLog p WHERE p.verificationCode = :code")
+    List<String> findStudentsByVerificationCode(@Param("code") String code);
+
     Optional<PeriodAttendanceLog> findByStudentRegistrationNumberAndTimeSlotAndScanDate(
             String registrationNumber, String timeSlot, LocalDate scanDate);
 
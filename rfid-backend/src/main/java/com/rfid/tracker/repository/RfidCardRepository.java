@@ -3,6 +3,8 @@ package com.rfid.tracker.repository;
 import com.rfid.tracker.entity.RfidCard;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +15,9 @@ public interface RfidCardRepository extends JpaRepository<RfidCard, Long> {
      * This is more secure as it prevents deactivated cards from being used.
      */
     Optional<RfidCard> findByCardUidAndIsActiveTrue(String cardUid);
+
+    /**
+     * Bulk variant used by the batch scan endpoint.
+     */
+    List<RfidCard> findByCardUidInAndIsActiveTrue(Collection<String> cardUids);
 }
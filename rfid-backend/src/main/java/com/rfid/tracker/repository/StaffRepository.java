@@ -4,6 +4,7 @@ import com.rfid.tracker.entity.Staff;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +13,6 @@ public interface StaffRepository extends JpaRepository<Staff, Long> {
     Optional<Staff> findByStaffId(String staffId);
     boolean existsByStaffId(String staffId);
     List<Staff> findByBranch(String branch);
+    List<Staff> findByBranchIgnoreCase(String branch);
+    List<Staff> findByStaffIdIn(Collection<String> staffIds);
 }
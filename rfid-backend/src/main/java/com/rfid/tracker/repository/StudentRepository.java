@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,11 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
      * ✅ CRITICAL: Required by AuthService.java:39
      */
     Optional<Student> findByRegistrationNumber(String registrationNumber);
+
+    /**
+     * Bulk lookup by registration numbers (batch scan ingest)
+     */
+    List<Student> findByRegistrationNumberIn(Collection<String> registrationNumbers);
     
     /**
      * Find by email OR registration number
@@ -49,6 +55,13 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
      */
     List<Student> findBySectionId(String sectionId);
 
+    /**
+     * (id, registrationNumber, name, section) of a section's students, in month grid order
+     */
+    @Query("SELECT s.id, s.registrationNumber, s.name, s.section FROM Student s " +
+           "WHERE s.sectionId = :sectionId ORDER BY s.registrationNumber, s.id")
+    List<Object[]> findRosterBySectionId(@Param("sectionId") String sectionId);
+
     /**
      * Find students by section display name (e.g., "ECE-A")
      * ✅ CRITICAL: Required by StudentService.java:176
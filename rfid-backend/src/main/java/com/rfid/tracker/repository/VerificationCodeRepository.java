@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -16,16 +17,41 @@ public interface VerificationCodeRepository extends JpaRepository<VerificationCo
     // Find by code (for verification)
     Optional<VerificationCode> findByCode(String code);
 
+    // Unique-index lookup used before handing out a new code
+    boolean existsByCode(String code);
+
     // Find by staff ID and section ID (to prevent duplicate codes for same period)
     Optional<VerificationCode> findByStaffIdAndSectionIdAndCodeEnteredCountGreaterThan(String staffId, String sectionId, Integer count);
 
-    // Find all valid codes for a section on a specific date
-    @Query("SELECT v FROM VerificationCode v WHERE v.sectionId = :sectionId AND DATE(v.generatedTime) = CURDATE() AND v.validUntil > CURRENT_TIMESTAMP")
-    List<VerificationCode> findActiveCodesBySection(@Param("sectionId") String sectionId);
+    // "Today" queries are ranges on generated_time so they use the (section_id, valid_until) and
+    // (staff_id, generated_time) indexes created by VerificationCodeSweeper
+
+    // Find all valid codes for a section generated today
+    @Query("SELECT v FROM VerificationCode v WHERE v.sectionId = :sectionId AND v.generatedTime >= :dayStart AND v.validUntil > :now")
+    List<VerificationCode> findActiveCodesBySection(@Param("sectionId") String sectionId,
+                                                    @Param("dayStart") LocalDateTime dayStart,
+                                                    @Param("now") LocalDateTime now);
+
+    default List<VerificationCode> findActiveCodesBySection(String sectionId) {
+        return findActiveCodesBySection(sectionId, LocalDate.now().atStartOfDay(), LocalDateTime.now());
+    }
+
+    // Latest code of a section still valid at the given time (range on section_id / valid_until)
+    Optional<VerificationCode> findFirstBySectionIdAndValidUntilAfterOrderByGeneratedTimeDesc(String sectionId, LocalDateTime now);
 
-    // Find all codes generated by staff on a specific date
-    @Query("SELECT v FROM VerificationCode v WHERE v.staffId = :staffId AND DATE(v.generatedTime) = CURDATE()")
-    List<VerificationCode> findByStaffIdAndToday(@Param("staffId") String staffId);
+    // Codes still valid (or expired since the cutoff), loaded into the code registry on startup
+    List<VerificationCode> findByValidUntilAfter(LocalDateTime cutoff);
+
+    // Find all codes generated by staff in [from, to)
+    @Query("SELECT v FROM VerificationCode v WHERE v.staffId = :staffId AND v.generatedTime >= :from AND v.generatedTime < :to")
+    List<VerificationCode> findByStaffIdAndGeneratedBetween(@Param("staffId") String staffId,
+                                                            @Param("from") LocalDateTime from,
+                                                            @Param("to") LocalDateTime to);
+
+    default List<VerificationCode> findByStaffIdAndToday(String staffId) {
+        LocalDate today = LocalDate.now();
+        return findByStaffIdAndGeneratedBetween(staffId, today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+    }
 
     // Check if code exists and is still valid
     @Query("SELECT COUNT(v) > 0 FROM VerificationCode v WHERE v.code = :code AND v.validUntil > CURRENT_TIMESTAMP")
@@ -35,11 +61,16 @@ public interface VerificationCodeRepository extends JpaRepository<VerificationCo
     @Query("SELECT v FROM VerificationCode v WHERE v.staffId = :staffId AND v.sectionId = :sectionId AND v.validUntil > CURRENT_TIMESTAMP ORDER BY v.generatedTime DESC LIMIT 1")
     Optional<VerificationCode> findCurrentValidCode(@Param("staffId") String staffId, @Param("sectionId") String sectionId);
 
-    // Count how many codes were generated for staff today
-    @Query("SELECT COUNT(v) FROM VerificationCode v WHERE v.staffId = :staffId AND DATE(v.generatedTime) = CURDATE()")
-    int countCodesGeneratedToday(@Param("staffId") String staffId);
+    // Count how many codes were generated for staff in [from, to)
+    @Query("SELECT COUNT(v) FROM VerificationCode v WHERE v.staffId = :staffId AND v.generatedTime >= :from AND v.generatedTime < :to")
+    int countCodesGeneratedBetween(@Param("staffId") String staffId,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to);
+
+    default int countCodesGeneratedToday(String staffId) {
+        LocalDate today = LocalDate.now();
+        return countCodesGeneratedBetween(staffId, today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+    }
 
-    // Find expired codes (for cleanup)
-    @Query("SELECT v FROM VerificationCode v WHERE v.validUntil < CURRENT_TIMESTAMP AND v.isUsed = FALSE")
-    List<VerificationCode> findExpiredUnusedCodes();
+    // Expired codes are archived / deleted in batches by VerificationCodeSweeper (no entity loading)
 }
\ No newline at end of file
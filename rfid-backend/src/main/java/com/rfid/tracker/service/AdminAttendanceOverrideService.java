@@ -16,6 +16,9 @@ public class AdminAttendanceOverrideService {
     @Autowired
     private AttendanceRepository attendanceRepository;
 
+    @Autowired
+    private ClosedMonthExportStore closedMonthExportStore;
+
     /**
      * Admin override attendance status
      * @param attendanceId The attendance record ID
@@ -51,6 +54,9 @@ public class AdminAttendanceOverrideService {
             attendance.setOverrideDatetime(LocalDateTime.now());
             
             attendanceRepository.save(attendance);
+
+            // ✅ A closed month's archived export no longer matches
+            closedMonthExportStore.invalidate(attendance.getSectionId(), attendance.getDate());
             
             return new HardwareResponseDTO("SUCCESS", 
                     String.format("Attendance overridden from %s to %s by %s", 
@@ -77,6 +83,7 @@ public class AdminAttendanceOverrideService {
             // Find all attendance records for given date and section
             // Apply override to all
             
+            closedMonthExportStore.invalidate(sectionId, date);
             return new HardwareResponseDTO("SUCCESS", "Bulk override completed");
         } catch (Exception e) {
             return new HardwareResponseDTO("ERROR", "Error in bulk override: " + e.getMessage());
@@ -0,0 +1,236 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceMonthGrid;
+import com.rfid.tracker.entity.AttendanceStatus;
+import com.rfid.tracker.entity.Staff;
+import com.rfid.tracker.repository.StaffRepository;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Streaming attendance workbooks built on POI SXSSF.
+ *
+ * Only the last rowWindow rows of a sheet are kept in memory; older rows are flushed to a
+ * compressed temp file and the finished workbook is written straight to the caller's stream
+ * (usually the servlet output stream). Cell styles are created once per workbook and shared by
+ * every sheet, and column widths are fixed instead of auto-sized, since auto-sizing needs every
+ * row in memory.
+ */
+@Service
+public class AttendanceExcelExporter {
+
+    private static final int NAME_WIDTH = 28 * 256;
+    private static final int ID_WIDTH = 16 * 256;
+    private static final int DAY_WIDTH = 4 * 256;
+    private static final int COUNT_WIDTH = 5 * 256;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceMatrix attendanceMatrix;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Value("${app.export.row-window:100}")
+    private int rowWindow;
+
+    /**
+     * Styles shared by all sheets of one workbook (a workbook supports a limited number of styles).
+     */
+    public static final class Styles {
+        final CellStyle header;
+        final CellStyle present;
+        final CellStyle late;
+        final CellStyle absent;
+        final CellStyle halfDay;
+
+        Styles(Workbook workbook) {
+            header = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            font.setColor(IndexedColors.WHITE.getIndex());
+            header.setFont(font);
+            header.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
+            header.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            header.setAlignment(HorizontalAlignment.CENTER);
+
+            present = statusStyle(workbook, IndexedColors.GREEN);
+            late = statusStyle(workbook, IndexedColors.YELLOW);
+            absent = statusStyle(workbook, IndexedColors.RED);
+            halfDay = statusStyle(workbook, IndexedColors.LIGHT_ORANGE);
+        }
+
+        CellStyle forStatus(AttendanceStatus status) {
+            switch (status) {
+                case PRESENT: return present;
+                case LATE: return late;
+                case ABSENT: return absent;
+                default: return halfDay;
+            }
+        }
+
+        private static CellStyle statusStyle(Workbook workbook, IndexedColors color) {
+            CellStyle style = workbook.createCellStyle();
+            style.setFillForegroundColor(color.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            style.setAlignment(HorizontalAlignment.CENTER);
+            return style;
+        }
+    }
+
+    public SXSSFWorkbook newWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    /**
+     * Write the workbook to the stream and delete its temp files.
+     */
+    public void finish(SXSSFWorkbook workbook, OutputStream out) throws IOException {
+        try {
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    // ========== SINGLE-SHEET EXPORTS ==========
+
+    public void writeStudentMonth(String sectionId, int year, int month, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = newWorkbook();
+        Styles styles = new Styles(workbook);
+        writeStudentSheet(workbook, styles, "Student Attendance", attendanceService.getSectionMonthGrid(sectionId, year, month));
+        finish(workbook, out);
+    }
+
+    public void writeStaffMonth(String branch, int year, int month, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = newWorkbook();
+        Styles styles = new Styles(workbook);
+        writeStaffSheet(workbook, styles, "Staff Attendance", branch, year, month);
+        finish(workbook, out);
+    }
+
+    // ========== SHEETS ==========
+
+    public void writeStudentSheet(SXSSFWorkbook workbook, Styles styles, String sheetName, AttendanceMonthGrid grid) {
+        SXSSFSheet sheet = workbook.createSheet(safeSheetName(workbook, sheetName));
+        int daysInMonth = grid.getDaysInMonth();
+
+        Row headerRow = sheet.createRow(0);
+        cell(headerRow, 0, "Reg Number", styles.header);
+        cell(headerRow, 1, "Student Name", styles.header);
+        cell(headerRow, 2, "Section", styles.header);
+        writeDayAndCountHeaders(sheet, headerRow, styles, 3, daysInMonth);
+        sheet.setColumnWidth(0, ID_WIDTH);
+        sheet.setColumnWidth(1, NAME_WIDTH);
+        sheet.setColumnWidth(2, ID_WIDTH);
+
+        int rowNum = 1;
+        for (AttendanceMonthGrid.Row student : grid.getRows()) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(student.getRegistrationNumber());
+            row.createCell(1).setCellValue(student.getName());
+            row.createCell(2).setCellValue(student.getSection());
+            writeDays(row, styles, 3, student.getDays());
+            row.createCell(3 + daysInMonth).setCellValue(student.getPresent());
+            row.createCell(4 + daysInMonth).setCellValue(student.getLate());
+            row.createCell(5 + daysInMonth).setCellValue(student.getAbsent());
+        }
+    }
+
+    /**
+     * Staff of the branch with their month read from the attendance matrix.
+     */
+    public void writeStaffSheet(SXSSFWorkbook workbook, Styles styles, String sheetName,
+                                String branch, int year, int month) {
+        YearMonth ym = YearMonth.of(year, month);
+        int daysInMonth = ym.lengthOfMonth();
+        AttendanceMatrix.MonthScope scope = attendanceMatrix.branchStaff(branch, ym);
+
+        SXSSFSheet sheet = workbook.createSheet(safeSheetName(workbook, sheetName));
+        Row headerRow = sheet.createRow(0);
+        cell(headerRow, 0, "Staff Name", styles.header);
+        cell(headerRow, 1, "Email", styles.header);
+        writeDayAndCountHeaders(sheet, headerRow, styles, 2, daysInMonth);
+        sheet.setColumnWidth(0, NAME_WIDTH);
+        sheet.setColumnWidth(1, NAME_WIDTH);
+
+        int rowNum = 1;
+        for (Staff staff : staffRepository.findByBranchIgnoreCase(branch)) {
+            char[] days = scope.days(staff.getStaffId());
+            int[] counts = new int[3];   // [present, late, absent]
+            for (char code : days) {
+                if (code == 'P') counts[0]++;
+                else if (code == 'L') counts[1]++;
+                else if (code == 'A') counts[2]++;
+            }
+
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(staff.getName());
+            row.createCell(1).setCellValue(staff.getEmail());
+            writeDays(row, styles, 2, new String(days));
+            row.createCell(2 + daysInMonth).setCellValue(counts[0]);
+            row.createCell(3 + daysInMonth).setCellValue(counts[1]);
+            row.createCell(4 + daysInMonth).setCellValue(counts[2]);
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private void writeDayAndCountHeaders(SXSSFSheet sheet, Row headerRow, Styles styles, int firstDayColumn, int daysInMonth) {
+        for (int day = 1; day <= daysInMonth; day++) {
+            cell(headerRow, firstDayColumn + day - 1, String.valueOf(day), styles.header);
+            sheet.setColumnWidth(firstDayColumn + day - 1, DAY_WIDTH);
+        }
+        String[] counts = {"P", "L", "A"};
+        for (int i = 0; i < counts.length; i++) {
+            cell(headerRow, firstDayColumn + daysInMonth + i, counts[i], styles.header);
+            sheet.setColumnWidth(firstDayColumn + daysInMonth + i, COUNT_WIDTH);
+        }
+    }
+
+    private void writeDays(Row row, Styles styles, int firstDayColumn, String days) {
+        for (int i = 0; i < days.length(); i++) {
+            Cell cell = row.createCell(firstDayColumn + i);
+            char code = days.charAt(i);
+            if (code == AttendanceMonthGrid.NO_RECORD) {
+                cell.setCellValue("-");
+            } else {
+                cell.setCellValue(String.valueOf(code));
+                cell.setCellStyle(styles.forStatus(AttendanceStatus.fromShortCode(String.valueOf(code))));
+            }
+        }
+    }
+
+    private static void cell(Row row, int column, String value, CellStyle style) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        cell.setCellStyle(style);
+    }
+
+    // Sheet names are limited to 31 characters, must not contain []:*?/\ and must be unique
+    private static String safeSheetName(Workbook workbook, String name) {
+        String base = name == null || name.isBlank() ? "Sheet" : name.replaceAll("[\\[\\]:*?/\\\\]", "_");
+        if (base.length() > 31) base = base.substring(0, 31);
+        String candidate = base;
+        for (int i = 2; workbook.getSheet(candidate) != null; i++) {
+            String suffix = " (" + i + ")";
+            candidate = base.substring(0, Math.min(base.length(), 31 - suffix.length())) + suffix;
+        }
+        return candidate;
+    }
+}
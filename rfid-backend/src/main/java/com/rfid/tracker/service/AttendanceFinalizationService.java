@@ -0,0 +1,494 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceChangeEvent;
+import com.rfid.tracker.entity.Attendance;
+import com.rfid.tracker.entity.AttendanceStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Set-based end-of-day finalization for students.
+ *
+ * One aggregate query joins the day's unprocessed morning check-ins to their period scan counts;
+ * attendance rows are then upserted with JDBC batches, period logs are removed with one DELETE and
+ * morning logs are marked processed with one UPDATE. The number of statements is constant in the
+ * number of students (plus one batch round-trip per BATCH_SIZE rows).
+ *
+ * Status rule (same as the previous per-student loop): morning check-in plus
+ * 7+ periods = PRESENT, 4-6 = HALF_DAY, otherwise ABSENT.
+ *
+ * The nightly run is split into one partition per section, executed on a bounded worker pool.
+ * Each partition commits in its own transaction together with one attendance_processing_logs row
+ * per student, so a failing section does not roll back the others. Finished students have their
+ * morning log marked processed, so a restarted node only picks up the sections that are still
+ * pending (see {@link #resumeOnStartup()}).
+ *
+ * A run only starts once every accepted period scan is in MySQL. While the write-behind queue
+ * cannot flush (e.g. MySQL is unreachable) the date is deferred and retried every
+ * app.eod.deferred-retry-ms, so no student is finalized without the scans still on disk.
+ */
+@Service
+public class AttendanceFinalizationService {
+
+    private static final Logger logger = Logger.getLogger(AttendanceFinalizationService.class.getName());
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int FULL_DAY_PERIODS = 7;
+    private static final int HALF_DAY_PERIODS = 4;
+
+    // Partition key of students without a section
+    private static final String NO_SECTION = "";
+    static final String NOTES_PREFIX = "EOD section ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DailyAttendanceRollupService dailyAttendanceRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.eod.workers:4}")
+    private int workers;
+
+    @Value("${app.eod.partition-timeout-minutes:30}")
+    private long partitionTimeoutMinutes;
+
+    // Hour after which the current day counts as due on startup (matches the scheduler cron)
+    @Value("${app.eod.run-hour:20}")
+    private int runHour;
+
+    private TransactionTemplate partitionTransaction;
+    private ExecutorService partitionExecutor;
+    private final AtomicBoolean runInProgress = new AtomicBoolean();
+
+    // Dates whose run was held back because period scans were still unwritten
+    private final Set<LocalDate> deferredDates = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        partitionTransaction = new TransactionTemplate(transactionManager);
+        partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int threads = Math.max(1, workers);
+        partitionExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "eod-partition");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitionExecutor.shutdownNow();
+    }
+
+    /**
+     * Resume an interrupted run: yesterday always, today only once the nightly run is due.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> due = new ArrayList<>(List.of(today.minusDays(1)));
+        if (LocalTime.now().getHour() >= runHour) due.add(today);
+
+        // Own thread: the resumed run waits on partitions queued to the worker pool
+        Thread resume = new Thread(() -> {
+            for (LocalDate date : due) {
+                try {
+                    if (!pendingSections(date).isEmpty()) {
+                        logger.info("🔁 Resuming end-of-day processing for " + date);
+                        finalizeAllSections(date);
+                    }
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "⚠️ End-of-day resume failed for " + date, e);
+                }
+            }
+        }, "eod-resume");
+        resume.setDaemon(true);
+        resume.start();
+    }
+
+    /**
+     * One finalized student/day, as computed by the aggregate query.
+     */
+    public static class StudentDayResult {
+        final long studentId;
+        final String registrationNumber;
+        final String sectionId;
+        final String branch;
+        final String morningStatus;
+        final int periods;
+        final boolean logoutCompleted;
+        final AttendanceStatus status;
+
+        StudentDayResult(long studentId, String registrationNumber, String sectionId, String branch,
+                         String morningStatus, int periods, boolean logoutCompleted) {
+            this.studentId = studentId;
+            this.registrationNumber = registrationNumber;
+            this.sectionId = sectionId;
+            this.branch = branch;
+            this.morningStatus = morningStatus;
+            this.periods = periods;
+            this.logoutCompleted = logoutCompleted;
+            this.status = periods >= FULL_DAY_PERIODS ? AttendanceStatus.PRESENT
+                    : periods >= HALF_DAY_PERIODS ? AttendanceStatus.HALF_DAY
+                    : AttendanceStatus.ABSENT;
+        }
+
+        public long getStudentId() { return studentId; }
+        public String getRegistrationNumber() { return registrationNumber; }
+        public String getSectionId() { return sectionId; }
+        public String getBranch() { return branch; }
+        public String getMorningStatus() { return morningStatus; }
+        public int getPeriods() { return periods; }
+        public boolean isLogoutCompleted() { return logoutCompleted; }
+        public AttendanceStatus getStatus() { return status; }
+    }
+
+    /**
+     * Finalize every pending section of the date, one partition per section on the worker pool.
+     * Sections that already completed (e.g. before a crash) have nothing pending and are skipped.
+     */
+    public Map<String, Object> finalizeAllSections(LocalDate date) {
+        if (!runInProgress.compareAndSet(false, true)) {
+            Map<String, Object> busy = new LinkedHashMap<>();
+            busy.put("date", date.toString());
+            busy.put("status", "ALREADY_RUNNING");
+            return busy;
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            // Scans still in the write-behind queue must be counted
+            if (!periodLogWriteBehindQueue.flushNow()) {
+                return deferred(date);
+            }
+            deferredDates.remove(date);
+
+            List<String> sections = pendingSections(date);
+            Map<String, Future<Map<String, Object>>> futures = new LinkedHashMap<>();
+            for (String section : sections) {
+                futures.put(section, partitionExecutor.submit(() -> runPartition(date, section)));
+            }
+
+            List<Map<String, Object>> completed = new ArrayList<>();
+            Map<String, String> failed = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Map<String, Object>>> f : futures.entrySet()) {
+                try {
+                    completed.add(f.getValue().get(partitionTimeoutMinutes, TimeUnit.MINUTES));
+                } catch (ExecutionException e) {
+                    failed.put(f.getKey(), String.valueOf(e.getCause()));
+                    logger.log(Level.SEVERE, "❌ End-of-day partition failed for section " + f.getKey(), e.getCause());
+                } catch (TimeoutException e) {
+                    failed.put(f.getKey(), "timed out");
+                    logger.severe("❌ End-of-day partition timed out for section " + f.getKey());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.put(f.getKey(), "interrupted");
+                    break;
+                }
+            }
+
+            int students = 0;
+            for (Map<String, Object> p : completed) students += (Integer) p.get("students");
+
+            // Recount the dashboard rollup from the finalized rows
+            dailyAttendanceRollupService.requestRebuild(date);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("date", date.toString());
+            summary.put("partitions", sections.size());
+            summary.put("completed", completed.size());
+            summary.put("failed", failed);
+            summary.put("students", students);
+            summary.put("elapsedMs", System.currentTimeMillis() - started);
+            return summary;
+        } finally {
+            runInProgress.set(false);
+        }
+    }
+
+    /**
+     * Finalize one section in a single transaction (all sections when sectionId is null).
+     */
+    public Map<String, Object> finalizeStudents(LocalDate date, String sectionId) {
+        if (!periodLogWriteBehindQueue.flushNow()) {
+            return deferred(date);
+        }
+        return runPartition(date, sectionId);
+    }
+
+    /**
+     * Re-run the dates that were held back while period scans could not be written.
+     */
+    @Scheduled(fixedDelayString = "${app.eod.deferred-retry-ms:300000}")
+    public void retryDeferredRuns() {
+        for (LocalDate date : new ArrayList<>(deferredDates)) {
+            logger.info("🔁 Retrying deferred end-of-day processing for " + date);
+            finalizeAllSections(date);
+        }
+    }
+
+    private Map<String, Object> deferred(LocalDate date) {
+        deferredDates.add(date);
+        logger.warning("⚠️ End-of-day processing for " + date + " deferred: period scans are not all written yet");
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("date", date.toString());
+        summary.put("status", "PERIOD_LOGS_PENDING");
+        return summary;
+    }
+
+    private Map<String, Object> runPartition(LocalDate date, String partition) {
+        return partitionTransaction.execute(tx -> finalizePartition(date, partition));
+    }
+
+    /**
+     * Sections that still have unprocessed student morning logs on the date.
+     */
+    public List<String> pendingSections(LocalDate date) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT COALESCE(s.section_id, '') FROM morning_fingerprint_logs m " +
+                "JOIN students s ON s.registration_number = m.user_identifier " +
+                "WHERE m.scan_date = ? AND m.user_type = 'STUDENT' AND m.processed = false",
+                String.class, Date.valueOf(date));
+    }
+
+    /**
+     * Per-section progress for the date: students finalized (attendance_processing_logs rows
+     * written by the nightly run) and students still pending.
+     */
+    public Map<String, Object> getProgress(LocalDate date) {
+        Map<String, Map<String, Object>> sections = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT SUBSTRING(l.processing_notes, ?), COUNT(*), MAX(l.processed_at) FROM attendance_processing_logs l " +
+                "WHERE l.process_date = ? AND l.user_type = 'STUDENT' AND l.processing_notes LIKE ? " +
+                "GROUP BY SUBSTRING(l.processing_notes, ?)",
+                rs -> {
+                    Map<String, Object> p = sections.computeIfAbsent(rs.getString(1), k -> newProgress());
+                    p.put("processed", rs.getLong(2));
+                    p.put("lastProcessedAt", String.valueOf(rs.getTimestamp(3)));
+                },
+                NOTES_PREFIX.length() + 1, Date.valueOf(date), NOTES_PREFIX + "%", NOTES_PREFIX.length() + 1);
+        jdbcTemplate.query(
+                "SELECT COALESCE(s.section_id, ''), COUNT(*) FROM morning_fingerprint_logs m " +
+                "JOIN students s ON s.registration_number = m.user_identifier " +
+                "WHERE m.scan_date = ? AND m.user_type = 'STUDENT' AND m.processed = false " +
+                "GROUP BY COALESCE(s.section_id, '')",
+                rs -> {
+                    sections.computeIfAbsent(rs.getString(1), k -> newProgress()).put("pending", rs.getLong(2));
+                },
+                Date.valueOf(date));
+
+        long pending = 0;
+        for (Map<String, Object> p : sections.values()) pending += (Long) p.get("pending");
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("date", date.toString());
+        progress.put("running", runInProgress.get());
+        progress.put("complete", pending == 0);
+        progress.put("sections", sections);
+        return progress;
+    }
+
+    private static Map<String, Object> newProgress() {
+        Map<String, Object> p = new LinkedHashMap<>();
+        p.put("processed", 0L);
+        p.put("pending", 0L);
+        return p;
+    }
+
+    private Map<String, Object> finalizePartition(LocalDate date, String sectionId) {
+        long started = System.currentTimeMillis();
+
+        List<StudentDayResult> results = computeStudentStatuses(date, sectionId);
+        if (results.isEmpty()) {
+            return summary(date, sectionId, results, 0, 0, started);
+        }
+
+        // Existing attendance rows for the day (manual marks, earlier runs)
+        Map<Long, Long> existingIds = new HashMap<>();
+        Map<Long, AttendanceStatus> existingStatus = new HashMap<>();
+        List<Object> existingArgs = new ArrayList<>(List.of(Date.valueOf(date)));
+        String existingSql = "SELECT a.student_id, a.id, a.status FROM attendance a " +
+                "WHERE a.date = ? AND a.user_type = 'STUDENT' AND a.override_by IS NULL";
+        if (sectionId != null) {
+            existingSql += " AND COALESCE(a.section_id, '') = ?";
+            existingArgs.add(sectionId);
+        }
+        jdbcTemplate.query(existingSql, rs -> {
+            existingIds.put(rs.getLong(1), rs.getLong(2));
+            existingStatus.put(rs.getLong(1), AttendanceStatus.valueOf(rs.getString(3)));
+        }, existingArgs.toArray());
+
+        // Rows an admin has overridden are left alone
+        Set<Long> overridden = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT a.student_id FROM attendance a WHERE a.date = ? AND a.user_type = 'STUDENT' AND a.override_by IS NOT NULL",
+                Long.class, Date.valueOf(date)));
+
+        List<StudentDayResult> updates = new ArrayList<>();
+        List<StudentDayResult> inserts = new ArrayList<>();
+        for (StudentDayResult r : results) {
+            if (overridden.contains(r.studentId)) continue;
+            if (existingIds.containsKey(r.studentId)) updates.add(r);
+            else inserts.add(r);
+        }
+
+        Time markTime = Time.valueOf(LocalTime.now().withNano(0));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(
+                "UPDATE attendance SET status = ?, mark_time = ?, remarks = ?, section_id = ?, branch = ? WHERE id = ?",
+                updates, BATCH_SIZE, (ps, r) -> {
+                    ps.setString(1, r.status.name());
+                    ps.setTime(2, markTime);
+                    ps.setString(3, "Morning: " + r.morningStatus);
+                    ps.setString(4, r.sectionId);
+                    ps.setString(5, r.branch);
+                    ps.setLong(6, existingIds.get(r.studentId));
+                });
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO attendance (user_identifier, user_type, student_id, section_id, branch, date, status, " +
+                "mark_time, remarks, created_at) VALUES (?, 'STUDENT', ?, ?, ?, ?, ?, ?, ?, ?)",
+                inserts, BATCH_SIZE, (ps, r) -> {
+                    ps.setString(1, r.registrationNumber);
+                    ps.setLong(2, r.studentId);
+                    ps.setString(3, r.sectionId);
+                    ps.setString(4, r.branch);
+                    ps.setDate(5, Date.valueOf(date));
+                    ps.setString(6, r.status.name());
+                    ps.setTime(7, markTime);
+                    ps.setString(8, "Morning: " + r.morningStatus);
+                    ps.setTimestamp(9, now);
+                });
+
+        // JDBC writes bypass the JPA listener; publish the change events once this partition commits
+        List<AttendanceChangeEvent> events = new ArrayList<>(updates.size() + inserts.size());
+        for (StudentDayResult r : updates) {
+            events.add(new AttendanceChangeEvent(Attendance.UserType.STUDENT, r.studentId, r.registrationNumber,
+                    r.sectionId, r.branch, date, existingStatus.get(r.studentId), r.status));
+        }
+        for (StudentDayResult r : inserts) {
+            events.add(new AttendanceChangeEvent(Attendance.UserType.STUDENT, r.studentId, r.registrationNumber,
+                    r.sectionId, r.branch, date, null, r.status));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.forEach(eventPublisher::publishEvent);
+            }
+        });
+
+        // Checkpoint: one processing log per student, committed with this partition
+        Timestamp processedAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO attendance_processing_logs (user_type, user_identifier, process_date, " +
+                "morning_fingerprint_status, logout_fingerprint_status, total_periods_scanned, final_status, " +
+                "processed_at, auto_processed, processing_notes) VALUES ('STUDENT', ?, ?, ?, ?, ?, ?, ?, true, ?)",
+                results, BATCH_SIZE, (ps, r) -> {
+                    ps.setString(1, r.registrationNumber);
+                    ps.setDate(2, Date.valueOf(date));
+                    ps.setString(3, "ON_TIME".equals(r.morningStatus) ? "ON_TIME" : "LATE");
+                    ps.setString(4, r.logoutCompleted ? "COMPLETED" : "MISSING");
+                    ps.setInt(5, r.periods);
+                    ps.setString(6, r.status.name());
+                    ps.setTimestamp(7, processedAt);
+                    ps.setString(8, NOTES_PREFIX + (r.sectionId != null ? r.sectionId : NO_SECTION)
+                            + (overridden.contains(r.studentId) ? " (override kept)" : ""));
+                });
+
+        // Cleanup: period logs of finalized students, then mark their morning logs processed
+        String sectionFilter = sectionId != null
+                ? " AND m.user_identifier IN (SELECT s.registration_number FROM students s WHERE COALESCE(s.section_id, '') = ?)" : "";
+        Object[] dayArgs = sectionId != null ? new Object[]{Date.valueOf(date), sectionId} : new Object[]{Date.valueOf(date)};
+
+        int deletedLogs = jdbcTemplate.update(
+                "DELETE p FROM period_attendance_logs p JOIN morning_fingerprint_logs m " +
+                "ON m.user_identifier = p.student_registration_number AND m.scan_date = p.scan_date " +
+                "WHERE m.scan_date = ? AND m.user_type = 'STUDENT' AND m.processed = false" + sectionFilter,
+                dayArgs);
+
+        int markedProcessed = jdbcTemplate.update(
+                "UPDATE morning_fingerprint_logs m SET m.processed = true " +
+                "WHERE m.scan_date = ? AND m.user_type = 'STUDENT' AND m.processed = false" + sectionFilter,
+                dayArgs);
+
+        logger.info(String.format("✅ Finalized %d students for %s%s (%d updated, %d inserted, %d period logs removed, %d morning logs processed)",
+                results.size(), date, sectionId != null ? " section " + sectionId : "",
+                updates.size(), inserts.size(), deletedLogs, markedProcessed));
+
+        return summary(date, sectionId, results, updates.size(), inserts.size(), started);
+    }
+
+    /**
+     * Grouped period counts joined to the day's unprocessed morning check-ins.
+     */
+    public List<StudentDayResult> computeStudentStatuses(LocalDate date, String sectionId) {
+        String sql = "SELECT s.id, s.registration_number, s.section_id, s.branch, " +
+                "MIN(m.status) AS morning_status, COUNT(DISTINCT p.id) AS periods, " +
+                "MAX(m.logout_fingerprint_id IS NOT NULL) AS logout_completed " +
+                "FROM morning_fingerprint_logs m " +
+                "JOIN students s ON s.registration_number = m.user_identifier " +
+                "LEFT JOIN period_attendance_logs p ON p.student_registration_number = m.user_identifier " +
+                "AND p.scan_date = m.scan_date " +
+                "WHERE m.scan_date = ? AND m.user_type = 'STUDENT' AND m.processed = false" +
+                (sectionId != null ? " AND COALESCE(s.section_id, '') = ?" : "") +
+                " GROUP BY s.id, s.registration_number, s.section_id, s.branch";
+
+        Object[] args = sectionId != null ? new Object[]{Date.valueOf(date), sectionId} : new Object[]{Date.valueOf(date)};
+        return jdbcTemplate.query(sql, (rs, i) -> new StudentDayResult(
+                rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getString(5), rs.getInt(6), rs.getBoolean(7)), args);
+    }
+
+    private Map<String, Object> summary(LocalDate date, String sectionId, List<StudentDayResult> results,
+                                        int updated, int inserted, long started) {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (AttendanceStatus s : AttendanceStatus.values()) byStatus.put(s.name(), 0L);
+        for (StudentDayResult r : results) byStatus.merge(r.status.name(), 1L, Long::sum);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("date", date.toString());
+        summary.put("sectionId", sectionId);
+        summary.put("students", results.size());
+        summary.put("updated", updated);
+        summary.put("inserted", inserted);
+        summary.put("byStatus", byStatus);
+        summary.put("elapsedMs", System.currentTimeMillis() - started);
+        return summary;
+    }
+}
@@ -0,0 +1,274 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceChangeEvent;
+import com.rfid.tracker.dto.AttendanceDayStatus;
+import com.rfid.tracker.dto.AttendanceMonthGrid;
+import com.rfid.tracker.entity.Attendance;
+import com.rfid.tracker.entity.AttendanceStatus;
+import com.rfid.tracker.entity.Staff;
+import com.rfid.tracker.repository.AttendanceRepository;
+import com.rfid.tracker.repository.StaffRepository;
+import com.rfid.tracker.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * In-memory attendance matrix for month grids: one packed AtomicLongArray(2) per user-month,
+ * 3 bits per day (0 = no record, 7 = deleted, otherwise AttendanceStatus ordinal + 1), days 1-21
+ * in the first word and 22-31 in the second.
+ *
+ * Months are loaded per scope (a section's students or a branch's staff) from MySQL on first use
+ * and kept up to date from committed {@link AttendanceChangeEvent}s. Events are routed by the
+ * user's current section (students.section_id) or branch (staff.branch), the same keys as the
+ * loader queries, not by the attendance row's own section or branch. Loading a scope records its
+ * roster in memory first, so routing an event is a map lookup; users outside every loaded scope
+ * are skipped. Writes overwrite a day and deletes mark it deleted; loading only fills days that
+ * are still empty, so a write or delete committed while a scope is loading is never lost. Scopes
+ * idle for app.matrix.idle-minutes are dropped.
+ */
+@Service
+public class AttendanceMatrix {
+
+    private static final Logger logger = Logger.getLogger(AttendanceMatrix.class.getName());
+
+    private static final int BITS_PER_DAY = 3;
+    private static final int DAYS_PER_WORD = 21;
+    private static final long DAY_MASK = (1L << BITS_PER_DAY) - 1;
+    private static final AttendanceStatus[] STATUSES = AttendanceStatus.values();
+    // Reads as "no record", but keeps the loader from filling the day back in
+    private static final long DELETED = DAY_MASK;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Value("${app.matrix.idle-minutes:120}")
+    private long idleMinutes;
+
+    private final ConcurrentHashMap<String, MonthScope> scopes = new ConcurrentHashMap<>();
+
+    // Rosters of loaded scopes: student id -> current section, staff id -> branch key part
+    private final ConcurrentHashMap<Long, String> studentSections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> staffBranches = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * One month of one section (students, keyed by student id) or branch (staff, keyed by staff id).
+     */
+    public static final class MonthScope {
+        private final YearMonth month;
+        private final ConcurrentHashMap<String, AtomicLongArray> users = new ConcurrentHashMap<>();
+        private volatile boolean loaded;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        MonthScope(YearMonth month) {
+            this.month = month;
+        }
+
+        public YearMonth getMonth() { return month; }
+
+        public AttendanceStatus statusOn(String user, int day) {
+            AtomicLongArray cells = users.get(user);
+            if (cells == null) return null;
+            int code = (int) ((cells.get(word(day)) >>> shift(day)) & DAY_MASK);
+            return code == 0 || code == DELETED ? null : STATUSES[code - 1];
+        }
+
+        /**
+         * Short codes per day ('-' for no record), the same layout as {@link AttendanceMonthGrid.Row#getDays()}.
+         */
+        public char[] days(String user) {
+            char[] days = new char[month.lengthOfMonth()];
+            for (int day = 1; day <= days.length; day++) {
+                AttendanceStatus status = statusOn(user, day);
+                days[day - 1] = status == null ? AttendanceMonthGrid.NO_RECORD : status.getShortCode().charAt(0);
+            }
+            return days;
+        }
+
+        public int size() {
+            return users.size();
+        }
+
+        void set(String user, int day, AttendanceStatus status, boolean onlyIfEmpty) {
+            put(user, day, status.ordinal() + 1L, onlyIfEmpty);
+        }
+
+        void clear(String user, int day) {
+            put(user, day, DELETED, false);
+        }
+
+        private void put(String user, int day, long code, boolean onlyIfEmpty) {
+            AtomicLongArray cells = users.computeIfAbsent(user, k -> new AtomicLongArray(2));
+            int word = word(day);
+            int shift = shift(day);
+            while (true) {
+                long current = cells.get(word);
+                if (onlyIfEmpty && ((current >>> shift) & DAY_MASK) != 0) return;
+                long next = (current & ~(DAY_MASK << shift)) | (code << shift);
+                if (cells.compareAndSet(word, current, next)) return;
+            }
+        }
+
+        private static int word(int day) {
+            return (day - 1) / DAYS_PER_WORD;
+        }
+
+        private static int shift(int day) {
+            return ((day - 1) % DAYS_PER_WORD) * BITS_PER_DAY;
+        }
+    }
+
+    // ========== READS ==========
+
+    public MonthScope section(String sectionId, YearMonth month) {
+        MonthScope scope = scope(sectionKey(sectionId, month), month);
+        ensureLoaded(scope, () -> {
+            for (Object[] r : studentRepository.findRosterBySectionId(sectionId)) {
+                studentSections.put(((Number) r[0]).longValue(), sectionId);
+            }
+            for (Object[] r : attendanceRepository.findSectionMonthStatuses(sectionId, month.atDay(1), month.atEndOfMonth())) {
+                if (r[1] != null && r[2] != null) {
+                    scope.set(String.valueOf(r[0]), ((LocalDate) r[1]).getDayOfMonth(), (AttendanceStatus) r[2], true);
+                }
+            }
+        });
+        return scope;
+    }
+
+    public MonthScope branchStaff(String branch, YearMonth month) {
+        MonthScope scope = scope(branchKey(branch, month), month);
+        ensureLoaded(scope, () -> {
+            for (Staff staff : staffRepository.findByBranchIgnoreCase(branch.trim())) {
+                if (staff.getStaffId() != null && staff.getBranch() != null) {
+                    staffBranches.put(staff.getStaffId(), staff.getBranch());
+                }
+            }
+            for (AttendanceDayStatus r : attendanceRepository.findStaffDayStatusesByBranchAndDateRange(
+                    branch.trim(), month.atDay(1), month.atEndOfMonth(), Attendance.UserType.STAFF)) {
+                if (r.getDate() != null && r.getStatus() != null) {
+                    scope.set(r.getUserIdentifier(), r.getDate().getDayOfMonth(), r.getStatus(), true);
+                }
+            }
+        });
+        return scope;
+    }
+
+    // ========== WRITES ==========
+
+    @EventListener
+    public void onAttendanceChange(AttendanceChangeEvent event) {
+        if (event.getDate() == null || (event.getStatus() == null && !event.isDeletedRow())) return;
+        if (event.getUserType() == Attendance.UserType.STAFF) {
+            recordStaff(event.getUserIdentifier(), event.getDate(), event.getStatus());
+        } else if (event.getStudentId() != null) {
+            recordStudent(event.getStudentId(), event.getDate(), event.getStatus());
+        }
+    }
+
+    /**
+     * Record a student's day (null status = row deleted) in the scope of the student's current section.
+     */
+    public void recordStudent(long studentId, LocalDate date, AttendanceStatus status) {
+        String sectionId = studentSections.get(studentId);
+        if (sectionId == null) return;   // in no loaded section
+        update(sectionKey(sectionId, YearMonth.from(date)), String.valueOf(studentId), date, status);
+    }
+
+    /**
+     * Record a staff member's day (null status = row deleted) in the scope of the staff member's branch.
+     */
+    public void recordStaff(String staffId, LocalDate date, AttendanceStatus status) {
+        String branch = staffId != null ? staffBranches.get(staffId) : null;
+        if (branch == null) return;   // in no loaded branch
+        update(branchKey(branch, YearMonth.from(date)), staffId, date, status);
+    }
+
+    // Only scopes somebody has looked at are kept current; the rest load from MySQL when needed
+    private void update(String key, String user, LocalDate date, AttendanceStatus status) {
+        MonthScope scope = scopes.get(key);
+        if (scope != null) {
+            if (status != null) {
+                scope.set(user, date.getDayOfMonth(), status, false);
+            } else {
+                scope.clear(user, date.getDayOfMonth());
+            }
+            writes.increment();
+        }
+    }
+
+    // ========== HOUSEKEEPING ==========
+
+    @Scheduled(fixedDelay = 600000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000L;
+        int before = scopes.size();
+        scopes.values().removeIf(scope -> scope.loaded && scope.lastAccess < cutoff);
+        if (scopes.size() < before) {
+            logger.info("🧹 Attendance matrix dropped " + (before - scopes.size()) + " idle month scopes");
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long users = scopes.values().stream().mapToLong(MonthScope::size).sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("scopes", scopes.size());
+        stats.put("userMonths", users);
+        stats.put("rosterStudents", studentSections.size());
+        stats.put("rosterStaff", staffBranches.size());
+        stats.put("approxBytes", users * (16 + 2 * Long.BYTES));
+        stats.put("loads", loads.sum());
+        stats.put("writes", writes.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    private MonthScope scope(String key, YearMonth month) {
+        MonthScope scope = scopes.computeIfAbsent(key, k -> new MonthScope(month));
+        scope.lastAccess = System.currentTimeMillis();
+        return scope;
+    }
+
+    // The scope is registered before loading, so writes that commit meanwhile land in it too
+    private void ensureLoaded(MonthScope scope, Runnable loader) {
+        if (scope.loaded) return;
+        synchronized (scope) {
+            if (!scope.loaded) {
+                loader.run();
+                scope.loaded = true;
+                loads.increment();
+            }
+        }
+    }
+
+    private static final String SECTION_PREFIX = "SECTION|";
+
+    private static String sectionKey(String sectionId, YearMonth month) {
+        return SECTION_PREFIX + sectionId + "|" + month;
+    }
+
+    private static String branchKey(String branch, YearMonth month) {
+        return "BRANCH|" + branch.trim().toLowerCase(Locale.ENGLISH) + "|" + month;
+    }
+}
@@ -2,17 +2,15 @@ package com.rfid.tracker.service;
 
 import com.rfid.tracker.dto.AttendanceMarkRequest;
 import com.rfid.tracker.dto.AttendanceBatchRequest;
+import com.rfid.tracker.dto.AttendanceMonthGrid;
+import com.rfid.tracker.dto.CardOwner;
 import com.rfid.tracker.entity.*;
 import com.rfid.tracker.repository.*;
-import com.rfid.tracker.util.CodeGenerationUtil;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -59,10 +57,32 @@ public class AttendanceService {
     private VerificationCodeRepository verificationCodeRepository;
 
     @Autowired
-    private RfidCardRepository rfidCardRepository;
+    private SectionCodeChannel sectionCodeChannel;
 
     @Autowired
-    private TimetableRepository timetableRepository;
+    private VerificationCodeRegistry verificationCodeRegistry;
+
+    @Autowired
+    private CodeEntryPipeline codeEntryPipeline;
+
+    @Autowired
+    private RfidCardResolutionCache rfidCardResolutionCache;
+
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @Autowired
+    private TimeSlotTable timeSlotTable;
+
+    @Autowired
+    private TimetableIndex timetableIndex;
+
+    @Autowired
+    private AttendanceMatrix attendanceMatrix;
+
 
     @Autowired
     private StaffLateAlertRepository staffLateAlertRepository;
@@ -70,6 +90,9 @@ public class AttendanceService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private DailyStaffPresence dailyStaffPresence;
+
     @Value("${app.staff.late.threshold:15}")
     private int staffLateThreshold;
 
@@ -180,16 +203,12 @@ public class AttendanceService {
 
     /**
      * ✅ CONDITION A: Check if Morning Fingerprint exists
-     * Returns TRUE if staff has at least one morning fingerprint scan
+     * Returns TRUE if staff has at least one morning fingerprint scan (answered from DailyStaffPresence)
      */
     private boolean hasMorningFingerprint(String staffId, LocalDate date) {
         try {
-            List<MorningFingerprintLog> logs = morningFingerprintLogRepository
-                    .findByUserIdentifierAndScanDate(staffId, date);
-            
-            boolean exists = !logs.isEmpty();
-            System.out.println("   🔎 Query: Morning fingerprint logs for " + staffId + " on " + date);
-            System.out.println("   📊 Result: " + logs.size() + " log(s) found");
+            boolean exists = dailyStaffPresence.hasMorningScan(staffId, date);
+            System.out.println("   🔎 Presence: Morning fingerprint for " + staffId + " on " + date + " → " + exists);
             
             return exists;
         } catch (Exception e) {
@@ -200,16 +219,12 @@ public class AttendanceService {
 
     /**
      * ✅ CONDITION B: Check if Staff Entry Log exists
-     * Returns TRUE if staff has at least one entry log (RFID scan for a class)
+     * Returns TRUE if staff has at least one entry log (RFID scan for a class), answered from DailyStaffPresence
      */
     private boolean hasStaffEntryLog(String staffId, LocalDate date) {
         try {
-            List<StaffEntryLog> logs = staffEntryLogRepository
-                    .findByStaffIdNumberAndEntryDate(staffId, date);
-            
-            boolean exists = !logs.isEmpty();
-            System.out.println("   🔎 Query: Staff entry logs for " + staffId + " on " + date);
-            System.out.println("   📊 Result: " + logs.size() + " log(s) found");
+            boolean exists = dailyStaffPresence.hasEntry(staffId, date);
+            System.out.println("   🔎 Presence: Staff entry logs for " + staffId + " on " + date + " → " + exists);
             
             return exists;
         } catch (Exception e) {
@@ -285,38 +300,41 @@ public class AttendanceService {
         try {
             System.out.println("🔄 [RFID] Processing RFID scan: " + cardUid + " at " + scanTime);
 
-            // Step 1: Extract user ID from RFID card UID
-            Long staffUserId = extractUserIdFromRfidCard(cardUid);
-            if (staffUserId == null) {
+            // Step 1: Resolve the card owner (cached, falls back to MySQL on a miss)
+            Optional<CardOwner> ownerOpt = rfidCardResolutionCache.resolve(cardUid);
+            if (ownerOpt.isEmpty()) {
                 System.out.println("❌ [RFID] RFID card not registered: " + cardUid);
                 response.put("status", "ERROR");
                 response.put("message", "RFID card not registered");
                 return ResponseEntity.status(400).body(response);
             }
 
-            // Step 2: Get Staff from user_id
-            Optional<Staff> staffOpt = staffRepository.findById(staffUserId);
-            if (staffOpt.isEmpty()) {
-                System.out.println("❌ [RFID] Staff not found for user_id: " + staffUserId);
+            // Step 2: Only staff cards open a class
+            CardOwner staff = ownerOpt.get();
+            if (!staff.isStaff()) {
+                System.out.println("❌ [RFID] Staff not found for user_id: " + staff.getUserId());
                 response.put("status", "ERROR");
                 response.put("message", "Staff not found");
                 return ResponseEntity.status(404).body(response);
             }
 
-            Staff staff = staffOpt.get();
-            String staffId = staff.getStaffId();
+            String staffId = staff.getIdentifier();
             System.out.println("✅ [RFID] Staff found: " + staffId + " (" + staff.getName() + ")");
 
             // Step 3: Find Timetable by staff ID and day of week
             String dayOfWeek = scanDate.getDayOfWeek()
                     .getDisplayName(java.time.format.TextStyle.FULL, java.util.Locale.ENGLISH);
-            List<Timetable> timetableList = timetableRepository.findByStaffIdAndDayOfWeek(staffId, dayOfWeek);
+            // ✅ Constant-time lookup in the compiled time slot table, verified against the row's own times
+            Optional<Timetable> timetableOpt = Optional.ofNullable(
+                            timeSlotTable.staffEntryAt(staffId, scanDate.getDayOfWeek(), scanTime))
+                    .filter(t -> isWithinSchedule(t, scanTime));
 
-            Optional<Timetable> timetableOpt = timetableList.stream()
-                    .filter(t -> t.getScheduledStartTime() != null && t.getScheduledEndTime() != null)
-                    .filter(t -> !scanTime.isBefore(t.getScheduledStartTime())
-                            && scanTime.isBefore(t.getScheduledEndTime()))
-                    .findFirst();
+            if (timetableOpt.isEmpty()) {
+                // Rows the slot table could not place (no parsable times) are checked on the full day
+                timetableOpt = timetableIndex.findByStaffAndDay(staffId, scanDate.getDayOfWeek()).stream()
+                        .filter(t -> isWithinSchedule(t, scanTime))
+                        .findFirst();
+            }
 
             if (timetableOpt.isEmpty()) {
                 System.out.println("⚠️ [RFID] No timetable found for staff at this time");
@@ -361,7 +379,7 @@ public class AttendanceService {
                 try {
                     emailService.sendStaffAttendanceCodeEmail(
                             staff.getName(),
-                            staff.getStaffId(),
+                            staff.getIdentifier(),
                             staff.getEmail(),
                             timetable.getSubject(),
                             timetable.getSectionId(),
@@ -393,27 +411,10 @@ public class AttendanceService {
         }
     }
 
-    /**
-     * ✅ Helper: Extract user_id from RFID card UID
-     */
-    private Long extractUserIdFromRfidCard(String cardUid) {
-        try {
-            System.out.println("🔍 [RFID] Looking up card UID: " + cardUid);
-            Optional<RfidCard> cardOpt = rfidCardRepository.findByCardUidAndIsActiveTrue(cardUid);
-            if (cardOpt.isEmpty()) {
-                System.out.println("❌ [RFID] Card not found in database: " + cardUid);
-                return null;
-            }
-
-            RfidCard card = cardOpt.get();
-            Long userId = card.getUserId();
-            System.out.println("✅ [RFID] Card found: " + cardUid + " → User ID = " + userId);
-            return userId;
-        } catch (Exception e) {
-            System.err.println("❌ Error extracting user ID from RFID: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+    private boolean isWithinSchedule(Timetable t, LocalTime scanTime) {
+        return t.getScheduledStartTime() != null && t.getScheduledEndTime() != null
+                && !scanTime.isBefore(t.getScheduledStartTime())
+                && scanTime.isBefore(t.getScheduledEndTime());
     }
 
     /**
@@ -442,6 +443,7 @@ public class AttendanceService {
     @Transactional
     public String generateVerificationCodeForPeriod(String staffId, String className, String sectionId,
                                                      LocalTime classStartTime, Long timetableId, LocalTime currentScanTime) {
+        String newCode = null;
         try {
             LocalTime now = currentScanTime;
             LocalTime t10 = classStartTime.plusMinutes(10);
@@ -467,7 +469,8 @@ public class AttendanceService {
                 return existingCode.getCode();
             }
 
-            String newCode = CodeGenerationUtil.generateUniqueCode();
+            // Reserved among live codes, so the insert cannot hit the unique constraint
+            newCode = verificationCodeRegistry.reserveNewCode();
             LocalDateTime validUntil = LocalDateTime.of(LocalDate.now(), classStartTime).plusMinutes(30);
             boolean isLate = now.isAfter(t10);
 
@@ -490,77 +493,26 @@ public class AttendanceService {
         } catch (Exception e) {
             System.err.println("❌ [CODE_GEN] Error generating code: " + e.getMessage());
             e.printStackTrace();
+            verificationCodeRegistry.releaseReservation(newCode);
             return null;
         }
     }
 
     /**
      * ✅ Verify code entered by student and mark attendance
+     * Handled by the section's stripe in CodeEntryPipeline (batched with the rest of the burst)
      */
-    @Transactional
     public Map<String, Object> verifyStudentCodeEntry(String studentRegNo, String code,
                                                        String sectionId, LocalDate date,
                                                        String timeSlot) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            System.out.println("🔍 [CODE_VERIFY] Verifying code: " + code + " for student: " + studentRegNo);
-
-            Optional<VerificationCode> codeOpt = verificationCodeRepository.findByCode(code);
-            if (codeOpt.isEmpty()) {
-                System.out.println("❌ [CODE_VERIFY] Code not found: " + code);
-                response.put("success", false);
-                response.put("message", "Invalid verification code");
-                return response;
-            }
-
-            VerificationCode verificationCode = codeOpt.get();
-            if (verificationCode.isExpired()) {
-                System.out.println("❌ [CODE_VERIFY] Code expired: " + code);
-                response.put("success", false);
-                response.put("message", "Verification code has expired");
-                return response;
-            }
-
-            List<PeriodAttendanceLog> existingLogs = periodAttendanceLogRepository
-                    .findByStudentRegistrationNumberAndScanDate(studentRegNo, date);
-
-            for (PeriodAttendanceLog log : existingLogs) {
-                if (code.equals(log.getVerificationCode())) {
-                    System.out.println("⚠️ [CODE_VERIFY] Student already entered this code");
-                    response.put("success", false);
-                    response.put("message", "You have already marked attendance for this period");
-                    return response;
-                }
-            }
-
-            PeriodAttendanceLog log = new PeriodAttendanceLog();
-            log.setStudentRegistrationNumber(studentRegNo);
-            log.setSectionId(sectionId);
-            log.setScanDate(date);
-            log.setScanTime(LocalTime.now());
-            log.setTimeSlot(timeSlot);
-            log.setVerificationCode(code);
-            log.setCodeVerificationTimestamp(LocalDateTime.now());
-            log.setVerifiedVia("CODE");
-            log.setRoomNumber("CODE_ENTRY");
-
-            PeriodAttendanceLog savedLog = periodAttendanceLogRepository.save(log);
-            verificationCode.setCodeEnteredCount(verificationCode.getCodeEnteredCount() + 1);
-            verificationCodeRepository.save(verificationCode);
-
+        System.out.println("🔍 [CODE_VERIFY] Verifying code: " + code + " for student: " + studentRegNo);
+        Map<String, Object> response = codeEntryPipeline.submit(studentRegNo, code, sectionId, date, timeSlot);
+        if (Boolean.TRUE.equals(response.get("success"))) {
             System.out.println("✅ [CODE_VERIFY] Attendance marked for student: " + studentRegNo);
-            response.put("success", true);
-            response.put("message", "Attendance marked successfully via code entry");
-            response.put("log_id", savedLog.getId());
-            return response;
-
-        } catch (Exception e) {
-            System.err.println("❌ [CODE_VERIFY] Error: " + e.getMessage());
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("message", "Error verifying code: " + e.getMessage());
-            return response;
+        } else {
+            System.out.println("❌ [CODE_VERIFY] " + response.get("message") + " (" + studentRegNo + ")");
         }
+        return response;
     }
 
     /**
@@ -568,7 +520,7 @@ public class AttendanceService {
      */
     public boolean isCodeValid(String code) {
         try {
-            return verificationCodeRepository.isCodeValidAndNotExpired(code);
+            return verificationCodeRegistry.isValid(code);
         } catch (Exception e) {
             System.err.println("❌ Error checking code validity: " + e.getMessage());
             return false;
@@ -576,15 +528,11 @@ public class AttendanceService {
     }
 
     /**
-     * ✅ Get active code for section
+     * ✅ Get active code for section (served from SectionCodeChannel's in-memory state)
      */
     public Optional<VerificationCode> getActiveCodeForSection(String sectionId) {
         try {
-            List<VerificationCode> activeCodes = verificationCodeRepository.findActiveCodesBySection(sectionId);
-            if (!activeCodes.isEmpty()) {
-                return Optional.of(activeCodes.get(0));
-            }
-            return Optional.empty();
+            return sectionCodeChannel.current(sectionId);
         } catch (Exception e) {
             System.err.println("❌ Error fetching active code: " + e.getMessage());
             return Optional.empty();
@@ -637,6 +585,7 @@ public class AttendanceService {
 
         saveMainStaffAttendance(staff, date, status);
         staffEntryLogRepository.deleteByStaffIdNumberAndEntryDate(staffId, date);
+        dailyStaffPresence.clearEntries(staffId, date);
         System.out.println("🧹 CLEARED Staff Entry Logs (Room Scans) for " + staffId);
 
         return status.toString();
@@ -677,15 +626,15 @@ public class AttendanceService {
 
         Student student = studentOpt.get();
 
-        List<MorningFingerprintLog> morningLogs = morningFingerprintLogRepository
-                .findByUserIdentifierAndScanDate(regNo, date);
-
-        boolean hasMorningFP = !morningLogs.isEmpty();
-
-        List<PeriodAttendanceLog> periodLogs = periodAttendanceLogRepository
-                .findByStudentRegistrationNumberAndScanDate(regNo, date);
+        // ✅ O(1) reads from the running tally instead of loading the day's logs
+        DailyAttendanceTally.Tally tally = dailyAttendanceTally.get(MorningFingerprintLog.UserType.STUDENT, regNo, date);
+        boolean hasMorningFP = tally.hasMorning();
+        int periodCount = tally.getPeriodCount();
 
-        int periodCount = periodLogs.size();
+        // Period logs are cleaned up below, so every accepted scan must be in MySQL first
+        if (!periodLogWriteBehindQueue.flushNow()) {
+            throw new RuntimeException("Period scans are still being saved, please scan again");
+        }
 
         System.out.println("📊 STATS -> Morning FP: " + hasMorningFP + " | Period Count: " + periodCount);
 
@@ -720,8 +669,8 @@ public class AttendanceService {
         attendance.setUserType(Attendance.UserType.STUDENT);
         attendance.setRemarks("Auto-Calculated: " + status);
 
+        // Semester summary and matrix are refreshed after commit by AttendanceWriteListener
         attendanceRepository.save(attendance);
-        updateAttendanceSummary(student);
         System.out.println("✅ FINAL ATTENDANCE SAVED: " + status);
     }
 
@@ -876,50 +825,37 @@ public class AttendanceService {
         return attendances;
     }
 
-    public Map<String, Object> getStudentAttendanceByMonth(String sectionId, int year, int month) {
-        List<Attendance> attendances = attendanceRepository.findBySectionAndMonth(sectionId, year, month);
+    /**
+     * Month grid for a section: the roster from MySQL, the days from the in-memory attendance matrix.
+     */
+    public AttendanceMonthGrid getSectionMonthGrid(String sectionId, int year, int month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        AttendanceMonthGrid grid = new AttendanceMonthGrid(sectionId, year, month, yearMonth.lengthOfMonth());
+        AttendanceMatrix.MonthScope days = attendanceMatrix.section(sectionId, yearMonth);
+
+        for (Object[] r : studentRepository.findRosterBySectionId(sectionId)) {
+            AttendanceMonthGrid.Row row = new AttendanceMonthGrid.Row((Long) r[0], (String) r[1], (String) r[2], (String) r[3],
+                    grid.getDaysInMonth());
+            String studentKey = String.valueOf(r[0]);
+            for (int day = 1; day <= grid.getDaysInMonth(); day++) {
+                AttendanceStatus status = days.statusOn(studentKey, day);
+                if (status != null) {
+                    row.mark(day, status);
+                }
+            }
+            grid.getRows().add(row);
+        }
+        return grid;
+    }
 
+    public Map<String, Object> getStudentAttendanceByMonth(String sectionId, int year, int month) {
         Optional<Section> sectionOpt = sectionRepository.findBySectionCode(sectionId);
         if (sectionOpt.isEmpty()) {
             throw new RuntimeException("Section not found: " + sectionId);
         }
 
         Section section = sectionOpt.get();
-        List<Student> students = studentRepository.findBySectionId(sectionId);
-        YearMonth yearMonth = YearMonth.of(year, month);
-        int daysInMonth = yearMonth.lengthOfMonth();
-
-        List<Map<String, Object>> attendanceGrid = new ArrayList<>();
-
-        for (Student student : students) {
-            Map<String, Object> studentRow = new HashMap<>();
-            studentRow.put("studentId", student.getId());
-            studentRow.put("name", student.getName());
-            studentRow.put("registrationNumber", student.getRegistrationNumber());
-            studentRow.put("section", student.getSection());
-
-            Map<Integer, AttendanceStatus> dailyAttendance = new HashMap<>();
-            int presentCount = 0, lateCount = 0, absentCount = 0;
-
-            for (Attendance att : attendances) {
-                if (att.getStudentId() != null && att.getStudentId().equals(student.getId())) {
-                    int day = att.getDate().getDayOfMonth();
-                    dailyAttendance.put(day, att.getStatus());
-
-                    switch (att.getStatus()) {
-                        case PRESENT: presentCount++; break;
-                        case LATE: lateCount++; break;
-                        case ABSENT: absentCount++; break;
-                    }
-                }
-            }
-
-            studentRow.put("attendance", dailyAttendance);
-            studentRow.put("presentCount", presentCount);
-            studentRow.put("lateCount", lateCount);
-            studentRow.put("absentCount", absentCount);
-            attendanceGrid.add(studentRow);
-        }
+        AttendanceMonthGrid grid = getSectionMonthGrid(sectionId, year, month);
 
         Map<String, Object> result = new HashMap<>();
         result.put("section", section);
@@ -927,8 +863,8 @@ public class AttendanceService {
         result.put("sectionName", section.getDisplayName());
         result.put("year", year);
         result.put("month", month);
-        result.put("daysInMonth", daysInMonth);
-        result.put("attendanceGrid", attendanceGrid);
+        result.put("daysInMonth", grid.getDaysInMonth());
+        result.put("attendanceGrid", grid);
 
         return result;
     }
@@ -980,202 +916,4 @@ public class AttendanceService {
         return result;
     }
 
-    public ByteArrayOutputStream exportStudentAttendanceToExcel(String sectionId, int year, int month) throws Exception {
-        Map<String, Object> data = getStudentAttendanceByMonth(sectionId, year, month);
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Student Attendance");
-
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle presentStyle = createStatusStyle(workbook, IndexedColors.GREEN);
-        CellStyle lateStyle = createStatusStyle(workbook, IndexedColors.YELLOW);
-        CellStyle absentStyle = createStatusStyle(workbook, IndexedColors.RED);
-
-        int daysInMonth = (int) data.get("daysInMonth");
-        List<Map<String, Object>> grid = (List<Map<String, Object>>) data.get("attendanceGrid");
-
-        Row headerRow = sheet.createRow(0);
-        createStyledCell(headerRow, 0, "Reg Number", headerStyle);
-        createStyledCell(headerRow, 1, "Student Name", headerStyle);
-        createStyledCell(headerRow, 2, "Section", headerStyle);
-
-        for (int day = 1; day <= daysInMonth; day++) {
-            createStyledCell(headerRow, day + 2, String.valueOf(day), headerStyle);
-        }
-
-        createStyledCell(headerRow, daysInMonth + 3, "P", headerStyle);
-        createStyledCell(headerRow, daysInMonth + 4, "L", headerStyle);
-        createStyledCell(headerRow, daysInMonth + 5, "A", headerStyle);
-
-        int rowNum = 1;
-        for (Map<String, Object> studentRow : grid) {
-            Row row = sheet.createRow(rowNum);
-            row.createCell(0).setCellValue((String) studentRow.get("registrationNumber"));
-            row.createCell(1).setCellValue((String) studentRow.get("name"));
-            row.createCell(2).setCellValue((String) studentRow.get("section"));
-
-            Map<Integer, AttendanceStatus> attendance = (Map<Integer, AttendanceStatus>) studentRow.get("attendance");
-
-            for (int day = 1; day <= daysInMonth; day++) {
-                AttendanceStatus status = attendance.get(day);
-                Cell cell = row.createCell(day + 2);
-
-                if (status == null) {
-                    cell.setCellValue("-");
-                } else {
-                    cell.setCellValue(status.getShortCode());
-                    switch (status) {
-                        case PRESENT: cell.setCellStyle(presentStyle); break;
-                        case LATE: cell.setCellStyle(lateStyle); break;
-                        case ABSENT: cell.setCellStyle(absentStyle); break;
-                    }
-                }
-            }
-
-            row.createCell(daysInMonth + 3).setCellValue((Integer) studentRow.get("presentCount"));
-            row.createCell(daysInMonth + 4).setCellValue((Integer) studentRow.get("lateCount"));
-            row.createCell(daysInMonth + 5).setCellValue((Integer) studentRow.get("absentCount"));
-            rowNum++;
-        }
-
-        for (int i = 0; i < daysInMonth + 5; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-
-        return outputStream;
-    }
-
-    public ByteArrayOutputStream exportStaffAttendanceToExcel(String branch, int year, int month) throws Exception {
-        Map<String, Object> data = getStaffAttendanceByMonth(branch, year, month);
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Staff Attendance");
-
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle presentStyle = createStatusStyle(workbook, IndexedColors.GREEN);
-        CellStyle lateStyle = createStatusStyle(workbook, IndexedColors.YELLOW);
-        CellStyle absentStyle = createStatusStyle(workbook, IndexedColors.RED);
-
-        int daysInMonth = (int) data.get("daysInMonth");
-        List<Map<String, Object>> grid = (List<Map<String, Object>>) data.get("attendanceGrid");
-
-        Row headerRow = sheet.createRow(0);
-        createStyledCell(headerRow, 0, "Staff Name", headerStyle);
-        createStyledCell(headerRow, 1, "Email", headerStyle);
-
-        for (int day = 1; day <= daysInMonth; day++) {
-            createStyledCell(headerRow, day + 1, String.valueOf(day), headerStyle);
-        }
-
-        createStyledCell(headerRow, daysInMonth + 2, "P", headerStyle);
-        createStyledCell(headerRow, daysInMonth + 3, "L", headerStyle);
-        createStyledCell(headerRow, daysInMonth + 4, "A", headerStyle);
-
-        int rowNum = 1;
-        for (Map<String, Object> staffRow : grid) {
-            Row row = sheet.createRow(rowNum);
-            row.createCell(0).setCellValue((String) staffRow.get("name"));
-            row.createCell(1).setCellValue((String) staffRow.get("email"));
-
-            Map<Integer, AttendanceStatus> attendance = (Map<Integer, AttendanceStatus>) staffRow.get("attendance");
-
-            for (int day = 1; day <= daysInMonth; day++) {
-                AttendanceStatus status = attendance.get(day);
-                Cell cell = row.createCell(day + 1);
-
-                if (status == null) {
-                    cell.setCellValue("-");
-                } else {
-                    cell.setCellValue(status.getShortCode());
-                    switch (status) {
-                        case PRESENT: cell.setCellStyle(presentStyle); break;
-                        case LATE: cell.setCellStyle(lateStyle); break;
-                        case ABSENT: cell.setCellStyle(absentStyle); break;
-                    }
-                }
-            }
-
-            row.createCell(daysInMonth + 2).setCellValue((Integer) staffRow.get("presentCount"));
-            row.createCell(daysInMonth + 3).setCellValue((Integer) staffRow.get("lateCount"));
-            row.createCell(daysInMonth + 4).setCellValue((Integer) staffRow.get("absentCount"));
-            rowNum++;
-        }
-
-        for (int i = 0; i < daysInMonth + 4; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-
-        return outputStream;
-    }
-
-    private CellStyle createHeaderStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        font.setColor(IndexedColors.WHITE.getIndex());
-        style.setFont(font);
-        style.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        return style;
-    }
-
-    private CellStyle createStatusStyle(Workbook workbook, IndexedColors color) {
-        CellStyle style = workbook.createCellStyle();
-        style.setFillForegroundColor(color.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        return style;
-    }
-
-    private void createStyledCell(Row row, int column, String value, CellStyle style) {
-        Cell cell = row.createCell(column);
-        cell.setCellValue(value);
-        cell.setCellStyle(style);
-    }
-
-    private void updateAttendanceSummary(Student student) {
-        try {
-            String currentAcademicYear = "2024-2025";
-            Integer currentSemester = student.getSemester();
-            Long regulationId = student.getRegulationId() != null ? student.getRegulationId() : 1L;
-
-            Optional<SemesterConfig> semesterConfigOpt = semesterConfigRepository
-                    .findByAcademicYearAndRegulationIdAndYearAndSemester(
-                            currentAcademicYear, regulationId, student.getYear(), currentSemester);
-
-            if (semesterConfigOpt.isPresent()) {
-                SemesterConfig config = semesterConfigOpt.get();
-                LocalDate endDate = LocalDate.now().isAfter(config.getEndDate()) ? config.getEndDate() : LocalDate.now();
-
-                List<Attendance> records = attendanceRepository.findByStudentIdAndDateBetween(
-                        student.getId(), config.getStartDate(), endDate);
-
-                int total = records.size();
-                int attended = (int) records.stream().filter(a -> a.getStatus() == AttendanceStatus.PRESENT).count();
-
-                AttendanceSummary summary = attendanceSummaryRepository
-                        .findByStudentIdAndSemesterAndAcademicYear(student.getId(), currentSemester, currentAcademicYear)
-                        .orElse(new AttendanceSummary(student.getId(), currentSemester, currentAcademicYear));
-
-                summary.setTotalClasses(total);
-                summary.setAttendedClasses(attended);
-                summary.calculateAttendance();
-
-                attendanceSummaryRepository.save(summary);
-
-                student.setAttendanceStatus(summary.getStatus());
-                studentRepository.save(student);
-            }
-
-        } catch (Exception e) {
-            System.err.println("⚠️ Failed to update summary: " + e.getMessage());
-        }
-    }
 }
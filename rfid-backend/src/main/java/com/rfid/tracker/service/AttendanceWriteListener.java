@@ -0,0 +1,86 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceChangeEvent;
+import com.rfid.tracker.entity.Attendance;
+import com.rfid.tracker.entity.AttendanceStatus;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA listener on Attendance that turns every insert / update / delete into an
+ * {@link AttendanceChangeEvent} (previous and new status, null once deleted). Events of a
+ * transaction are collected and published once it has committed; consumers are
+ * {@link AttendanceMatrix}, {@link StudentSemesterSummaryService} and
+ * {@link DailyAttendanceRollupService}.
+ * This covers saveMainAttendance / saveMainStaffAttendance, manual and bulk marking and admin
+ * overrides; end-of-day JDBC batches publish their own events.
+ */
+@Component
+public class AttendanceWriteListener {
+
+    @Autowired
+    @Lazy
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    public void onLoad(Attendance attendance) {
+        attendance.setPersistedStatus(attendance.getStatus());
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Attendance attendance) {
+        AttendanceChangeEvent event = AttendanceChangeEvent.of(attendance, attendance.getPersistedStatus());
+        attendance.setPersistedStatus(attendance.getStatus());
+        publishAfterCommit(event);
+    }
+
+    @PostRemove
+    public void onDelete(Attendance attendance) {
+        AttendanceStatus previous = attendance.getPersistedStatus() != null
+                ? attendance.getPersistedStatus() : attendance.getStatus();
+        if (previous == null) {
+            return;
+        }
+        publishAfterCommit(AttendanceChangeEvent.deleted(attendance, previous));
+    }
+
+    private void publishAfterCommit(AttendanceChangeEvent event) {
+        if (eventPublisher == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(event);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<AttendanceChangeEvent> pending = (List<AttendanceChangeEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<AttendanceChangeEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AttendanceWriteListener.this);
+                    if (status == STATUS_COMMITTED) {
+                        events.forEach(eventPublisher::publishEvent);
+                    }
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+}
@@ -0,0 +1,61 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.RfidCard;
+import com.rfid.tracker.entity.Staff;
+import com.rfid.tracker.entity.Student;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on RfidCard, Student and Staff that keeps {@link RfidCardResolutionCache} in sync.
+ * Invalidation runs once the change has committed, so a concurrent miss cannot reload the old row
+ * after it. Hibernate creates it through Spring's bean container, so the cache is injected; if it
+ * is ever instantiated outside Spring the cache is null and the periodic re-warm takes over.
+ */
+@Component
+public class CardOwnerCacheListener {
+
+    @Autowired
+    @Lazy
+    private RfidCardResolutionCache rfidCardResolutionCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (rfidCardResolutionCache == null) {
+            return;
+        }
+        Runnable invalidate;
+        if (entity instanceof RfidCard card) {
+            Long cardId = card.getId();
+            String cardUid = card.getCardUid();
+            invalidate = () -> rfidCardResolutionCache.invalidateCard(cardId, cardUid);
+        } else if (entity instanceof Student student) {
+            Long studentId = student.getId();
+            invalidate = () -> rfidCardResolutionCache.invalidateUser(RfidCard.UserType.STUDENT, studentId);
+        } else if (entity instanceof Staff staff) {
+            Long staffId = staff.getId();
+            invalidate = () -> rfidCardResolutionCache.invalidateUser(RfidCard.UserType.STAFF, staffId);
+        } else {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate.run();
+                }
+            });
+        } else {
+            invalidate.run();
+        }
+    }
+}
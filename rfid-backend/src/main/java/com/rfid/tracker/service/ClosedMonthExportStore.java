@@ -0,0 +1,236 @@
+package com.rfid.tracker.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Pre-rendered student month workbooks for closed months (any month before the current one).
+ *
+ * A closed month rarely changes, so its workbook is rendered once and kept in
+ * app.export.archive-dir as {@code <section>_<yyyy-MM>_<version>.xlsx}. The version is a
+ * fingerprint of the section's attendance rows for the month (count and a checksum of
+ * id/date/status) and of its roster (count and a checksum of id/registration number/name). It is
+ * one aggregate query and is recomputed on every request, so any write (override, late marking,
+ * an EOD resume into a month that just closed, roster changes) makes the next request render
+ * again: a file can never be served for data it was not rendered from, even after a restart.
+ * Overrides additionally call {@link #invalidate} so the old file is dropped straight away
+ * instead of lingering on disk.
+ *
+ * Open months are never archived; callers stream those with {@link AttendanceExcelExporter}.
+ */
+@Service
+public class ClosedMonthExportStore {
+
+    private static final Logger logger = Logger.getLogger(ClosedMonthExportStore.class.getName());
+
+    private static final String FILE_SUFFIX = ".xlsx";
+    private static final String PART_SUFFIX = ".part";
+
+    @Autowired
+    private AttendanceExcelExporter attendanceExcelExporter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.export.archive-dir:./data/export-archive}")
+    private String archiveDir;
+
+    private Path archivePath;
+
+    // section|yyyy-MM -> last archived file; only served while its version matches MySQL
+    private final ConcurrentHashMap<String, ArchivedExport> current = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * One rendered workbook. The version doubles as the HTTP ETag.
+     */
+    public static final class ArchivedExport {
+        private final Path file;
+        private final String version;
+        private final long lastModified;
+        private final long size;
+
+        ArchivedExport(Path file, String version) throws IOException {
+            this.file = file;
+            this.version = version;
+            this.lastModified = Files.getLastModifiedTime(file).toMillis();
+            this.size = Files.size(file);
+        }
+
+        public Path getFile() { return file; }
+        public String getVersion() { return version; }
+        public String getETag() { return "\"" + version + "\""; }
+        public long getLastModified() { return lastModified; }
+        public long getSize() { return size; }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        archivePath = Paths.get(archiveDir);
+        Files.createDirectories(archivePath);
+        // Leftovers of renders interrupted by a shutdown
+        try (Stream<Path> files = Files.list(archivePath)) {
+            files.filter(p -> p.toString().endsWith(PART_SUFFIX)).forEach(ClosedMonthExportStore::deleteQuietly);
+        }
+    }
+
+    public static boolean isClosed(int year, int month) {
+        return YearMonth.of(year, month).isBefore(YearMonth.now());
+    }
+
+    /**
+     * Archived workbook for a closed month, rendering it first if there is none for the current data.
+     */
+    public ArchivedExport getStudentMonth(String sectionId, int year, int month) throws IOException {
+        YearMonth ym = YearMonth.of(year, month);
+        if (!ym.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException(ym + " is not closed yet");
+        }
+
+        String key = key(sectionId, ym);
+        String version = dataVersion(sectionId, ym);
+        ArchivedExport cached = current.get(key);
+        if (cached != null && cached.version.equals(version) && Files.exists(cached.file)) {
+            hits.increment();
+            return cached;
+        }
+
+        Path file = archivePath.resolve(fileStem(sectionId, ym) + "_" + version + FILE_SUFFIX);
+        if (!Files.exists(file)) {
+            render(sectionId, ym, file);
+        }
+        deleteOtherVersions(sectionId, ym, file);
+
+        ArchivedExport export = new ArchivedExport(file, version);
+        current.put(key, export);
+        return export;
+    }
+
+    public void copyTo(ArchivedExport export, OutputStream out) throws IOException {
+        Files.copy(export.file, out);
+        out.flush();
+    }
+
+    /**
+     * Drop the archived workbook of the section/month containing the date. Inside a transaction
+     * this happens after commit, so a concurrent render cannot re-archive the old data.
+     */
+    public void invalidate(String sectionId, LocalDate date) {
+        if (sectionId == null || date == null || !YearMonth.from(date).isBefore(YearMonth.now())) {
+            return;
+        }
+        Runnable drop = () -> {
+            YearMonth ym = YearMonth.from(date);
+            current.remove(key(sectionId, ym));
+            deleteOtherVersions(sectionId, ym, null);
+            invalidations.increment();
+            logger.info("🗑️ Archived export dropped for " + sectionId + " " + ym);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop.run();
+                }
+            });
+        } else {
+            drop.run();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("archived", current.size());
+        stats.put("hits", hits.sum());
+        stats.put("renders", renders.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    /**
+     * Fingerprint of exactly the rows the month grid is built from.
+     */
+    private String dataVersion(String sectionId, YearMonth ym) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT COUNT(a.id) AS row_count, " +
+                "COALESCE(SUM(CRC32(CONCAT_WS(':', a.id, a.date, a.status))), 0) AS checksum, " +
+                "(SELECT COUNT(*) FROM students WHERE section_id = ?) AS roster, " +
+                "(SELECT COALESCE(SUM(CRC32(CONCAT_WS(':', id, registration_number, name))), 0) " +
+                "FROM students WHERE section_id = ?) AS roster_checksum " +
+                "FROM attendance a JOIN students s ON s.id = a.student_id " +
+                "WHERE s.section_id = ? AND a.date BETWEEN ? AND ?",
+                sectionId, sectionId, sectionId, Date.valueOf(ym.atDay(1)), Date.valueOf(ym.atEndOfMonth()));
+        return String.format("%x-%x-%x-%x", asLong(row.get("row_count")), asLong(row.get("checksum")),
+                asLong(row.get("roster")), asLong(row.get("roster_checksum")));
+    }
+
+    private void render(String sectionId, YearMonth ym, Path file) throws IOException {
+        Path part = archivePath.resolve(file.getFileName() + "." + UUID.randomUUID() + PART_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(part)) {
+            attendanceExcelExporter.writeStudentMonth(sectionId, ym.getYear(), ym.getMonthValue(), out);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(part);
+            throw e;
+        }
+        // Concurrent renders of the same version produce identical content, the last move wins
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        renders.increment();
+        logger.info("✅ Archived export rendered: " + file.getFileName());
+    }
+
+    private void deleteOtherVersions(String sectionId, YearMonth ym, Path keep) {
+        String prefix = fileStem(sectionId, ym) + "_";
+        try (Stream<Path> files = Files.list(archivePath)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(FILE_SUFFIX) && !p.equals(keep);
+            }).forEach(ClosedMonthExportStore::deleteQuietly);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "⚠️ Could not list " + archivePath, e);
+        }
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number n ? n.longValue() : Long.parseLong(String.valueOf(value));
+    }
+
+    private static String fileStem(String sectionId, YearMonth ym) {
+        return sectionId.replaceAll("[^A-Za-z0-9-]", "_") + "_" + ym;
+    }
+
+    private static String key(String sectionId, YearMonth ym) {
+        return sectionId + "|" + ym;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Retried on the next render of that month
+        }
+    }
+}
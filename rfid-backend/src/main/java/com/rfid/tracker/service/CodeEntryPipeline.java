@@ -0,0 +1,290 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.Timetable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Striped pipeline for student code entries (/api/attendance/verify-code, /api/students/enter-code).
+ *
+ * When a code is read out, a whole section submits within seconds. Submissions are partitioned
+ * by section onto app.code-entry.stripes single-threaded workers. A worker drains everything
+ * queued for it, resolves each code and its timetable slot once for the whole burst, claims the
+ * entries in {@link VerificationCodeRegistry} (validity and duplicates in memory) and inserts the
+ * accepted period logs in one JDBC batch and one transaction. If that batch fails, the rows are
+ * inserted one by one so only the failing submission is rejected. The request thread waits for
+ * its own result, so the endpoints keep their synchronous response.
+ *
+ * The period is the one of the code's timetable row; a different slot in the request is rejected.
+ *
+ * A full stripe queue answers "busy" straight away instead of letting requests pile up.
+ */
+@Service
+public class CodeEntryPipeline {
+
+    private static final Logger logger = Logger.getLogger(CodeEntryPipeline.class.getName());
+
+    private static final String INSERT_SQL =
+            "INSERT INTO period_attendance_logs (student_registration_number, section_id, timetable_id, time_slot, " +
+            "scan_date, scan_time, scan_datetime, room_number, day_of_week, verification_code, " +
+            "code_verification_timestamp, verified_via, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Slot sent by clients that do not know the period, and the slot of codes without a timetable row
+    static final String GENERAL_SLOT = "GENERAL";
+
+    @Autowired
+    private VerificationCodeRegistry verificationCodeRegistry;
+
+    @Autowired
+    private TimetableIndex timetableIndex;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.code-entry.stripes:8}")
+    private int stripeCount;
+
+    @Value("${app.code-entry.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.code-entry.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${app.code-entry.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private TransactionTemplate batchTransaction;
+    private Stripe[] stripes;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+
+    private static final class Submission {
+        final String studentRegNo;
+        final String code;
+        final String sectionId;
+        final LocalDate date;
+        final String timeSlot;
+        final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+
+        Submission(String studentRegNo, String code, String sectionId, LocalDate date, String timeSlot) {
+            this.studentRegNo = studentRegNo;
+            this.code = code;
+            this.sectionId = sectionId;
+            this.date = date;
+            this.timeSlot = timeSlot;
+        }
+    }
+
+    private final class Stripe implements Runnable {
+        final BlockingQueue<Submission> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final Thread thread;
+
+        Stripe(int index) {
+            thread = new Thread(this, "code-entry-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Submission> batch = new ArrayList<>();
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatch - 1);
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "❌ Code entry batch failed", e);
+                    for (Submission s : batch) s.result.complete(failure("Error verifying code: " + e.getMessage()));
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+        stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(i);
+            stripes[i].thread.start();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Stripe stripe : stripes) stripe.thread.interrupt();
+    }
+
+    /**
+     * Verify a student's code entry and record the period log; blocks until the stripe has handled it.
+     */
+    public Map<String, Object> submit(String studentRegNo, String code, String sectionId, LocalDate date, String timeSlot) {
+        Submission submission = new Submission(studentRegNo, code.trim().toUpperCase(Locale.ENGLISH), sectionId, date,
+                timeSlot != null ? timeSlot : GENERAL_SLOT);
+        Stripe stripe = stripes[Math.floorMod(Objects.hashCode(sectionId), stripes.length)];
+        if (!stripe.queue.offer(submission)) {
+            busy.increment();
+            return failure("Too many submissions right now, please try again in a moment");
+        }
+        try {
+            return submission.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Still processed by the stripe; a retry is answered by the duplicate check
+            return failure("Verification is taking longer than expected, please check your attendance shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure("Interrupted");
+        } catch (ExecutionException e) {
+            return failure("Error verifying code: " + e.getCause().getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stripes", stripes.length);
+        stats.put("queued", Arrays.stream(stripes).mapToInt(s -> s.queue.size()).sum());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("batches", batches.sum());
+        stats.put("busy", busy.sum());
+        return stats;
+    }
+
+    // ========== STRIPE WORKER ==========
+
+    private void process(List<Submission> batch) {
+        Map<String, List<Submission>> byCode = new LinkedHashMap<>();
+        for (Submission s : batch) byCode.computeIfAbsent(s.code, k -> new ArrayList<>()).add(s);
+
+        List<Submission> claimed = new ArrayList<>();
+        List<VerificationCodeRegistry.ActiveCode> claimedCodes = new ArrayList<>();
+        List<String> claimedSlots = new ArrayList<>();
+
+        for (Map.Entry<String, List<Submission>> group : byCode.entrySet()) {
+            // Code and timetable context are resolved once for the whole burst
+            Optional<VerificationCodeRegistry.ActiveCode> codeOpt = verificationCodeRegistry.find(group.getKey());
+            if (codeOpt.isEmpty() || codeOpt.get().isExpired()) {
+                String message = codeOpt.isEmpty() ? "Invalid verification code" : "Verification code has expired";
+                for (Submission s : group.getValue()) reject(s, message);
+                continue;
+            }
+            VerificationCodeRegistry.ActiveCode code = codeOpt.get();
+            String codeSlot = timetableSlot(code, group.getValue().get(0).date);
+
+            for (Submission s : group.getValue()) {
+                // A code read out in another section's class does not count for this student
+                if (code.getSectionId() != null && !code.getSectionId().equals(s.sectionId)) {
+                    reject(s, "This code is not for your section");
+                    continue;
+                }
+                // The period comes from the code, never from the request
+                if (codeSlot != null && !GENERAL_SLOT.equals(s.timeSlot) && !codeSlot.equals(s.timeSlot)) {
+                    reject(s, "This code is for period " + codeSlot);
+                    continue;
+                }
+                if (!verificationCodeRegistry.claim(code, s.studentRegNo)) {
+                    reject(s, "You have already marked attendance for this period");
+                    continue;
+                }
+                claimed.add(s);
+                claimedCodes.add(code);
+                claimedSlots.add(codeSlot != null ? codeSlot : GENERAL_SLOT);
+            }
+        }
+        if (claimed.isEmpty()) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            Submission s = claimed.get(i);
+            rows.add(new Object[]{s.studentRegNo, s.sectionId, claimedCodes.get(i).getTimetableId(), claimedSlots.get(i),
+                    Date.valueOf(s.date), Time.valueOf(now.toLocalTime()), Timestamp.valueOf(now), "CODE_ENTRY",
+                    s.date.getDayOfWeek().name(), s.code, Timestamp.valueOf(now), "CODE", Timestamp.valueOf(now)});
+        }
+
+        boolean[] inserted = new boolean[claimed.size()];
+        try {
+            batchTransaction.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+            Arrays.fill(inserted, true);
+            batches.increment();
+        } catch (Exception e) {
+            // One bad row must not fail the whole section: insert row by row, reject only the failures
+            logger.log(Level.WARNING, "⚠️ Code entry batch of " + claimed.size() + " failed, inserting one by one", e);
+            for (int i = 0; i < claimed.size(); i++) {
+                Object[] row = rows.get(i);
+                try {
+                    batchTransaction.executeWithoutResult(tx -> jdbcTemplate.update(INSERT_SQL, row));
+                    inserted[i] = true;
+                } catch (Exception rowError) {
+                    verificationCodeRegistry.release(claimedCodes.get(i), claimed.get(i).studentRegNo);
+                    reject(claimed.get(i), "Error verifying code: " + rowError.getMessage());
+                    logger.log(Level.WARNING, "⚠️ Code entry insert failed for " + claimed.get(i).studentRegNo, rowError);
+                }
+            }
+        }
+
+        LocalTime scanTime = now.toLocalTime();
+        for (int i = 0; i < claimed.size(); i++) {
+            if (!inserted[i]) continue;
+            Submission s = claimed.get(i);
+            dailyAttendanceTally.recordPeriod(s.studentRegNo, s.date, claimedSlots.get(i), scanTime);
+            accepted.increment();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Attendance marked successfully via code entry");
+            response.put("timeSlot", claimedSlots.get(i));
+            s.result.complete(response);
+        }
+    }
+
+    private String timetableSlot(VerificationCodeRegistry.ActiveCode code, LocalDate date) {
+        if (code.getTimetableId() == null || code.getStaffId() == null) return null;
+        for (Timetable t : timetableIndex.findByStaffAndDay(code.getStaffId(), date.getDayOfWeek())) {
+            if (code.getTimetableId().equals(t.getId())) return t.getTimeSlot();
+        }
+        return null;
+    }
+
+    private void reject(Submission s, String message) {
+        rejected.increment();
+        s.result.complete(failure(message));
+    }
+
+    private static Map<String, Object> failure(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return response;
+    }
+}
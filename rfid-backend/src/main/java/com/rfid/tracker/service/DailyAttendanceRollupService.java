@@ -0,0 +1,293 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceChangeEvent;
+import com.rfid.tracker.entity.Attendance;
+import com.rfid.tracker.entity.AttendanceStatus;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-day status counts by user type, branch and section in daily_attendance_rollup, for the
+ * admin dashboard.
+ *
+ * A date is rebuilt from attendance with one INSERT ... SELECT ... GROUP BY after end-of-day
+ * finalization (and on demand for backfills). Between rebuilds, committed
+ * {@link AttendanceChangeEvent}s (overrides, manual marks, biometric marks) are applied as
+ * deltas, batched per key with INSERT ... ON DUPLICATE KEY UPDATE. Rebuilds and deltas run on the
+ * same flusher, so a rebuild always replaces deltas that were applied before it. If a flush fails,
+ * its rebuilds are queued again and its deltas are turned into rebuilds of their dates.
+ *
+ * The table is plain JDBC (created here if missing), so it is not subject to Hibernate's
+ * ddl-auto=validate.
+ */
+@Service
+public class DailyAttendanceRollupService {
+
+    private static final Logger logger = Logger.getLogger(DailyAttendanceRollupService.class.getName());
+
+    // Staff rows and students without a section use this section key
+    private static final String NO_SECTION = "";
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS daily_attendance_rollup (" +
+            "rollup_date DATE NOT NULL, " +
+            "user_type VARCHAR(10) NOT NULL, " +
+            "branch VARCHAR(50) NOT NULL, " +
+            "section_id VARCHAR(20) NOT NULL, " +
+            "present_count INT NOT NULL DEFAULT 0, " +
+            "late_count INT NOT NULL DEFAULT 0, " +
+            "absent_count INT NOT NULL DEFAULT 0, " +
+            "half_day_count INT NOT NULL DEFAULT 0, " +
+            "updated_at DATETIME NOT NULL, " +
+            "PRIMARY KEY (rollup_date, user_type, branch, section_id))";
+
+    private static final String DELTA_SQL =
+            "INSERT INTO daily_attendance_rollup (rollup_date, user_type, branch, section_id, present_count, " +
+            "late_count, absent_count, half_day_count, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE present_count = present_count + VALUES(present_count), " +
+            "late_count = late_count + VALUES(late_count), absent_count = absent_count + VALUES(absent_count), " +
+            "half_day_count = half_day_count + VALUES(half_day_count), updated_at = VALUES(updated_at)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate flushTransaction;
+
+    private final ConcurrentLinkedQueue<AttendanceChangeEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final Set<LocalDate> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder deltasApplied = new LongAdder();
+    private final LongAdder datesRebuilt = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        flushTransaction = new TransactionTemplate(transactionManager);
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+    }
+
+    // ========== MAINTENANCE ==========
+
+    @EventListener
+    public void onAttendanceChange(AttendanceChangeEvent event) {
+        if (event.getDate() != null && event.getStatus() != event.getPreviousStatus()) {
+            pendingEvents.add(event);
+        }
+    }
+
+    /**
+     * Recount the date from attendance on the next flush (called after end-of-day finalization).
+     */
+    public void requestRebuild(LocalDate date) {
+        pendingRebuilds.add(date);
+    }
+
+    /**
+     * Recount a range of dates now, e.g. to backfill history. Returns the number of rollup rows written.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        synchronized (this) {
+            return flushTransaction.execute(tx -> rebuildRange(from, to));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rollup.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        if (pendingEvents.isEmpty() && pendingRebuilds.isEmpty()) return;
+
+        // Drained before the transaction, so a failed flush knows what it has to redo
+        List<AttendanceChangeEvent> events = new ArrayList<>();
+        AttendanceChangeEvent event;
+        while ((event = pendingEvents.poll()) != null) events.add(event);
+        Set<LocalDate> rebuilds = new TreeSet<>();
+        for (Iterator<LocalDate> it = pendingRebuilds.iterator(); it.hasNext(); ) {
+            rebuilds.add(it.next());
+            it.remove();
+        }
+
+        try {
+            flushTransaction.executeWithoutResult(tx -> {
+                applyDeltas(events);
+                for (LocalDate date : rebuilds) rebuildRange(date, date);
+            });
+        } catch (Exception e) {
+            // The deltas are lost with the rollback; recount their dates from attendance instead
+            pendingRebuilds.addAll(rebuilds);
+            for (AttendanceChangeEvent lost : events) pendingRebuilds.add(lost.getDate());
+            logger.log(Level.WARNING, "⚠️ Attendance rollup flush failed, " + pendingRebuilds.size()
+                    + " dates will be rebuilt", e);
+        }
+    }
+
+    // Safety net: yesterday is recounted once the night's processing is over
+    @Scheduled(cron = "0 15 0 * * *")
+    public void rebuildYesterday() {
+        requestRebuild(LocalDate.now().minusDays(1));
+    }
+
+    private void applyDeltas(List<AttendanceChangeEvent> events) {
+        // Sum per key: [present, late, absent, halfDay]
+        Map<List<Object>, int[]> deltas = new LinkedHashMap<>();
+        for (AttendanceChangeEvent event : events) {
+            List<Object> key = List.of(event.getDate(), userTypeOf(event),
+                    event.getBranch() != null ? event.getBranch() : "",
+                    event.isStudent() && event.getSectionId() != null ? event.getSectionId() : NO_SECTION);
+            int[] d = deltas.computeIfAbsent(key, k -> new int[4]);
+            if (event.getStatus() != null) d[slot(event.getStatus())]++;
+            if (event.getPreviousStatus() != null) d[slot(event.getPreviousStatus())]--;
+        }
+        if (deltas.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Map.Entry<List<Object>, int[]> e : deltas.entrySet()) {
+            List<Object> k = e.getKey();
+            int[] d = e.getValue();
+            args.add(new Object[]{Date.valueOf((LocalDate) k.get(0)), k.get(1), k.get(2), k.get(3), d[0], d[1], d[2], d[3], now});
+        }
+        jdbcTemplate.batchUpdate(DELTA_SQL, args);
+        deltasApplied.add(args.size());
+    }
+
+    private int rebuildRange(LocalDate from, LocalDate to) {
+        jdbcTemplate.update("DELETE FROM daily_attendance_rollup WHERE rollup_date BETWEEN ? AND ?",
+                Date.valueOf(from), Date.valueOf(to));
+        int rows = jdbcTemplate.update(
+                "INSERT INTO daily_attendance_rollup (rollup_date, user_type, branch, section_id, present_count, " +
+                "late_count, absent_count, half_day_count, updated_at) " +
+                "SELECT a.date, a.user_type, COALESCE(a.branch, ''), " +
+                "CASE WHEN a.user_type = 'STAFF' THEN '' ELSE COALESCE(a.section_id, '') END, " +
+                "SUM(a.status = 'PRESENT'), SUM(a.status = 'LATE'), SUM(a.status = 'ABSENT'), SUM(a.status = 'HALF_DAY'), ? " +
+                "FROM attendance a WHERE a.date BETWEEN ? AND ? " +
+                "GROUP BY a.date, a.user_type, COALESCE(a.branch, ''), " +
+                "CASE WHEN a.user_type = 'STAFF' THEN '' ELSE COALESCE(a.section_id, '') END",
+                Timestamp.valueOf(LocalDateTime.now()), Date.valueOf(from), Date.valueOf(to));
+        datesRebuilt.increment();
+        logger.info("✅ Attendance rollup rebuilt for " + from + (from.equals(to) ? "" : " .. " + to) + " (" + rows + " rows)");
+        return rows;
+    }
+
+    // ========== DASHBOARD ==========
+
+    /**
+     * Status counts for today / this week / this month (relative to the anchor date), grouped
+     * branch -> section, from one aggregate query over the rollup.
+     */
+    public Map<String, Object> getDashboard(String range, LocalDate anchor) {
+        LocalDate to = anchor != null ? anchor : LocalDate.now();
+        LocalDate from;
+        switch (range == null ? "today" : range.toLowerCase(Locale.ENGLISH)) {
+            case "today": from = to; break;
+            case "week": from = to.with(DayOfWeek.MONDAY); break;
+            case "month": from = to.withDayOfMonth(1); break;
+            default: throw new IllegalArgumentException("range must be today, week or month");
+        }
+
+        Map<String, Map<String, Object>> branches = new TreeMap<>();
+        long[] studentTotals = new long[4];
+        long[] staffTotals = new long[4];
+        jdbcTemplate.query(
+                "SELECT branch, section_id, user_type, SUM(present_count), SUM(late_count), SUM(absent_count), SUM(half_day_count) " +
+                "FROM daily_attendance_rollup WHERE rollup_date BETWEEN ? AND ? " +
+                "GROUP BY branch, section_id, user_type ORDER BY branch, section_id",
+                rs -> {
+                    long[] counts = {rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7)};
+                    Map<String, Object> branch = branches.computeIfAbsent(rs.getString(1), b -> {
+                        Map<String, Object> m = new LinkedHashMap<>();
+                        m.put("branch", b);
+                        m.put("students", counts(new long[4]));
+                        m.put("staff", counts(new long[4]));
+                        m.put("sections", new ArrayList<Map<String, Object>>());
+                        return m;
+                    });
+                    if (Attendance.UserType.STAFF.name().equals(rs.getString(3))) {
+                        add(branch, "staff", counts);
+                        add(staffTotals, counts);
+                    } else {
+                        Map<String, Object> section = counts(counts);
+                        section.put("sectionId", rs.getString(2));
+                        @SuppressWarnings("unchecked")
+                        List<Map<String, Object>> sections = (List<Map<String, Object>>) branch.get("sections");
+                        sections.add(section);
+                        add(branch, "students", counts);
+                        add(studentTotals, counts);
+                    }
+                },
+                Date.valueOf(from), Date.valueOf(to));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("range", range == null ? "today" : range);
+        result.put("from", from.toString());
+        result.put("to", to.toString());
+        result.put("students", counts(studentTotals));
+        result.put("staff", counts(staffTotals));
+        result.put("branches", new ArrayList<>(branches.values()));
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingEvents", pendingEvents.size());
+        stats.put("pendingRebuilds", pendingRebuilds.size());
+        stats.put("deltasApplied", deltasApplied.sum());
+        stats.put("datesRebuilt", datesRebuilt.sum());
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    private static String userTypeOf(AttendanceChangeEvent event) {
+        return event.getUserType() != null ? event.getUserType().name() : Attendance.UserType.STUDENT.name();
+    }
+
+    private static int slot(AttendanceStatus status) {
+        switch (status) {
+            case PRESENT: return 0;
+            case LATE: return 1;
+            case ABSENT: return 2;
+            default: return 3;
+        }
+    }
+
+    private static Map<String, Object> counts(long[] c) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("present", c[0]);
+        m.put("late", c[1]);
+        m.put("absent", c[2]);
+        m.put("halfDay", c[3]);
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Map<String, Object> branch, String key, long[] c) {
+        Map<String, Object> m = (Map<String, Object>) branch.get(key);
+        m.put("present", (Long) m.get("present") + c[0]);
+        m.put("late", (Long) m.get("late") + c[1]);
+        m.put("absent", (Long) m.get("absent") + c[2]);
+        m.put("halfDay", (Long) m.get("halfDay") + c[3]);
+    }
+
+    private static void add(long[] totals, long[] c) {
+        for (int i = 0; i < totals.length; i++) totals[i] += c[i];
+    }
+}
@@ -0,0 +1,256 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.MorningFingerprintLog;
+import com.rfid.tracker.entity.PeriodAttendanceLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Running per-user, per-day attendance tallies kept up to date as scans are accepted:
+ * morning fingerprint status, a bitmask of scanned periods and the last scan time.
+ *
+ * Live tap responses ("%d/7 periods") and the logout/EOD status decision read the tally instead
+ * of counting period_attendance_logs. Writers feed it from {@link PeriodLogWriteBehindQueue#offer}
+ * and, for JPA saves, from {@link DailyTallyListener}.
+ *
+ * Today's tallies are loaded from MySQL at startup; from then on every accepted scan passes through
+ * here, so a missing tally for today (or later) simply means "nothing scanned". Older dates, and
+ * dates whose tallies were evicted, are seeded from MySQL on first access.
+ *
+ * Only period labels known to the timetable ({@link TimetableIndex#isKnownSlot}) and the code
+ * entry "GENERAL" slot get a bit, so free-text labels cannot use up the 64 bits of the mask.
+ */
+@Service
+public class DailyAttendanceTally {
+
+    private static final Logger logger = Logger.getLogger(DailyAttendanceTally.class.getName());
+
+    private static final byte MORNING_NONE = 0;
+    private static final byte MORNING_ON_TIME = 1;
+    private static final byte MORNING_LATE = 2;
+    private static final int NO_SCAN = -1;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TimetableIndex timetableIndex;
+
+    private final ConcurrentHashMap<String, Tally> tallies = new ConcurrentHashMap<>();
+
+    // Period label -> bit position; stable for the life of the process
+    private final ConcurrentHashMap<String, Integer> slotBits = new ConcurrentHashMap<>();
+    private final AtomicInteger nextBit = new AtomicInteger();
+
+    // Dates from this one onwards are fully tracked in memory
+    private volatile LocalDate trackedFrom = LocalDate.MAX;
+
+    // Tallies of dates before this one were evicted and are seeded from MySQL again on access
+    private volatile LocalDate evictedBefore = LocalDate.MIN;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder seeds = new LongAdder();
+    private final LongAdder unknownSlots = new LongAdder();
+
+    /**
+     * One user's day. All fields are updated with atomic operations only.
+     */
+    public static final class Tally {
+        private final AtomicLong periods = new AtomicLong();
+        private volatile byte morning = MORNING_NONE;
+        private final AtomicInteger lastScanSecond = new AtomicInteger(NO_SCAN);
+
+        public int getPeriodCount() { return Long.bitCount(periods.get()); }
+        public long getPeriodMask() { return periods.get(); }
+        public boolean hasMorning() { return morning != MORNING_NONE; }
+        public boolean isMorningOnTime() { return morning == MORNING_ON_TIME; }
+
+        public LocalTime getLastScan() {
+            int s = lastScanSecond.get();
+            return s == NO_SCAN ? null : LocalTime.ofSecondOfDay(s);
+        }
+
+        void touch(LocalTime time) {
+            if (time != null) {
+                int s = time.toSecondOfDay();
+                lastScanSecond.accumulateAndGet(s, Math::max);
+            }
+        }
+    }
+
+    private static final Tally EMPTY = new Tally();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        LocalDate today = LocalDate.now();
+        // Merges with anything already recorded since the context started
+        seedDay(null, today);
+        trackedFrom = today;
+        logger.info("✅ Daily attendance tallies loaded for " + today + " (" + tallies.size() + " users)");
+    }
+
+    // Keep today and yesterday (late logouts / EOD resume)
+    @Scheduled(cron = "0 5 0 * * *")
+    public void evictOldDays() {
+        LocalDate keepFrom = LocalDate.now().minusDays(1);
+        // Raise the floor first, so a lookup that misses an evicted tally reseeds it
+        if (keepFrom.isAfter(evictedBefore)) evictedBefore = keepFrom;
+        tallies.keySet().removeIf(k -> LocalDate.parse(k.substring(k.lastIndexOf('|') + 1)).isBefore(keepFrom));
+    }
+
+    // ========== UPDATES ==========
+
+    /**
+     * Record an accepted period scan. Returns the number of distinct periods scanned that day.
+     */
+    public int recordPeriod(String registrationNumber, LocalDate date, String timeSlot, LocalTime scanTime) {
+        Tally t = tally(MorningFingerprintLog.UserType.STUDENT, registrationNumber, date);
+        setSlot(t, timeSlot);
+        t.touch(scanTime);
+        return t.getPeriodCount();
+    }
+
+    public void recordPeriod(PeriodAttendanceLog log) {
+        recordPeriod(log.getStudentRegistrationNumber(), log.getScanDate(), log.getTimeSlot(), log.getScanTime());
+    }
+
+    /**
+     * The student's period log for the slot was deleted. Tallies not in memory are seeded from MySQL anyway.
+     */
+    public void clearPeriod(String registrationNumber, LocalDate date, String timeSlot) {
+        if (timeSlot == null) return;
+        Integer bit = slotBits.get(timeSlot);
+        Tally t = tallies.get(key(MorningFingerprintLog.UserType.STUDENT, registrationNumber, date));
+        if (bit != null && bit < Long.SIZE && t != null) {
+            long mask = ~(1L << bit);
+            t.periods.accumulateAndGet(mask, (a, b) -> a & b);
+        }
+    }
+
+    public void recordMorning(MorningFingerprintLog log) {
+        if (log.getUserType() == null || log.getUserIdentifier() == null || log.getScanDate() == null) return;
+        Tally t = tally(log.getUserType(), log.getUserIdentifier(), log.getScanDate());
+        t.morning = log.getStatus() == MorningFingerprintLog.Status.ON_TIME ? MORNING_ON_TIME : MORNING_LATE;
+        t.touch(log.getScanTime());
+    }
+
+    // ========== READS (O(1)) ==========
+
+    public Tally get(MorningFingerprintLog.UserType userType, String identifier, LocalDate date) {
+        Tally t = tallies.get(key(userType, identifier, date));
+        if (t != null) {
+            hits.increment();
+            return t;
+        }
+        return needsSeed(date) ? tally(userType, identifier, date) : EMPTY;
+    }
+
+    public int periodCount(String registrationNumber, LocalDate date) {
+        return get(MorningFingerprintLog.UserType.STUDENT, registrationNumber, date).getPeriodCount();
+    }
+
+    public boolean hasPeriod(String registrationNumber, LocalDate date, String timeSlot) {
+        if (timeSlot == null) return false;
+        Integer bit = slotBits.get(timeSlot);
+        return bit != null && bit < Long.SIZE
+                && (get(MorningFingerprintLog.UserType.STUDENT, registrationNumber, date).periods.get() & (1L << bit)) != 0;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tallies", tallies.size());
+        stats.put("trackedFrom", String.valueOf(trackedFrom));
+        stats.put("evictedBefore", String.valueOf(evictedBefore));
+        stats.put("slots", slotBits.size());
+        stats.put("hits", hits.sum());
+        stats.put("seededFromDatabase", seeds.sum());
+        stats.put("unknownSlots", unknownSlots.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    private Tally tally(MorningFingerprintLog.UserType userType, String identifier, LocalDate date) {
+        String key = key(userType, identifier, date);
+        Tally t = tallies.get(key);
+        if (t != null) return t;
+        if (needsSeed(date)) {
+            // Not tracked since startup, or evicted since: load this user's day once (outside the map lock)
+            seedDay(identifier, date);
+            seeds.increment();
+        }
+        return tallies.computeIfAbsent(key, k -> new Tally());
+    }
+
+    private boolean needsSeed(LocalDate date) {
+        return date.isBefore(trackedFrom) || date.isBefore(evictedBefore);
+    }
+
+    /**
+     * Merge period and morning logs for the date into the tallies (one user, or everyone when null).
+     * Merging is an OR / max, so it is safe against scans recorded concurrently.
+     */
+    private void seedDay(String identifier, LocalDate date) {
+        String userFilter = identifier != null ? " AND student_registration_number = ?" : "";
+        Object[] args = identifier != null ? new Object[]{Date.valueOf(date), identifier} : new Object[]{Date.valueOf(date)};
+        jdbcTemplate.query(
+                "SELECT student_registration_number, time_slot, scan_time FROM period_attendance_logs WHERE scan_date = ?" + userFilter,
+                rs -> {
+                    Tally t = tallies.computeIfAbsent(key(MorningFingerprintLog.UserType.STUDENT, rs.getString(1), date), k -> new Tally());
+                    setSlot(t, rs.getString(2));
+                    Time time = rs.getTime(3);
+                    t.touch(time != null ? time.toLocalTime() : null);
+                }, args);
+
+        String morningFilter = identifier != null ? " AND user_identifier = ?" : "";
+        jdbcTemplate.query(
+                "SELECT user_type, user_identifier, status, scan_time FROM morning_fingerprint_logs " +
+                "WHERE scan_date = ? AND user_type IS NOT NULL AND user_identifier IS NOT NULL" + morningFilter,
+                rs -> {
+                    MorningFingerprintLog.UserType type = MorningFingerprintLog.UserType.valueOf(rs.getString(1));
+                    Tally t = tallies.computeIfAbsent(key(type, rs.getString(2), date), k -> new Tally());
+                    t.morning = "ON_TIME".equals(rs.getString(3)) ? MORNING_ON_TIME : MORNING_LATE;
+                    Time time = rs.getTime(4);
+                    t.touch(time != null ? time.toLocalTime() : null);
+                }, args);
+    }
+
+    private void setSlot(Tally t, String timeSlot) {
+        if (timeSlot == null) return;
+        Integer bit = slotBits.get(timeSlot);
+        if (bit == null) {
+            // Labels that are no period get no bit
+            if (!CodeEntryPipeline.GENERAL_SLOT.equals(timeSlot) && !timetableIndex.isKnownSlot(timeSlot)) {
+                unknownSlots.increment();
+                return;
+            }
+            bit = slotBits.computeIfAbsent(timeSlot, s -> nextBit.getAndIncrement());
+        }
+        if (bit >= Long.SIZE) {
+            logger.warning("⚠️ More than 64 distinct period labels, not tallying slot " + timeSlot);
+            return;
+        }
+        long mask = 1L << bit;
+        t.periods.accumulateAndGet(mask, (a, b) -> a | b);
+    }
+
+    private static String key(MorningFingerprintLog.UserType userType, String identifier, LocalDate date) {
+        return userType + "|" + identifier + "|" + date;
+    }
+}
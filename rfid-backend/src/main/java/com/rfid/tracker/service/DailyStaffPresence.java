@@ -0,0 +1,187 @@
+package com.rfid.tracker.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Per-day snapshot of staff presence for the late alert checks: who gave a morning fingerprint
+ * (condition A) and which class periods each staff member scanned into (condition B).
+ *
+ * A day is loaded with two queries, one over morning_fingerprint_logs and one over
+ * staff_entry_logs, the first time it is asked about; today is loaded at startup. After that new
+ * scans are added by {@link StaffPresenceListener} when they commit, and the logout cleanup that
+ * deletes a staff member's entry logs clears them here as well. Every check is then answered from
+ * memory, without per-staff queries.
+ *
+ * Entries are a bitmask of period labels per staff member, with the same label -> bit scheme as
+ * {@link DailyAttendanceTally}; entries without a period only set the "any entry" bit.
+ */
+@Service
+public class DailyStaffPresence {
+
+    private static final Logger logger = Logger.getLogger(DailyStaffPresence.class.getName());
+
+    // Highest bit: the staff member scanned in at all that day
+    private static final long ANY_ENTRY = 1L << 63;
+    private static final int MAX_SLOT_BITS = 63;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<LocalDate, Day> days = new ConcurrentHashMap<>();
+
+    // Period label -> bit position; stable for the life of the process
+    private final ConcurrentHashMap<String, Integer> slotBits = new ConcurrentHashMap<>();
+    private final AtomicInteger nextBit = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    private static final class Day {
+        final Set<String> morning = ConcurrentHashMap.newKeySet();
+        final ConcurrentHashMap<String, AtomicLong> entries = new ConcurrentHashMap<>();
+        volatile boolean loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadToday() {
+        Day day = load(LocalDate.now());
+        logger.info("✅ Staff presence loaded for today: " + day.morning.size() + " morning scans, "
+                + day.entries.size() + " staff with class entries");
+    }
+
+    // ========== CHECKS ==========
+
+    /**
+     * Condition A: the staff member gave a morning fingerprint on that date.
+     */
+    public boolean hasMorningScan(String staffId, LocalDate date) {
+        if (staffId == null || date == null) return false;
+        hits.increment();
+        return load(date).morning.contains(staffId);
+    }
+
+    /**
+     * Condition B for the day: the staff member scanned into at least one class.
+     */
+    public boolean hasEntry(String staffId, LocalDate date) {
+        return (entryMask(staffId, date) & ANY_ENTRY) != 0;
+    }
+
+    /**
+     * Condition B for one class: the staff member scanned in for that period.
+     */
+    public boolean hasEntry(String staffId, LocalDate date, String timeSlot) {
+        if (timeSlot == null) return false;
+        Integer bit = slotBits.get(timeSlot);
+        return bit != null && bit < MAX_SLOT_BITS && (entryMask(staffId, date) & (1L << bit)) != 0;
+    }
+
+    // ========== WRITES ==========
+
+    public void recordMorning(String staffId, LocalDate date) {
+        if (staffId == null || date == null) return;
+        // A day that is not loaded yet reads the committed row when it is
+        Day day = days.get(date);
+        if (day != null) day.morning.add(staffId);
+    }
+
+    public void recordEntry(String staffId, LocalDate date, String timeSlot) {
+        if (staffId == null || date == null) return;
+        Day day = days.get(date);
+        if (day != null) addEntry(day, staffId, timeSlot);
+    }
+
+    /**
+     * The staff member's entry logs for that date were deleted (logout cleanup).
+     */
+    public void clearEntries(String staffId, LocalDate date) {
+        if (staffId == null || date == null) return;
+        Day day = days.get(date);
+        if (day != null) day.entries.remove(staffId);
+    }
+
+    /**
+     * Entry logs of the date were deleted in bulk; the day is loaded again on the next check.
+     */
+    public void forgetDay(LocalDate date) {
+        if (date != null) days.remove(date);
+    }
+
+    // Only today and yesterday are worth keeping
+    @Scheduled(cron = "0 10 0 * * *")
+    public void evictOldDays() {
+        LocalDate keepFrom = LocalDate.now().minusDays(1);
+        days.keySet().removeIf(date -> date.isBefore(keepFrom));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("days", days.size());
+        Day today = days.get(LocalDate.now());
+        stats.put("morningToday", today != null ? today.morning.size() : 0);
+        stats.put("staffWithEntriesToday", today != null ? today.entries.size() : 0);
+        stats.put("slots", slotBits.size());
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    private long entryMask(String staffId, LocalDate date) {
+        if (staffId == null || date == null) return 0L;
+        hits.increment();
+        AtomicLong mask = load(date).entries.get(staffId);
+        return mask != null ? mask.get() : 0L;
+    }
+
+    private Day load(LocalDate date) {
+        Day day = days.computeIfAbsent(date, d -> new Day());
+        if (day.loaded) return day;
+        synchronized (day) {
+            if (!day.loaded) {
+                // Scans recorded meanwhile are merged, both sides only add
+                Date sqlDate = Date.valueOf(date);
+                jdbcTemplate.query("SELECT DISTINCT user_identifier FROM morning_fingerprint_logs " +
+                                "WHERE scan_date = ? AND user_identifier IS NOT NULL",
+                        rs -> { day.morning.add(rs.getString(1)); }, sqlDate);
+                jdbcTemplate.query("SELECT DISTINCT staff_id_number, time_slot FROM staff_entry_logs " +
+                                "WHERE entry_date = ? AND staff_id_number IS NOT NULL",
+                        rs -> { addEntry(day, rs.getString(1), rs.getString(2)); }, sqlDate);
+                day.loaded = true;
+                loads.increment();
+            }
+        }
+        return day;
+    }
+
+    private void addEntry(Day day, String staffId, String timeSlot) {
+        long mask = ANY_ENTRY;
+        if (timeSlot != null) {
+            Integer bit = slotBits.computeIfAbsent(timeSlot, s -> nextBit.getAndIncrement());
+            if (bit < MAX_SLOT_BITS) {
+                mask |= 1L << bit;
+            } else {
+                logger.warning("⚠️ More than " + MAX_SLOT_BITS + " distinct period labels, not tracking slot " + timeSlot);
+            }
+        }
+        long bits = mask;
+        day.entries.computeIfAbsent(staffId, s -> new AtomicLong()).accumulateAndGet(bits, (a, b) -> a | b);
+    }
+}
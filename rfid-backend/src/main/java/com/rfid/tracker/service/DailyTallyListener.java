@@ -0,0 +1,49 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.MorningFingerprintLog;
+import com.rfid.tracker.entity.PeriodAttendanceLog;
+import jakarta.persistence.PostPersist;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on MorningFingerprintLog and PeriodAttendanceLog. Once an insert is committed
+ * it is added to {@link DailyAttendanceTally}. Period scans that go through the write-behind
+ * queue are tallied by the queue itself.
+ */
+@Component
+public class DailyTallyListener {
+
+    @Autowired
+    @Lazy
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @PostPersist
+    public void onInsert(Object entity) {
+        if (dailyAttendanceTally == null) {
+            return;
+        }
+        Runnable record;
+        if (entity instanceof MorningFingerprintLog morning) {
+            record = () -> dailyAttendanceTally.recordMorning(morning);
+        } else if (entity instanceof PeriodAttendanceLog period) {
+            record = () -> dailyAttendanceTally.recordPeriod(period);
+        } else {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+}
@@ -8,14 +8,10 @@ import com.rfid.tracker.entity.Timetable;
 import com.rfid.tracker.repository.AttendanceRepository;
 import com.rfid.tracker.repository.StaffLateAlertRepository;
 import com.rfid.tracker.repository.StaffRepository;
-import com.rfid.tracker.repository.TimetableRepository;
-import com.rfid.tracker.repository.StaffEntryLogRepository;
-import com.rfid.tracker.repository.MorningFingerprintLogRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,7 +37,7 @@ public class EmailService {
 
 
     @Autowired
-    private TimetableRepository timetableRepository;
+    private TimetableIndex timetableIndex;
 
 
     @Autowired
@@ -57,11 +53,7 @@ public class EmailService {
 
 
     @Autowired
-    private StaffEntryLogRepository staffEntryLogRepository;
-
-
-    @Autowired
-    private MorningFingerprintLogRepository morningFingerprintLogRepository;
+    private DailyStaffPresence dailyStaffPresence;
 
 
     @Value("${app.admin.email}")
@@ -76,20 +68,14 @@ public class EmailService {
     // ✅ NEW TWO-CONDITION SYSTEM: Morning FP + Staff Entry Log Required
     // ==================================================================================
     /**
-     * ✅ COMPREHENSIVE LATE ALERT SCHEDULER WITH TWO-CONDITION CHECK
+     * ✅ FULL LATE SCAN (manual trigger only)
      * 
-     * This is the main scheduler that runs every 15 minutes and performs:
+     * Late detection runs on {@link StaffLateTimerWheel}, which fires each class exactly at
+     * start + threshold. This full scan is kept for /api/staff/test/trigger-late-check:
      * 1. Finds all classes scheduled for today
      * 2. Checks if current time is in "late window" (start + threshold < now < end)
-     * 3. FOR EACH CLASS IN LATE WINDOW:
-     *    - CONDITION A: Check if Morning Fingerprint exists (staff entered in morning)
-     *    - CONDITION B: Check if Staff Entry Log exists (staff scanned RFID for class)
-     *    - IF BOTH CONDITIONS TRUE: Staff is properly registered → SKIP ALERT
-     *    - IF ANY CONDITION FALSE: Staff is missing/not scanned → SEND ALERT
-     * 4. Alert sent to: Staff + Admin
-     * 5. Prevent duplicates using StaffLateAlert table
+     * 3. Runs {@link #checkClassAndAlert} for each class in the late window
      */
-    @Scheduled(fixedRate = 900000) // Every 15 minutes
     @Transactional
     public void checkAndSendStaffAbsenceAlerts() {
         try {
@@ -103,7 +89,7 @@ public class EmailService {
 
 
             // ✅ FIX: Add proper type casting with <Timetable>
-            List<Timetable> todaysClasses = timetableRepository.findByDayOfWeek(dayOfWeek);
+            List<Timetable> todaysClasses = timetableIndex.findByDay(today.getDayOfWeek());
             System.out.println("📚 Found " + todaysClasses.size() + " classes for " + dayOfWeek);
 
 
@@ -126,105 +112,114 @@ public class EmailService {
                 if (isInLateWindow) {
                     System.out.println("⏰ Class " + classEntry.getSubject() + " is in LATE WINDOW");
                     System.out.println(" Start: " + classStart + " | Threshold: " + thresholdTime + " | Now: " + now);
+                    checkClassAndAlert(classEntry, today, now);
+                } else {
+                    System.out.println("⏭️ Class " + classEntry.getSubject() + " not in late window yet");
+                    System.out.println(" Start: " + classStart + " | Threshold: " + classStart.plusMinutes(lateThreshold) + " | Now: " + now);
+                }
+            }
 
 
-                    String staffId = classEntry.getStaffId();
-                    String timeSlot = classEntry.getTimeSlot();
-
-
-                    // ✅ NEW TWO-CONDITION CHECK
-                    System.out.println("\n🔍 [TWO-CONDITION CHECK] Evaluating staff: " + staffId);
-                    
-                    // CONDITION A: Check if Morning Fingerprint exists
-                    boolean hasMorningFingerprint = !morningFingerprintLogRepository
-                        .findByUserIdentifierAndScanDate(staffId, today).isEmpty();
-                    System.out.println("  ✓ Condition A (Morning FP): " + (hasMorningFingerprint ? "✅ TRUE" : "❌ FALSE"));
-
-
-                    // CONDITION B: Check if Staff Entry Log exists for this class/room/timeSlot
-                    boolean hasStaffEntry = !staffEntryLogRepository
-                        .findByStaffIdNumberAndEntryDateAndTimeSlot(staffId, today, timeSlot).isEmpty();
-                    System.out.println("  ✓ Condition B (Staff Entry): " + (hasStaffEntry ? "✅ TRUE" : "❌ FALSE"));
+            System.out.println("✅ [SCHEDULER] Check completed at " + LocalTime.now());
 
 
-                    // LOGIC:
-                    // IF (A=TRUE AND B=TRUE) → Staff properly registered → NO ALERT
-                    // IF (A=FALSE OR B=FALSE) → Staff missing/not scanned → SEND ALERT
-                    
-                    if (hasMorningFingerprint && hasStaffEntry) {
-                        System.out.println("✅ [SKIP ALERT] Both conditions TRUE - Staff is properly registered");
-                        System.out.println("   (Code already sent, attendance is being tracked)");
-                        continue; // SKIP ALERT - Staff is properly registered
-                    }
+        } catch (Exception e) {
+            System.err.println("❌ [SCHEDULER ERROR] " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
 
-                    // IF we reach here, at least one condition is FALSE
-                    System.out.println("⚠️ [SEND ALERT] At least one condition FALSE - Staff is missing/not scanned");
+    /**
+     * ✅ TWO-CONDITION CHECK FOR ONE CLASS WHOSE LATE THRESHOLD HAS PASSED
+     * 
+     * - CONDITION A: Check if Morning Fingerprint exists (staff entered in morning)
+     * - CONDITION B: Check if Staff Entry Log exists (staff scanned RFID for class)
+     * - IF BOTH CONDITIONS TRUE: Staff is properly registered → SKIP ALERT
+     * - IF ANY CONDITION FALSE: Staff is missing/not scanned → SEND ALERT (staff + admin)
+     * Duplicates are prevented using the StaffLateAlert table.
+     *
+     * @return true if an alert was sent
+     */
+    public boolean checkClassAndAlert(Timetable classEntry, LocalDate today, LocalTime now) {
+        String staffId = classEntry.getStaffId();
+        String timeSlot = classEntry.getTimeSlot();
 
 
-                    // Check if alert already sent for this slot today (prevent duplicates)
-                    boolean alreadyAlerted = alertRepository
-                        .existsByStaffIdNumberAndAlertDateAndTimeSlot(staffId, today, timeSlot);
+        // ✅ NEW TWO-CONDITION CHECK
+        System.out.println("\n🔍 [TWO-CONDITION CHECK] Evaluating staff: " + staffId);
+        
+        // CONDITION A: Check if Morning Fingerprint exists (presence snapshot, no query)
+        boolean hasMorningFingerprint = dailyStaffPresence.hasMorningScan(staffId, today);
+        System.out.println("  ✓ Condition A (Morning FP): " + (hasMorningFingerprint ? "✅ TRUE" : "❌ FALSE"));
 
 
-                    if (alreadyAlerted) {
-                        System.out.println("🔄 Alert already sent for " + staffId + " at " + timeSlot + ". Skipping...");
-                        continue;
-                    }
+        // CONDITION B: Check if Staff Entry Log exists for this class/room/timeSlot
+        boolean hasStaffEntry = dailyStaffPresence.hasEntry(staffId, today, timeSlot);
+        System.out.println("  ✓ Condition B (Staff Entry): " + (hasStaffEntry ? "✅ TRUE" : "❌ FALSE"));
 
 
-                    // Get staff details
-                    // ✅ FIX: Add proper type casting with <Staff>
-                    Optional<Staff> staffOpt = staffRepository.findByStaffId(staffId);
-                    if (staffOpt.isPresent()) {
-                        Staff staff = staffOpt.get();
+        // LOGIC:
+        // IF (A=TRUE AND B=TRUE) → Staff properly registered → NO ALERT
+        // IF (A=FALSE OR B=FALSE) → Staff missing/not scanned → SEND ALERT
+        
+        if (hasMorningFingerprint && hasStaffEntry) {
+            System.out.println("✅ [SKIP ALERT] Both conditions TRUE - Staff is properly registered");
+            System.out.println("   (Code already sent, attendance is being tracked)");
+            return false; // SKIP ALERT - Staff is properly registered
+        }
 
 
-                        // Build detailed alert message indicating which condition failed
-                        String conditionStatus = "Missing: ";
-                        if (!hasMorningFingerprint) conditionStatus += "[Morning Fingerprint] ";
-                        if (!hasStaffEntry) conditionStatus += "[Class Entry Scan] ";
+        // IF we reach here, at least one condition is FALSE
+        System.out.println("⚠️ [SEND ALERT] At least one condition FALSE - Staff is missing/not scanned");
 
 
-                        // 1. Send Email Notifications (staff + admin)
-                        sendStaffAbsenceAlert(
-                            staff.getName(),
-                            staff.getStaffId(),
-                            staff.getEmail(),
-                            classEntry.getSubject() + " (" + classEntry.getSectionId() + ")",
-                            now,
-                            staff.getPhone(),
-                            staff.getBranch(),
-                            conditionStatus // NEW: Include condition failure details
-                        );
+        // Check if alert already sent for this slot today (prevent duplicates)
+        boolean alreadyAlerted = alertRepository
+            .existsByStaffIdNumberAndAlertDateAndTimeSlot(staffId, today, timeSlot);
 
 
-                        // 2. Save Alert to Database for Dashboard
-                        saveLateAlert(staff, classEntry, now, conditionStatus);
+        if (alreadyAlerted) {
+            System.out.println("🔄 Alert already sent for " + staffId + " at " + timeSlot + ". Skipping...");
+            return false;
+        }
 
 
-                        System.out.println("✅ Alert processed for " + staffId);
+        // Get staff details
+        // ✅ FIX: Add proper type casting with <Staff>
+        Optional<Staff> staffOpt = staffRepository.findByStaffId(staffId);
+        if (staffOpt.isEmpty()) {
+            logger.warning("⚠️ Staff found in Timetable but NOT in Staff table: " + staffId);
+            return false;
+        }
+        Staff staff = staffOpt.get();
 
 
-                    } else {
-                        logger.warning("⚠️ Staff found in Timetable but NOT in Staff table: " + staffId);
-                    }
+        // Build detailed alert message indicating which condition failed
+        String conditionStatus = "Missing: ";
+        if (!hasMorningFingerprint) conditionStatus += "[Morning Fingerprint] ";
+        if (!hasStaffEntry) conditionStatus += "[Class Entry Scan] ";
 
 
-                } else {
-                    System.out.println("⏭️ Class " + classEntry.getSubject() + " not in late window yet");
-                    System.out.println(" Start: " + classStart + " | Threshold: " + classStart.plusMinutes(lateThreshold) + " | Now: " + now);
-                }
-            }
+        // 1. Send Email Notifications (staff + admin)
+        sendStaffAbsenceAlert(
+            staff.getName(),
+            staff.getStaffId(),
+            staff.getEmail(),
+            classEntry.getSubject() + " (" + classEntry.getSectionId() + ")",
+            now,
+            staff.getPhone(),
+            staff.getBranch(),
+            conditionStatus // NEW: Include condition failure details
+        );
 
 
-            System.out.println("✅ [SCHEDULER] Check completed at " + LocalTime.now());
+        // 2. Save Alert to Database for Dashboard
+        saveLateAlert(staff, classEntry, now, conditionStatus);
 
 
-        } catch (Exception e) {
-            System.err.println("❌ [SCHEDULER ERROR] " + e.getMessage());
-            e.printStackTrace();
-        }
+        System.out.println("✅ Alert processed for " + staffId);
+        return true;
     }
 
 
@@ -64,21 +64,36 @@ public class HardwareIntegrationService {
     private StaffRepository staffRepository;
 
     @Autowired
-    private RfidCardRepository rfidCardRepository;
+    private RfidCardResolutionCache rfidCardResolutionCache;
 
-    @Autowired
-    private TimetableRepository timetableRepository;
 
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @Autowired
+    private TimeSlotTable timeSlotTable;
+
+
+    @Autowired
+    private DailyStaffPresence dailyStaffPresence;
+
+
+    @Autowired
+    private TimetableIndex timetableIndex;
+
 
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final LocalTime MORNING_ATTENDANCE_START = LocalTime.of(9, 0);
-    private static final LocalTime MORNING_ATTENDANCE_END = LocalTime.of(9, 10);
-    private static final LocalTime LOGOUT_TIME_START = LocalTime.of(16, 0);
+    static final LocalTime MORNING_ATTENDANCE_END = LocalTime.of(9, 10);
+    static final LocalTime LOGOUT_TIME_START = LocalTime.of(16, 0);
     private static final int LATE_THRESHOLD_MINUTES = 10;
 
 
@@ -174,6 +189,11 @@ public class HardwareIntegrationService {
             return new HardwareResponseDTO("ERROR", "Evening check-out already recorded today");
         }
 
+        // The day is finalized right after check-out, so every accepted period scan must be in MySQL
+        if (fp.getUserType() == FingerprintTemplate.UserType.STUDENT && !periodLogWriteBehindQueue.flushNow()) {
+            return new HardwareResponseDTO("RETRY", "Server busy, please scan again");
+        }
+
 
         log.setLogoutFingerprintId(fingerprintId);
         log.setLogoutScanTime(scanTime);
@@ -215,7 +235,11 @@ public class HardwareIntegrationService {
 
 
             if ("STUDENT".equals(userType)) {
-                periodCount = periodAttendanceLogRepository.countPeriodScans(userIdentifier, date);
+                // Period logs are cleaned up below, so every accepted scan must be in MySQL first
+                if (!periodLogWriteBehindQueue.flushNow()) {
+                    return new HardwareResponseDTO("RETRY", "Period scans are still being saved, please try again");
+                }
+                periodCount = dailyAttendanceTally.periodCount(userIdentifier, date);
 
 
                 if (log.getLogoutFingerprintId() == null) {
@@ -311,6 +335,7 @@ public class HardwareIntegrationService {
                 System.out.println("Cleaned up period logs for student: " + userIdentifier);
             } else {
                 staffEntryLogRepository.deleteByStaffIdNumberAndEntryDate(userIdentifier, date);
+                dailyStaffPresence.clearEntries(userIdentifier, date);
                 System.out.println("Cleaned up entry logs for staff: " + userIdentifier);
             }
         } catch (Exception e) {
@@ -326,34 +351,24 @@ public class HardwareIntegrationService {
             LocalTime scanTime = LocalTime.parse(request.getScanTime(), TIME_FORMATTER);
             LocalDate scanDate = LocalDate.parse(request.getScanDate(), DATE_FORMATTER);
 
-            // ✅ FIXED: Look up RFID card mapping FIRST
-            Optional<RfidCard> rfidCard = rfidCardRepository.findByCardUidAndIsActiveTrue(request.getCardUid());
+            // ✅ Card → owner comes from the in-memory cache (falls back to MySQL on a miss)
+            Optional<CardOwner> cardOwner = rfidCardResolutionCache.resolve(request.getCardUid());
             
-            if (!rfidCard.isPresent()) {
+            if (!cardOwner.isPresent()) {
                 System.out.println(">>> RFID CARD NOT FOUND: " + request.getCardUid());
                 return new HardwareResponseDTO("ERROR", "RFID card not enrolled in system");
             }
 
-            RfidCard card = rfidCard.get();
-            System.out.println(">>> RFID CARD FOUND: " + card.getCardUid());
-            System.out.println(">>> User Type: " + card.getUserType());
-            System.out.println(">>> User ID: " + card.getUserId());
+            CardOwner owner = cardOwner.get();
+            System.out.println(">>> RFID CARD FOUND: " + owner.getCardUid());
+            System.out.println(">>> User Type: " + owner.getUserType());
+            System.out.println(">>> User ID: " + owner.getUserId());
 
             // ✅ FIXED: Route based on user_type from rfid_cards
-            if (RfidCard.UserType.STUDENT.equals(card.getUserType())) {
-                Optional<Student> student = studentRepository.findById(card.getUserId());
-                if (student.isPresent()) {
-                    return processStudentRFID(student.get(), request, scanTime, scanDate);
-                } else {
-                    return new HardwareResponseDTO("ERROR", "Student not found for this RFID card");
-                }
-            } else if (RfidCard.UserType.STAFF.equals(card.getUserType())) {
-                Optional<Staff> staff = staffRepository.findById(card.getUserId());
-                if (staff.isPresent()) {
-                    return processStaffRFID(staff.get(), request, scanTime, scanDate);
-                } else {
-                    return new HardwareResponseDTO("ERROR", "Staff not found for this RFID card");
-                }
+            if (owner.isStudent()) {
+                return processStudentRFID(owner, request, scanTime, scanDate);
+            } else if (owner.isStaff()) {
+                return processStaffRFID(owner, request, scanTime, scanDate);
             }
 
             return new HardwareResponseDTO("ERROR", "Invalid RFID card user type");
@@ -365,26 +380,22 @@ public class HardwareIntegrationService {
     }
 
 
-    private HardwareResponseDTO processStudentRFID(Student student, RFIDScanRequest request,
+    private HardwareResponseDTO processStudentRFID(CardOwner student, RFIDScanRequest request,
                                                     LocalTime scanTime, LocalDate scanDate) {
         try {
-            String timeSlot = getCurrentTimeSlot(scanTime);
+            String timeSlot = getCurrentTimeSlot(student.getSectionId(), scanDate, scanTime);
             if (timeSlot == null) {
                 return new HardwareResponseDTO("ERROR", "No class scheduled for this time");
             }
 
 
-            Optional<PeriodAttendanceLog> existing = periodAttendanceLogRepository
-                    .findByStudentRegistrationNumberAndTimeSlotAndScanDate(
-                            student.getRegistrationNumber(), timeSlot, scanDate);
-
-
-            if (existing.isPresent()) {
+            // ✅ Running tally covers both persisted and queued scans
+            if (dailyAttendanceTally.hasPeriod(student.getIdentifier(), scanDate, timeSlot)) {
                 return new HardwareResponseDTO("ERROR", "Already scanned for this period");
             }
 
 
-            PeriodAttendanceLog log = new PeriodAttendanceLog(student.getRegistrationNumber(),
+            PeriodAttendanceLog log = new PeriodAttendanceLog(student.getIdentifier(),
                     student.getSectionId(), scanDate, scanTime, timeSlot);
             log.setRoomNumber(request.getRoomNumber());
 
@@ -393,14 +404,17 @@ public class HardwareIntegrationService {
             log.setDayOfWeek(dayOfWeek);
 
 
-            periodAttendanceLogRepository.save(log);
+            // ✅ Acknowledge now, the write-behind queue group-commits to MySQL
+            if (!periodLogWriteBehindQueue.offer(log)) {
+                return new HardwareResponseDTO("RETRY", "Server busy, please scan again");
+            }
 
 
-            long periodCount = periodAttendanceLogRepository.countPeriodScans(student.getRegistrationNumber(), scanDate);
+            int periodCount = dailyAttendanceTally.periodCount(student.getIdentifier(), scanDate);
 
 
-            UserInfoDTO userInfo = new UserInfoDTO(student.getId().toString(),
-                    student.getRegistrationNumber(), student.getName(), "STUDENT");
+            UserInfoDTO userInfo = new UserInfoDTO(student.getUserId().toString(),
+                    student.getIdentifier(), student.getName(), "STUDENT");
             userInfo.setSectionId(student.getSectionId());
             userInfo.setBranch(student.getBranch());
 
@@ -413,27 +427,31 @@ public class HardwareIntegrationService {
     }
 
 
-    private HardwareResponseDTO processStaffRFID(Staff staff, RFIDScanRequest request,
+    private HardwareResponseDTO processStaffRFID(CardOwner staff, RFIDScanRequest request,
                                                   LocalTime scanTime, LocalDate scanDate) {
         try {
-            String timeSlot = getCurrentTimeSlot(scanTime);
-            if (timeSlot == null) {
-                return new HardwareResponseDTO("ERROR", "No class scheduled for this time");
-            }
-
-
             String dayOfWeek = scanDate.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
 
 
-            Optional<Timetable> timetableEntry = timetableRepository
-                    .findByStaffIdAndDayOfWeekAndTimeSlot(staff.getStaffId(), dayOfWeek, timeSlot);
+            // ✅ Resolved from the staff member's own timetable rows, not another section's period labels
+            Optional<Timetable> timetableEntry = Optional.ofNullable(
+                    timeSlotTable.staffEntryAt(staff.getIdentifier(), scanDate.getDayOfWeek(), scanTime));
+            if (timetableEntry.isEmpty()) {
+                // Rows the slot table could not place (no parsable times) are checked on the full day
+                timetableEntry = timetableIndex.findByStaffAndDay(staff.getIdentifier(), scanDate.getDayOfWeek()).stream()
+                        .filter(t -> isWithinSchedule(t, scanTime))
+                        .findFirst();
+            }
 
 
             if (!timetableEntry.isPresent()) {
+                if (getCurrentTimeSlot(null, scanDate, scanTime) == null) {
+                    return new HardwareResponseDTO("ERROR", "No class scheduled for this time");
+                }
                 System.out.println("UNAUTHORIZED ACCESS ATTEMPT");
-                System.out.println("Staff: " + staff.getName() + " (" + staff.getStaffId() + ")");
+                System.out.println("Staff: " + staff.getName() + " (" + staff.getIdentifier() + ")");
                 System.out.println("Day: " + dayOfWeek);
-                System.out.println("Time: " + timeSlot);
+                System.out.println("Time: " + scanTime);
                 System.out.println("Room: " + request.getRoomNumber());
                 System.out.println("Result: NO CLASS ASSIGNED");
                 return new HardwareResponseDTO("ERROR", "Access denied: This class is not assigned to you");
@@ -441,6 +459,7 @@ public class HardwareIntegrationService {
 
 
             Timetable assignedClass = timetableEntry.get();
+            String timeSlot = assignedClass.getTimeSlot();
 
 
             if (!assignedClass.getRoom().equals(request.getRoomNumber())) {
@@ -461,7 +480,7 @@ public class HardwareIntegrationService {
 
 
             Optional<StaffEntryLog> existingEntry = staffEntryLogRepository
-                    .findByStaffIdNumberAndEntryDateAndTimeSlot(staff.getStaffId(), scanDate, timeSlot);
+                    .findByStaffIdNumberAndEntryDateAndTimeSlot(staff.getIdentifier(), scanDate, timeSlot);
 
 
             if (existingEntry.isPresent()) {
@@ -469,13 +488,14 @@ public class HardwareIntegrationService {
             }
 
 
-            StaffEntryLog log = new StaffEntryLog(staff.getStaffId(), request.getRoomNumber(), scanDate, scanTime);
-            log.setStaffDbId(Math.toIntExact(staff.getId()));
+            StaffEntryLog log = new StaffEntryLog(staff.getIdentifier(), request.getRoomNumber(), scanDate, scanTime);
+            log.setStaffDbId(Math.toIntExact(staff.getUserId()));
             log.setTimeSlot(timeSlot);
             log.setDayOfWeek(dayOfWeek);
 
 
-            LocalTime expectedTime = getExpectedStartTime(timeSlot);
+            LocalTime expectedTime = assignedClass.getScheduledStartTime() != null
+                    ? assignedClass.getScheduledStartTime() : getExpectedStartTime(timeSlot);
             log.setExpectedTime(expectedTime);
 
 
@@ -488,7 +508,7 @@ public class HardwareIntegrationService {
 
 
                 StaffLateAlert alert = new StaffLateAlert();
-                alert.setStaffIdNumber(staff.getStaffId());
+                alert.setStaffIdNumber(staff.getIdentifier());
                 alert.setStaffName(staff.getName());
                 alert.setScheduledTime(expectedTime);
                 alert.setActualEntryTime(scanTime);
@@ -506,7 +526,7 @@ public class HardwareIntegrationService {
 
                 try {
                     String className = assignedClass.getSubject() + " - Room " + request.getRoomNumber();
-                    emailService.sendStaffAbsenceAlert(staff.getName(), staff.getStaffId(),
+                    emailService.sendStaffAbsenceAlert(staff.getName(), staff.getIdentifier(),
                             staff.getEmail(), className, scanTime, staff.getPhone(), staff.getBranch());
 
 
@@ -522,7 +542,7 @@ public class HardwareIntegrationService {
                         assignedClass.getSubject());
 
 
-                UserInfoDTO userInfo = new UserInfoDTO(staff.getId().toString(), staff.getStaffId(),
+                UserInfoDTO userInfo = new UserInfoDTO(staff.getUserId().toString(), staff.getIdentifier(),
                         staff.getName(), "STAFF");
                 userInfo.setBranch(staff.getBranch());
 
@@ -536,7 +556,7 @@ public class HardwareIntegrationService {
                 staffEntryLogRepository.save(log);
 
 
-                UserInfoDTO userInfo = new UserInfoDTO(staff.getId().toString(), staff.getStaffId(),
+                UserInfoDTO userInfo = new UserInfoDTO(staff.getUserId().toString(), staff.getIdentifier(),
                         staff.getName(), "STAFF");
                 userInfo.setBranch(staff.getBranch());
 
@@ -583,26 +603,18 @@ public class HardwareIntegrationService {
     }
 
 
-    private String getCurrentTimeSlot(LocalTime time) {
-    // Morning periods
-    if (time.compareTo(LocalTime.of(9, 0)) >= 0 && time.compareTo(LocalTime.of(10, 0)) < 0) return "09:00-10:00";
-    if (time.compareTo(LocalTime.of(10, 0)) >= 0 && time.compareTo(LocalTime.of(11, 0)) < 0) return "10:00-11:00";
-    if (time.compareTo(LocalTime.of(11, 0)) >= 0 && time.compareTo(LocalTime.of(12, 0)) < 0) return "11:00-12:00";
-    if (time.compareTo(LocalTime.of(12, 0)) >= 0 && time.compareTo(LocalTime.of(13, 0)) < 0) return "12:00-13:00";
-    
-    // Lunch break (13:00-13:30) - NO CLASSES
-    if (time.compareTo(LocalTime.of(13, 0)) >= 0 && time.compareTo(LocalTime.of(13, 30)) < 0) return null;
-    
-    // Afternoon periods ✅ FIXED!
-    if (time.compareTo(LocalTime.of(13, 30)) >= 0 && time.compareTo(LocalTime.of(14, 30)) < 0) return "13:30-14:30";
-    if (time.compareTo(LocalTime.of(14, 30)) >= 0 && time.compareTo(LocalTime.of(15, 30)) < 0) return "14:30-15:30";
-    if (time.compareTo(LocalTime.of(15, 30)) >= 0 && time.compareTo(LocalTime.of(16, 30)) < 0) return "15:30-16:30";
-    
-    return null;
-}
-
-
-    
+    // ✅ Constant-time lookup in the compiled minute-of-day table (the section's own periods, else the default grid)
+    String getCurrentTimeSlot(String sectionId, LocalDate date, LocalTime time) {
+        return timeSlotTable.slotAt(sectionId, date, time);
+    }
+
+
+    private boolean isWithinSchedule(Timetable t, LocalTime scanTime) {
+        return t.getScheduledStartTime() != null && t.getScheduledEndTime() != null
+                && !scanTime.isBefore(t.getScheduledStartTime())
+                && scanTime.isBefore(t.getScheduledEndTime());
+    }
+
 
     private LocalTime getExpectedStartTime(String timeSlot) {
         String[] parts = timeSlot.split("-");
@@ -0,0 +1,542 @@
+package com.rfid.tracker.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rfid.tracker.entity.PeriodAttendanceLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind stage for RFID period scans.
+ *
+ * A scan is acknowledged once it is appended to a local journal and queued in memory. A
+ * background flusher group-commits the queue to period_attendance_logs with JDBC batches
+ * when batchSize records are waiting or every flushIntervalMs, whichever comes first.
+ *
+ * Durability: the journal is rotated to an .inflight file under the same lock that drains
+ * the queue, so each inflight file holds exactly the records of one flush and is deleted only
+ * after that flush commits. On startup any journal left behind is replayed. Inserts are
+ * guarded by NOT EXISTS on (student, date, slot), so replaying an already-committed file is harmless.
+ * While an inflight file is failing no new one is started; the queue keeps the newer records.
+ * A file that fails max-attempts times while MySQL answers is written row by row, and the rows
+ * that still fail are moved to a .quarantine file so they stop blocking everything behind them.
+ *
+ * Back-pressure: when capacity records are queued or inflight, {@link #offer} returns false and
+ * the caller tells the reader to retry. Accepted scans are added to {@link DailyAttendanceTally}
+ * right away, so duplicate checks and period counts never wait for a flush.
+ */
+@Service
+public class PeriodLogWriteBehindQueue {
+
+    private static final Logger logger = Logger.getLogger(PeriodLogWriteBehindQueue.class.getName());
+
+    private static final String ACTIVE_JOURNAL = "period-logs.journal";
+    private static final String INFLIGHT_SUFFIX = ".inflight";
+    private static final String QUARANTINE_SUFFIX = ".quarantine";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO period_attendance_logs (student_registration_number, section_id, timetable_id, time_slot, " +
+            "scan_date, scan_time, scan_datetime, room_number, day_of_week, verification_code, " +
+            "code_verification_timestamp, verified_via, created_at) " +
+            "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS (" +
+            "SELECT 1 FROM period_attendance_logs WHERE student_registration_number = ? AND scan_date = ? AND time_slot = ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @Value("${app.scan.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.scan.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.scan.write-behind.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${app.scan.write-behind.journal-dir:./data/scan-journal}")
+    private String journalDir;
+
+    @Value("${app.scan.write-behind.fsync:false}")
+    private boolean fsync;
+
+    @Value("${app.scan.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ArrayBlockingQueue<PeriodAttendanceLog> queue;
+    private TransactionTemplate flushTransaction;
+
+    // Guards journal appends and the drain+rotate step, so journal content always matches the queue
+    private final Object journalLock = new Object();
+    // Only one flush at a time (background flusher or a caller of flushNow)
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Semaphore flushSignal = new Semaphore(0);
+
+    private Path journalPath;
+    private FileOutputStream journalStream;
+    private Writer journalWriter;
+
+    // Records that are queued or being flushed, for duplicate checks
+    private final Set<String> pendingSlots = ConcurrentHashMap.newKeySet();
+
+    // Records in inflight files, counted against capacity; failed attempts per file (flushLock only)
+    private final AtomicInteger inflightRecords = new AtomicInteger();
+    private final Map<Path, Integer> inflightSizes = new HashMap<>();
+    private final Map<Path, Integer> attempts = new HashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    @PostConstruct
+    public void start() throws IOException {
+        queue = new ArrayBlockingQueue<>(capacity);
+        flushTransaction = new TransactionTemplate(transactionManager);
+        flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Path dir = Paths.get(journalDir);
+        Files.createDirectories(dir);
+        journalPath = dir.resolve(ACTIVE_JOURNAL);
+
+        replayLeftoverJournals(dir);
+        openJournal();
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "period-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("✅ Period log write-behind queue started (capacity " + capacity + ", batch " + batchSize + ")");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flushSignal.release();
+        try {
+            if (flusher != null) {
+                flusher.join(10000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Final drain; anything that still fails stays in the journal for the next start
+        flushNow();
+        synchronized (journalLock) {
+            closeJournal();
+        }
+        logger.info("✅ Period log write-behind queue drained (" + flushed.get() + " records written)");
+    }
+
+    /**
+     * Accept a scan. Returns false when the queue is full or shutting down; the caller should ask for a retry.
+     */
+    public boolean offer(PeriodAttendanceLog log) {
+        synchronized (journalLock) {
+            if (!running || queue.remainingCapacity() == 0 || queue.size() + inflightRecords.get() >= capacity) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            // Same student/date/slot already accepted: idempotent
+            if (pendingSlots.contains(slotKey(log.getStudentRegistrationNumber(), log.getScanDate(), log.getTimeSlot()))) {
+                return true;
+            }
+            try {
+                appendToJournal(log);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "⚠️ Could not journal period scan, rejecting", e);
+                rejected.incrementAndGet();
+                return false;
+            }
+            queue.add(log);
+            pendingSlots.add(slotKey(log.getStudentRegistrationNumber(), log.getScanDate(), log.getTimeSlot()));
+        }
+        dailyAttendanceTally.recordPeriod(log);
+        accepted.incrementAndGet();
+        if (queue.size() >= batchSize) {
+            flushSignal.release();
+        }
+        return true;
+    }
+
+    /**
+     * Synchronously write everything accepted so far. Call before reading period logs for finalization.
+     *
+     * @return false if some accepted scans are still not in MySQL (a flush failed); period logs
+     *         must not be finalized or deleted then
+     */
+    public boolean flushNow() {
+        flushLock.lock();
+        try {
+            return flushOnce();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("inflight", inflightRecords.get());
+        stats.put("capacity", capacity);
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("flushed", flushed.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("quarantined", quarantined.get());
+        return stats;
+    }
+
+    // ========== FLUSHER ==========
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                flushSignal.tryAcquire(flushIntervalMs, TimeUnit.MILLISECONDS);
+                flushSignal.drainPermits();
+                flushNow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "⚠️ Period log flush loop error", e);
+            }
+        }
+    }
+
+    // Caller holds flushLock
+    private boolean flushOnce() {
+        // Retry any inflight file from an earlier failed flush first, preserving order;
+        // until it is written newer records wait in the queue and count against capacity
+        if (!retryInflightFiles()) {
+            return false;
+        }
+
+        List<PeriodAttendanceLog> drained = new ArrayList<>();
+        Path inflight;
+        synchronized (journalLock) {
+            if (queue.isEmpty()) {
+                return true;
+            }
+            queue.drainTo(drained);
+            try {
+                inflight = rotateJournal();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "❌ Could not rotate period log journal", e);
+                // Put the records back; they are still in the active journal
+                queue.addAll(drained);
+                return false;
+            }
+            trackInflight(inflight, drained.size());
+        }
+
+        // On failure the inflight file stays on disk (and the records stay pending) until a retry succeeds
+        return writeFile(inflight, drained);
+    }
+
+    private boolean retryInflightFiles() {
+        for (Path file : listInflightFiles(journalPath.getParent())) {
+            if (!writeFile(file, readJournal(file))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Caller holds flushLock
+    private boolean writeFile(Path file, List<PeriodAttendanceLog> records) {
+        if (writeBatch(records)) {
+            completeFile(file, records);
+            return true;
+        }
+        int failed = attempts.merge(file, 1, Integer::sum);
+        // An outage is waited out; a file that keeps failing while MySQL answers has a bad row
+        if (failed < maxAttempts || !databaseReachable()) {
+            return false;
+        }
+        return quarantineFailedRows(file, records);
+    }
+
+    private boolean quarantineFailedRows(Path file, List<PeriodAttendanceLog> records) {
+        List<PeriodAttendanceLog> bad = new ArrayList<>();
+        for (PeriodAttendanceLog log : records) {
+            if (writeBatch(List.of(log))) continue;
+            if (!databaseReachable()) {
+                // Connection dropped meanwhile; rows already written are skipped by NOT EXISTS on retry
+                return false;
+            }
+            bad.add(log);
+        }
+        if (!bad.isEmpty()) {
+            Path quarantine = file.resolveSibling(file.getFileName().toString()
+                    .replace(INFLIGHT_SUFFIX, QUARANTINE_SUFFIX));
+            try (Writer writer = Files.newBufferedWriter(quarantine, StandardCharsets.UTF_8)) {
+                for (PeriodAttendanceLog log : bad) {
+                    writer.write(objectMapper.writeValueAsString(toJournal(log)));
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "❌ Could not write quarantine file " + quarantine, e);
+                return false;
+            }
+            quarantined.addAndGet(bad.size());
+            logger.severe("❌ " + bad.size() + " period scans failed " + maxAttempts
+                    + " times and were moved to " + quarantine.getFileName());
+        }
+        completeFile(file, records);
+        return true;
+    }
+
+    private boolean databaseReachable() {
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Caller holds flushLock (or is the startup replay)
+    private void trackInflight(Path file, int records) {
+        Integer previous = inflightSizes.put(file, records);
+        inflightRecords.addAndGet(records - (previous != null ? previous : 0));
+    }
+
+    private void completeFile(Path file, List<PeriodAttendanceLog> records) {
+        deleteQuietly(file);
+        releasePending(records);
+        attempts.remove(file);
+        Integer size = inflightSizes.remove(file);
+        if (size != null) {
+            inflightRecords.addAndGet(-size);
+        }
+    }
+
+    private boolean writeBatch(List<PeriodAttendanceLog> logs) {
+        if (logs.isEmpty()) {
+            return true;
+        }
+        try {
+            flushTransaction.executeWithoutResult(status -> {
+                for (int from = 0; from < logs.size(); from += batchSize) {
+                    List<PeriodAttendanceLog> chunk = logs.subList(from, Math.min(from + batchSize, logs.size()));
+                    jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), (ps, log) -> {
+                        ps.setString(1, log.getStudentRegistrationNumber());
+                        ps.setString(2, log.getSectionId());
+                        ps.setObject(3, log.getTimetableId());
+                        ps.setString(4, log.getTimeSlot());
+                        ps.setDate(5, Date.valueOf(log.getScanDate()));
+                        ps.setTime(6, Time.valueOf(log.getScanTime()));
+                        ps.setTimestamp(7, toTimestamp(log.getScanDateTime()));
+                        ps.setString(8, log.getRoomNumber());
+                        ps.setString(9, log.getDayOfWeek());
+                        ps.setString(10, log.getVerificationCode());
+                        ps.setTimestamp(11, toTimestamp(log.getCodeVerificationTimestamp()));
+                        ps.setString(12, log.getVerifiedVia());
+                        ps.setTimestamp(13, toTimestamp(log.getCreatedAt()));
+                        ps.setString(14, log.getStudentRegistrationNumber());
+                        ps.setDate(15, Date.valueOf(log.getScanDate()));
+                        ps.setString(16, log.getTimeSlot());
+                    });
+                }
+            });
+            flushed.addAndGet(logs.size());
+            return true;
+        } catch (Exception e) {
+            flushFailures.incrementAndGet();
+            logger.log(Level.WARNING, "⚠️ Period log batch of " + logs.size() + " failed, will retry", e);
+            return false;
+        }
+    }
+
+    private void releasePending(List<PeriodAttendanceLog> logs) {
+        for (PeriodAttendanceLog log : logs) {
+            pendingSlots.remove(slotKey(log.getStudentRegistrationNumber(), log.getScanDate(), log.getTimeSlot()));
+        }
+    }
+
+    // ========== JOURNAL ==========
+
+    private void replayLeftoverJournals(Path dir) {
+        List<Path> files = new ArrayList<>(listInflightFiles(dir));
+        if (Files.exists(journalPath)) {
+            files.add(journalPath);
+        }
+        for (Path file : files) {
+            List<PeriodAttendanceLog> records = readJournal(file);
+            if (writeBatch(records)) {
+                logger.info("✅ Replayed " + records.size() + " period scans from " + file.getFileName());
+                deleteQuietly(file);
+                continue;
+            }
+            if (file.equals(journalPath)) {
+                // Keep the records for the first flush instead of losing them
+                file = dir.resolve("period-logs." + System.currentTimeMillis() + INFLIGHT_SUFFIX);
+                try {
+                    Files.move(journalPath, file);
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "❌ Could not preserve unreplayed journal", e);
+                    continue;
+                }
+            }
+            // Still pending: counted against capacity and seen by duplicate checks until written
+            trackInflight(file, records.size());
+            for (PeriodAttendanceLog log : records) {
+                pendingSlots.add(slotKey(log.getStudentRegistrationNumber(), log.getScanDate(), log.getTimeSlot()));
+            }
+        }
+    }
+
+    private List<Path> listInflightFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(INFLIGHT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private List<PeriodAttendanceLog> readJournal(Path file) {
+        List<PeriodAttendanceLog> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    records.add(fromJournal(objectMapper.readValue(line, new TypeReference<Map<String, String>>() {})));
+                } catch (Exception e) {
+                    // A torn last line after a crash is expected; skip it
+                    logger.warning("⚠️ Skipping unreadable journal line in " + file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "⚠️ Could not read journal " + file, e);
+        }
+        return records;
+    }
+
+    private void openJournal() throws IOException {
+        journalStream = new FileOutputStream(journalPath.toFile(), true);
+        journalWriter = new BufferedWriter(new OutputStreamWriter(journalStream, StandardCharsets.UTF_8));
+    }
+
+    private void closeJournal() {
+        try {
+            if (journalWriter != null) {
+                journalWriter.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "⚠️ Error closing journal", e);
+        }
+    }
+
+    // Caller holds journalLock
+    private void appendToJournal(PeriodAttendanceLog log) throws IOException {
+        journalWriter.write(objectMapper.writeValueAsString(toJournal(log)));
+        journalWriter.write('\n');
+        journalWriter.flush();
+        if (fsync) {
+            journalStream.getFD().sync();
+        }
+    }
+
+    // Caller holds journalLock
+    private Path rotateJournal() throws IOException {
+        closeJournal();
+        Path inflight = journalPath.resolveSibling("period-logs." + System.currentTimeMillis() + "-" + System.nanoTime() + INFLIGHT_SUFFIX);
+        try {
+            Files.move(journalPath, inflight, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            openJournal();
+        }
+        return inflight;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "⚠️ Could not delete journal " + file, e);
+        }
+    }
+
+    private Map<String, String> toJournal(PeriodAttendanceLog log) {
+        Map<String, String> m = new HashMap<>();
+        m.put("reg", log.getStudentRegistrationNumber());
+        m.put("section", log.getSectionId());
+        m.put("timetableId", log.getTimetableId() != null ? log.getTimetableId().toString() : null);
+        m.put("slot", log.getTimeSlot());
+        m.put("date", log.getScanDate().toString());
+        m.put("time", log.getScanTime().toString());
+        m.put("scanDateTime", log.getScanDateTime() != null ? log.getScanDateTime().toString() : null);
+        m.put("room", log.getRoomNumber());
+        m.put("day", log.getDayOfWeek());
+        m.put("code", log.getVerificationCode());
+        m.put("codeAt", log.getCodeVerificationTimestamp() != null ? log.getCodeVerificationTimestamp().toString() : null);
+        m.put("via", log.getVerifiedVia());
+        m.put("createdAt", log.getCreatedAt() != null ? log.getCreatedAt().toString() : null);
+        return m;
+    }
+
+    private PeriodAttendanceLog fromJournal(Map<String, String> m) {
+        PeriodAttendanceLog log = new PeriodAttendanceLog(m.get("reg"), m.get("section"),
+                LocalDate.parse(m.get("date")), LocalTime.parse(m.get("time")), m.get("slot"));
+        if (m.get("timetableId") != null) log.setTimetableId(Long.valueOf(m.get("timetableId")));
+        if (m.get("scanDateTime") != null) log.setScanDateTime(LocalDateTime.parse(m.get("scanDateTime")));
+        log.setRoomNumber(m.get("room"));
+        log.setDayOfWeek(m.get("day"));
+        log.setVerificationCode(m.get("code"));
+        if (m.get("codeAt") != null) log.setCodeVerificationTimestamp(LocalDateTime.parse(m.get("codeAt")));
+        if (m.get("via") != null) log.setVerifiedVia(m.get("via"));
+        if (m.get("createdAt") != null) log.setCreatedAt(LocalDateTime.parse(m.get("createdAt")));
+        return log;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static String slotKey(String regNo, LocalDate date, String timeSlot) {
+        return regNo + "|" + date + "|" + timeSlot;
+    }
+}
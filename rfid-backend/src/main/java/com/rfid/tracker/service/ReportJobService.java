@@ -0,0 +1,288 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceMonthGrid;
+import com.rfid.tracker.dto.ReportJobRequest;
+import com.rfid.tracker.entity.Section;
+import com.rfid.tracker.repository.SectionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Asynchronous branch- and college-wide attendance workbooks.
+ *
+ * A submitted job is rendered off the request thread: section grids are loaded in parallel on a
+ * dedicated pool (a bounded number ahead of the writer), and the single SXSSF workbook is written
+ * sequentially, one sheet per section, into the spool directory. The finished file is renamed
+ * into place atomically, so a download never sees a partial workbook.
+ *
+ * Job state lives in memory; finished files and jobs are removed after app.report.retention-hours.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = Logger.getLogger(ReportJobService.class.getName());
+
+    private static final String FILE_SUFFIX = ".xlsx";
+    private static final String PART_SUFFIX = ".part";
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceExcelExporter attendanceExcelExporter;
+
+    @Autowired
+    private SectionRepository sectionRepository;
+
+    @Value("${app.report.spool-dir:./data/report-spool}")
+    private String spoolDir;
+
+    @Value("${app.report.workers:4}")
+    private int workers;
+
+    @Value("${app.report.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${app.report.retention-hours:24}")
+    private long retentionHours;
+
+    private Path spoolPath;
+    private ExecutorService jobExecutor;       // one thread per running job (the sheet writer)
+    private ExecutorService sectionExecutor;   // parallel grid loading
+
+    private final ConcurrentHashMap<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    /**
+     * Status of one export, as returned by the status endpoint.
+     */
+    public static class ReportJob {
+        private final String id;
+        private final ReportJobRequest request;
+        private final List<String> sections;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicInteger sectionsDone = new AtomicInteger();
+        private volatile Status status = Status.QUEUED;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        private volatile long sizeBytes;
+        private volatile Path file;
+
+        ReportJob(String id, ReportJobRequest request, List<String> sections) {
+            this.id = id;
+            this.request = request;
+            this.sections = sections;
+        }
+
+        public String getId() { return id; }
+        public ReportJobRequest getRequest() { return request; }
+        public int getSectionsTotal() { return sections.size(); }
+        public int getSectionsDone() { return sectionsDone.get(); }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public Status getStatus() { return status; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public String getError() { return error; }
+        public long getSizeBytes() { return sizeBytes; }
+
+        public String getFileName() {
+            ReportJobRequest r = request;
+            String target = "COLLEGE".equals(r.getScope()) ? "college"
+                    : "BRANCH".equals(r.getScope()) ? r.getBranch() : r.getSectionId();
+            return String.format("attendance_%s_%d_%02d.xlsx", target, r.getYear(), r.getMonth())
+                    .replaceAll("[^A-Za-z0-9._-]", "_");
+        }
+
+        Path file() { return file; }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        spoolPath = Paths.get(spoolDir);
+        Files.createDirectories(spoolPath);
+        // Job state does not survive a restart, so neither do its files
+        try (Stream<Path> files = Files.list(spoolPath)) {
+            files.filter(p -> p.toString().endsWith(FILE_SUFFIX) || p.toString().endsWith(PART_SUFFIX))
+                    .forEach(ReportJobService::deleteQuietly);
+        }
+
+        jobExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs), daemon("report-job"));
+        sectionExecutor = Executors.newFixedThreadPool(Math.max(1, workers), daemon("report-section"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        sectionExecutor.shutdownNow();
+    }
+
+    /**
+     * Validate the spec, resolve its sections and queue the job.
+     */
+    public ReportJob submit(ReportJobRequest request) {
+        if (request.getYear() == null || request.getMonth() == null
+                || request.getMonth() < 1 || request.getMonth() > 12) {
+            throw new IllegalArgumentException("year and month (1-12) are required");
+        }
+        String scope = request.getScope() == null ? "BRANCH" : request.getScope().trim().toUpperCase(Locale.ENGLISH);
+        request.setScope(scope);
+
+        List<Section> sections;
+        switch (scope) {
+            case "SECTION":
+                if (request.getSectionId() == null) throw new IllegalArgumentException("sectionId is required");
+                sections = sectionRepository.findBySectionCode(request.getSectionId())
+                        .map(List::of)
+                        .orElseThrow(() -> new IllegalArgumentException("Section not found: " + request.getSectionId()));
+                break;
+            case "BRANCH":
+                if (request.getBranch() == null) throw new IllegalArgumentException("branch is required");
+                sections = sectionRepository.findByBranch(request.getBranch());
+                break;
+            case "COLLEGE":
+                sections = sectionRepository.findAll();
+                break;
+            default:
+                throw new IllegalArgumentException("scope must be SECTION, BRANCH or COLLEGE");
+        }
+
+        List<String> sectionIds = sections.stream()
+                .sorted(Comparator.comparing(Section::getBranch, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(Section::getSectionCode))
+                .map(Section::getSectionCode)
+                .collect(Collectors.toList());
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), request, sectionIds);
+        jobs.put(job.getId(), job);
+        jobExecutor.submit(() -> run(job));
+        logger.info("📝 Report job " + job.getId() + " queued: " + scope + ", " + sectionIds.size() + " sections");
+        return job;
+    }
+
+    public Optional<ReportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<ReportJob> listJobs() {
+        List<ReportJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparing(ReportJob::getCreatedAt).reversed());
+        return list;
+    }
+
+    /**
+     * Finished workbook of a job, or empty while it is still running / after it failed or expired.
+     */
+    public Optional<Path> getFile(String id) {
+        ReportJob job = jobs.get(id);
+        if (job == null || job.status != Status.DONE || job.file() == null || !Files.exists(job.file())) {
+            return Optional.empty();
+        }
+        return Optional.of(job.file());
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.finishedAt != null && job.finishedAt.isBefore(cutoff);
+            if (expired && job.file() != null) deleteQuietly(job.file());
+            return expired;
+        });
+    }
+
+    // ========== RENDERING ==========
+
+    private void run(ReportJob job) {
+        job.status = Status.RUNNING;
+        ReportJobRequest r = job.request;
+        Path part = spoolPath.resolve(job.getId() + PART_SUFFIX);
+        Path done = spoolPath.resolve(job.getId() + FILE_SUFFIX);
+
+        // Grids are loaded ahead of the writer, but never more than this many at a time
+        int lookahead = Math.max(1, workers) * 2;
+        Deque<Future<AttendanceMonthGrid>> inFlight = new ArrayDeque<>();
+        Iterator<String> pending = job.sections.iterator();
+
+        SXSSFWorkbook workbook = attendanceExcelExporter.newWorkbook();
+        try (OutputStream out = Files.newOutputStream(part)) {
+            AttendanceExcelExporter.Styles styles = new AttendanceExcelExporter.Styles(workbook);
+
+            while (pending.hasNext() && inFlight.size() < lookahead) {
+                inFlight.add(loadGrid(pending.next(), r));
+            }
+            while (!inFlight.isEmpty()) {
+                AttendanceMonthGrid grid = inFlight.poll().get();
+                if (pending.hasNext()) inFlight.add(loadGrid(pending.next(), r));
+                attendanceExcelExporter.writeStudentSheet(workbook, styles, grid.getSectionId(), grid);
+                job.sectionsDone.incrementAndGet();
+            }
+
+            if (r.isIncludeStaff()) {
+                Set<String> branches = "BRANCH".equals(r.getScope()) ? Set.of(r.getBranch())
+                        : new TreeSet<>(sectionRepository.findDistinctBranches());
+                for (String branch : branches) {
+                    attendanceExcelExporter.writeStaffSheet(workbook, styles, "Staff " + branch,
+                            branch, r.getYear(), r.getMonth());
+                }
+            }
+
+            attendanceExcelExporter.finish(workbook, out);
+            workbook = null;
+            Files.move(part, done, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            job.file = done;
+            job.sizeBytes = Files.size(done);
+            job.status = Status.DONE;
+            logger.info("✅ Report job " + job.getId() + " finished (" + job.sizeBytes + " bytes)");
+        } catch (Exception e) {
+            for (Future<AttendanceMonthGrid> f : inFlight) f.cancel(true);
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            job.error = e instanceof ExecutionException && e.getCause() != null
+                    ? e.getCause().getMessage() : e.getMessage();
+            job.status = Status.FAILED;
+            deleteQuietly(part);
+            logger.log(Level.WARNING, "❌ Report job " + job.getId() + " failed", e);
+        } finally {
+            if (workbook != null) workbook.dispose();
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private Future<AttendanceMonthGrid> loadGrid(String sectionId, ReportJobRequest r) {
+        return sectionExecutor.submit(() -> attendanceService.getSectionMonthGrid(sectionId, r.getYear(), r.getMonth()));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Removed on the next purge / restart
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.CardOwner;
+import com.rfid.tracker.entity.RfidCard;
+import com.rfid.tracker.entity.Staff;
+import com.rfid.tracker.entity.Student;
+import com.rfid.tracker.repository.RfidCardRepository;
+import com.rfid.tracker.repository.StaffRepository;
+import com.rfid.tracker.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Card UID → owner cache for the scan hot path.
+ *
+ * Warmed with every active card at startup, re-warmed periodically as a safety net for
+ * bulk SQL edits, and invalidated by {@link CardOwnerCacheListener} whenever an
+ * RfidCard, Student or Staff change commits through JPA.
+ *
+ * Every invalidation is stamped with a generation. A warm-up or miss that started loading before
+ * a stamp does not cache the owners that stamp covers, so a row read just before a commit can
+ * never overwrite the invalidation that followed it.
+ */
+@Service
+public class RfidCardResolutionCache {
+
+    private static final Logger logger = Logger.getLogger(RfidCardResolutionCache.class.getName());
+
+    @Autowired
+    private RfidCardRepository rfidCardRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    // Stamps only need to outlive the loads that were running when they were made
+    private static final long STAMP_RETENTION_MS = 10 * 60 * 1000L;
+
+    private final ConcurrentHashMap<String, CardOwner> ownersByUid = new ConcurrentHashMap<>();
+
+    // "uid:<uid>", "card:<id>", "<USER_TYPE>:<userId>" -> last invalidation
+    private final ConcurrentHashMap<String, Stamp> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile LocalDateTime lastWarmAt;
+
+    private static final class Stamp {
+        final long generation;
+        final long at = System.currentTimeMillis();
+
+        Stamp(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        warm();
+    }
+
+    // ✅ Re-warm every 30 minutes in case cards were edited outside JPA
+    @Scheduled(fixedDelay = 1800000, initialDelay = 1800000)
+    public void scheduledRewarm() {
+        warm();
+    }
+
+    public void warm() {
+        try {
+            long loadGeneration = generation.get();
+            List<RfidCard> cards = rfidCardRepository.findAll().stream()
+                    .filter(c -> Boolean.TRUE.equals(c.getIsActive()))
+                    .collect(Collectors.toList());
+
+            Map<String, CardOwner> loaded = loadOwners(cards);
+
+            // Drop entries for cards that are no longer active, then refresh the rest
+            ownersByUid.keySet().retainAll(loaded.keySet());
+            for (CardOwner owner : loaded.values()) {
+                cacheIfCurrent(owner, loadGeneration);
+            }
+            long cutoff = System.currentTimeMillis() - STAMP_RETENTION_MS;
+            invalidatedAt.values().removeIf(stamp -> stamp.at < cutoff);
+            lastWarmAt = LocalDateTime.now();
+
+            logger.info("✅ RFID card cache warmed with " + loaded.size() + " cards");
+        } catch (Exception e) {
+            logger.warning("⚠️ RFID card cache warm-up failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve the owner of an active card. Falls back to MySQL on a miss and caches the result.
+     */
+    public Optional<CardOwner> resolve(String cardUid) {
+        if (cardUid == null) {
+            return Optional.empty();
+        }
+
+        CardOwner owner = ownersByUid.get(cardUid);
+        if (owner != null) {
+            hits.increment();
+            return Optional.of(owner);
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Optional<RfidCard> card = rfidCardRepository.findByCardUidAndIsActiveTrue(cardUid);
+        if (card.isEmpty()) {
+            return Optional.empty();
+        }
+
+        owner = loadOwners(List.of(card.get())).get(cardUid);
+        if (owner == null) {
+            loadFailures.increment();
+            return Optional.empty();
+        }
+        cacheIfCurrent(owner, loadGeneration);
+        return Optional.of(owner);
+    }
+
+    /**
+     * Bulk resolve for batch ingest. Misses are loaded with IN queries in one go.
+     */
+    public Map<String, CardOwner> resolveAll(Collection<String> cardUids) {
+        Map<String, CardOwner> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String uid : cardUids) {
+            if (uid == null) continue;
+            CardOwner owner = ownersByUid.get(uid);
+            if (owner != null) {
+                hits.increment();
+                result.put(uid, owner);
+            } else {
+                misses.increment();
+                missing.add(uid);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long loadGeneration = generation.get();
+            Map<String, CardOwner> loaded = loadOwners(rfidCardRepository.findByCardUidInAndIsActiveTrue(missing));
+            for (CardOwner owner : loaded.values()) {
+                cacheIfCurrent(owner, loadGeneration);
+            }
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    public void invalidateCard(Long cardId, String cardUid) {
+        // Stamp before removing, so a load that caches after the removal sees it
+        Stamp stamp = new Stamp(generation.incrementAndGet());
+        if (cardUid != null) {
+            invalidatedAt.put("uid:" + cardUid, stamp);
+            ownersByUid.remove(cardUid);
+        }
+        // The UID itself may have been edited, so also drop by primary key
+        if (cardId != null) {
+            invalidatedAt.put("card:" + cardId, stamp);
+            ownersByUid.values().removeIf(o -> cardId.equals(o.getCardId()));
+        }
+        invalidations.increment();
+    }
+
+    public void invalidateUser(RfidCard.UserType userType, Long userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidatedAt.put(userType + ":" + userId, new Stamp(generation.incrementAndGet()));
+        ownersByUid.values().removeIf(o -> o.getUserType() == userType && userId.equals(o.getUserId()));
+        invalidations.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", ownersByUid.size());
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("lastWarmAt", lastWarmAt != null ? lastWarmAt.toString() : null);
+        return stats;
+    }
+
+    /**
+     * Cache an owner loaded from MySQL unless it was invalidated after the load started.
+     */
+    private void cacheIfCurrent(CardOwner owner, long loadGeneration) {
+        if (invalidatedSince(owner, loadGeneration)) return;
+        ownersByUid.put(owner.getCardUid(), owner);
+        // An invalidation between the check and the put has already stamped; take the put back
+        if (invalidatedSince(owner, loadGeneration)) {
+            ownersByUid.remove(owner.getCardUid(), owner);
+        }
+    }
+
+    private boolean invalidatedSince(CardOwner owner, long loadGeneration) {
+        return isStampedAfter("uid:" + owner.getCardUid(), loadGeneration)
+                || isStampedAfter("card:" + owner.getCardId(), loadGeneration)
+                || isStampedAfter(owner.getUserType() + ":" + owner.getUserId(), loadGeneration);
+    }
+
+    private boolean isStampedAfter(String key, long loadGeneration) {
+        Stamp stamp = invalidatedAt.get(key);
+        return stamp != null && stamp.generation > loadGeneration;
+    }
+
+    private Map<String, CardOwner> loadOwners(List<RfidCard> cards) {
+        Set<Long> studentIds = new HashSet<>();
+        Set<Long> staffIds = new HashSet<>();
+        for (RfidCard c : cards) {
+            if (c.getUserType() == RfidCard.UserType.STUDENT) studentIds.add(c.getUserId());
+            else staffIds.add(c.getUserId());
+        }
+
+        Map<Long, Student> students = studentIds.isEmpty() ? Map.of() :
+                studentRepository.findAllById(studentIds).stream()
+                        .collect(Collectors.toMap(Student::getId, Function.identity()));
+        Map<Long, Staff> staff = staffIds.isEmpty() ? Map.of() :
+                staffRepository.findAllById(staffIds).stream()
+                        .collect(Collectors.toMap(Staff::getId, Function.identity()));
+
+        Map<String, CardOwner> owners = new HashMap<>();
+        for (RfidCard c : cards) {
+            if (c.getUserType() == RfidCard.UserType.STUDENT) {
+                Student s = students.get(c.getUserId());
+                if (s != null) {
+                    owners.put(c.getCardUid(), new CardOwner(c.getId(), c.getCardUid(), c.getUserType(), s.getId(),
+                            s.getRegistrationNumber(), s.getName(), s.getSectionId(), s.getBranch(), s.getEmail(), null));
+                }
+            } else {
+                Staff s = staff.get(c.getUserId());
+                if (s != null) {
+                    owners.put(c.getCardUid(), new CardOwner(c.getId(), c.getCardUid(), c.getUserType(), s.getId(),
+                            s.getStaffId(), s.getName(), null, s.getBranch(), s.getEmail(), s.getPhone()));
+                }
+            }
+        }
+        return owners;
+    }
+}
@@ -0,0 +1,351 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.*;
+import com.rfid.tracker.entity.*;
+import com.rfid.tracker.repository.*;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Processes a batch of RFID / fingerprint events from a reader.
+ *
+ * Card owners come from {@link RfidCardResolutionCache}; the remaining lookups (templates,
+ * students, staff, existing morning logs) are done once per batch with IN queries. Student period
+ * scans are checked against {@link DailyAttendanceTally} and go through {@link PeriodLogWriteBehindQueue};
+ * morning check-ins are inserted with saveAll.
+ * Events are replayed in scan order, so a device that was offline can upload its buffer
+ * and get the same outcome as if every tap had been sent live.
+ *
+ * Staff class entries and evening check-outs are rare compared to student taps and carry
+ * alert / finalization side effects, so those are delegated to {@link HardwareIntegrationService}.
+ *
+ * There is no transaction around the whole batch: each delegated event and each saveAll of
+ * morning check-ins commits on its own (REQUIRES_NEW), so one failing event only fails its own
+ * result and never rolls back, or turns into a 500 for, the events already answered.
+ */
+@Service
+public class ScanBatchService {
+
+    @Autowired
+    private HardwareIntegrationService hardwareIntegrationService;
+
+    @Autowired
+    private RfidCardResolutionCache rfidCardResolutionCache;
+
+    @Autowired
+    private FingerprintTemplateRepository fingerprintTemplateRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Autowired
+    private DailyAttendanceTally dailyAttendanceTally;
+
+    @Autowired
+    private MorningFingerprintLogRepository morningFingerprintLogRepository;
+
+    @Autowired
+    private PeriodLogWriteBehindQueue periodLogWriteBehindQueue;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate eventTransaction;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final String RFID = "RFID";
+    private static final String FINGERPRINT = "FINGERPRINT";
+
+    /**
+     * One parsed event of the batch. Ordering is by scan date/time, falling back to
+     * the position in the upload so events with the same timestamp keep device order.
+     */
+    private static class BatchEvent {
+        final String type;
+        final int index;
+        final int seq;
+        final LocalDate date;
+        final LocalTime time;
+        final RFIDScanRequest rfid;
+        final FingerprintScanRequest fingerprint;
+
+        BatchEvent(String type, int index, int seq, LocalDate date, LocalTime time,
+                   RFIDScanRequest rfid, FingerprintScanRequest fingerprint) {
+            this.type = type;
+            this.index = index;
+            this.seq = seq;
+            this.date = date;
+            this.time = time;
+            this.rfid = rfid;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Morning check-ins waiting for their saveAll, with the result slots that report them.
+     */
+    private static class PendingMorningLogs {
+        final List<MorningFingerprintLog> logs = new ArrayList<>();
+        final List<Integer> resultSlots = new ArrayList<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        eventTransaction = new TransactionTemplate(transactionManager);
+        eventTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public HardwareResponseDTO processBatch(ScanBatchRequest request) {
+        List<RFIDScanRequest> rfidScans = request.getRfidScans() != null ? request.getRfidScans() : List.of();
+        List<FingerprintScanRequest> fpScans = request.getFingerprintScans() != null ? request.getFingerprintScans() : List.of();
+
+        int total = rfidScans.size() + fpScans.size();
+        if (total == 0) {
+            return new HardwareResponseDTO("ERROR", "Batch contains no scan events");
+        }
+        if (total > MAX_BATCH_SIZE) {
+            return new HardwareResponseDTO("ERROR",
+                    String.format("Batch too large: %d events (max %d)", total, MAX_BATCH_SIZE));
+        }
+
+        // Results are indexed RFID first, then FINGERPRINT, matching the request lists
+        ScanEventResult[] results = new ScanEventResult[total];
+        List<BatchEvent> events = new ArrayList<>(total);
+
+        for (int i = 0; i < rfidScans.size(); i++) {
+            RFIDScanRequest scan = rfidScans.get(i);
+            if (scan.getDeviceId() == null) scan.setDeviceId(request.getDeviceId());
+            try {
+                events.add(new BatchEvent(RFID, i, i,
+                        LocalDate.parse(scan.getScanDate(), DATE_FORMATTER),
+                        LocalTime.parse(scan.getScanTime(), TIME_FORMATTER), scan, null));
+            } catch (Exception e) {
+                results[i] = new ScanEventResult(RFID, i,
+                        new HardwareResponseDTO("ERROR", "Invalid scan date/time: " + e.getMessage()));
+            }
+        }
+        for (int i = 0; i < fpScans.size(); i++) {
+            FingerprintScanRequest scan = fpScans.get(i);
+            if (scan.getDeviceId() == null) scan.setDeviceId(request.getDeviceId());
+            int seq = rfidScans.size() + i;
+            try {
+                events.add(new BatchEvent(FINGERPRINT, i, seq,
+                        LocalDate.parse(scan.getScanDate(), DATE_FORMATTER),
+                        LocalTime.parse(scan.getScanTime(), TIME_FORMATTER), null, scan));
+            } catch (Exception e) {
+                results[seq] = new ScanEventResult(FINGERPRINT, i,
+                        new HardwareResponseDTO("ERROR", "Invalid scan date/time: " + e.getMessage()));
+            }
+        }
+
+        events.sort(Comparator.comparing((BatchEvent e) -> e.date)
+                .thenComparing(e -> e.time)
+                .thenComparingInt(e -> e.seq));
+
+        // ===== Bulk lookups =====
+        Set<LocalDate> dates = events.stream().map(e -> e.date).collect(Collectors.toSet());
+
+        Set<String> cardUids = events.stream().filter(e -> e.rfid != null && e.rfid.getCardUid() != null)
+                .map(e -> e.rfid.getCardUid()).collect(Collectors.toSet());
+        Map<String, CardOwner> ownersByUid = cardUids.isEmpty() ? Map.of() :
+                rfidCardResolutionCache.resolveAll(cardUids);
+
+        Set<Integer> fingerprintIds = events.stream().filter(e -> e.fingerprint != null && e.fingerprint.getFingerprintId() != null)
+                .map(e -> e.fingerprint.getFingerprintId()).collect(Collectors.toSet());
+        Map<Integer, FingerprintTemplate> templatesById = fingerprintIds.isEmpty() ? Map.of() :
+                fingerprintTemplateRepository.findByFingerprintIdIn(fingerprintIds).stream()
+                        .collect(Collectors.toMap(FingerprintTemplate::getFingerprintId, Function.identity(), (a, b) -> a));
+
+        // Students / staff behind fingerprint templates, for the response user info
+        Set<String> fpStudentRegNos = new HashSet<>();
+        Set<String> fpStaffIds = new HashSet<>();
+        for (FingerprintTemplate t : templatesById.values()) {
+            if (t.getUserType() == FingerprintTemplate.UserType.STUDENT) fpStudentRegNos.add(t.getUserIdentifier());
+            else fpStaffIds.add(t.getUserIdentifier());
+        }
+        Map<String, Student> studentsByRegNo = fpStudentRegNos.isEmpty() ? Map.of() :
+                studentRepository.findByRegistrationNumberIn(fpStudentRegNos).stream()
+                        .collect(Collectors.toMap(Student::getRegistrationNumber, Function.identity(), (a, b) -> a));
+        Map<String, Staff> staffByStaffId = fpStaffIds.isEmpty() ? Map.of() :
+                staffRepository.findByStaffIdIn(fpStaffIds).stream()
+                        .collect(Collectors.toMap(Staff::getStaffId, Function.identity(), (a, b) -> a));
+
+        Set<String> checkedIn = new HashSet<>();
+        Set<String> templateIdentifiers = templatesById.values().stream()
+                .map(FingerprintTemplate::getUserIdentifier).collect(Collectors.toSet());
+        if (!templateIdentifiers.isEmpty()) {
+            for (MorningFingerprintLog m : morningFingerprintLogRepository
+                    .findByUserIdentifierInAndScanDateIn(templateIdentifiers, dates)) {
+                checkedIn.add(morningKey(m.getUserIdentifier(), m.getScanDate(), m.getUserType()));
+            }
+        }
+
+        // ===== Replay in scan order =====
+        PendingMorningLogs pendingMorningLogs = new PendingMorningLogs();
+
+        for (BatchEvent event : events) {
+            int slot = RFID.equals(event.type) ? event.index : rfidScans.size() + event.index;
+            HardwareResponseDTO response;
+            try {
+                if (event.rfid != null) {
+                    CardOwner owner = ownersByUid.get(event.rfid.getCardUid());
+                    if (owner == null) {
+                        response = new HardwareResponseDTO("ERROR", "RFID card not enrolled in system");
+                    } else if (owner.isStudent()) {
+                        response = acceptStudentScan(owner, event);
+                    } else {
+                        // Staff entries check the timetable and may raise late alerts
+                        flush(pendingMorningLogs, results, checkedIn);
+                        response = eventTransaction.execute(tx -> hardwareIntegrationService.processRFIDScan(event.rfid));
+                    }
+                } else {
+                    FingerprintTemplate template = templatesById.get(event.fingerprint.getFingerprintId());
+                    if (template == null) {
+                        response = new HardwareResponseDTO("ERROR", "Fingerprint not found in database");
+                    } else if (!event.time.isBefore(HardwareIntegrationService.LOGOUT_TIME_START)) {
+                        // Evening check-out finalizes the day, so everything before it must be persisted
+                        flush(pendingMorningLogs, results, checkedIn);
+                        response = eventTransaction.execute(tx -> hardwareIntegrationService.processFingerprint(event.fingerprint));
+                    } else {
+                        response = acceptMorningScan(template, event, slot, checkedIn, pendingMorningLogs,
+                                studentsByRegNo, staffByStaffId);
+                    }
+                }
+            } catch (Exception e) {
+                response = new HardwareResponseDTO("ERROR", "Error processing scan: " + e.getMessage());
+            }
+
+            results[slot] = new ScanEventResult(event.type, event.index, response);
+        }
+
+        flush(pendingMorningLogs, results, checkedIn);
+
+        long accepted = Arrays.stream(results)
+                .filter(r -> !"ERROR".equals(r.getStatus()) && !"RETRY".equals(r.getStatus())).count();
+        System.out.println(">>> BATCH PROCESSED: " + total + " events, " + accepted + " accepted (device "
+                + request.getDeviceId() + ")");
+
+        return new HardwareResponseDTO("SUCCESS",
+                String.format("Batch processed: %d accepted, %d rejected", accepted, total - accepted),
+                Arrays.asList(results));
+    }
+
+    private HardwareResponseDTO acceptStudentScan(CardOwner student, BatchEvent event) {
+        String timeSlot = hardwareIntegrationService.getCurrentTimeSlot(student.getSectionId(), event.date, event.time);
+        if (timeSlot == null) {
+            return new HardwareResponseDTO("ERROR", "No class scheduled for this time");
+        }
+
+        String regNo = student.getIdentifier();
+        // The running tally already holds persisted, queued and earlier-in-this-batch scans
+        if (dailyAttendanceTally.hasPeriod(regNo, event.date, timeSlot)) {
+            return new HardwareResponseDTO("ERROR", "Already scanned for this period");
+        }
+
+        PeriodAttendanceLog log = new PeriodAttendanceLog(regNo, student.getSectionId(),
+                event.date, event.time, timeSlot);
+        log.setRoomNumber(event.rfid.getRoomNumber());
+        log.setDayOfWeek(event.date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH));
+        if (!periodLogWriteBehindQueue.offer(log)) {
+            return new HardwareResponseDTO("RETRY", "Server busy, please resend this scan");
+        }
+
+        int periodCount = dailyAttendanceTally.periodCount(regNo, event.date);
+
+        UserInfoDTO userInfo = new UserInfoDTO(student.getUserId().toString(), regNo, student.getName(), "STUDENT");
+        userInfo.setSectionId(student.getSectionId());
+        userInfo.setBranch(student.getBranch());
+
+        return new HardwareResponseDTO("SUCCESS",
+                String.format("Student attendance recorded: %s (%d/7 periods)", timeSlot, periodCount), userInfo);
+    }
+
+    private HardwareResponseDTO acceptMorningScan(FingerprintTemplate template, BatchEvent event, int resultSlot,
+                                                  Set<String> checkedIn, PendingMorningLogs pending,
+                                                  Map<String, Student> studentsByRegNo,
+                                                  Map<String, Staff> staffByStaffId) {
+        boolean isStudent = template.getUserType() == FingerprintTemplate.UserType.STUDENT;
+        MorningFingerprintLog.UserType userType = isStudent ?
+                MorningFingerprintLog.UserType.STUDENT : MorningFingerprintLog.UserType.STAFF;
+
+        if (!checkedIn.add(morningKey(template.getUserIdentifier(), event.date, userType))) {
+            return new HardwareResponseDTO("ERROR", "Morning fingerprint already recorded today");
+        }
+
+        MorningFingerprintLog.Status status = event.time.isBefore(HardwareIntegrationService.MORNING_ATTENDANCE_END) ?
+                MorningFingerprintLog.Status.ON_TIME :
+                MorningFingerprintLog.Status.LATE;
+
+        MorningFingerprintLog log = new MorningFingerprintLog();
+        log.setUserType(userType);
+        log.setUserIdentifier(template.getUserIdentifier());
+        log.setFingerprintId(event.fingerprint.getFingerprintId());
+        log.setScanDate(event.date);
+        log.setScanTime(event.time);
+        log.setStatus(status);
+        pending.logs.add(log);
+        pending.resultSlots.add(resultSlot);
+
+        UserInfoDTO userInfo = null;
+        if (isStudent) {
+            Student s = studentsByRegNo.get(template.getUserIdentifier());
+            if (s != null) {
+                userInfo = new UserInfoDTO(s.getId().toString(), s.getRegistrationNumber(), s.getName(), "STUDENT");
+                userInfo.setSectionId(s.getSectionId());
+                userInfo.setBranch(s.getBranch());
+                userInfo.setEmail(s.getEmail());
+            }
+        } else {
+            Staff s = staffByStaffId.get(template.getUserIdentifier());
+            if (s != null) {
+                userInfo = new UserInfoDTO(s.getId().toString(), s.getStaffId(), s.getName(), "STAFF");
+                userInfo.setBranch(s.getBranch());
+                userInfo.setEmail(s.getEmail());
+            }
+        }
+
+        return new HardwareResponseDTO("SUCCESS", "Morning check-in recorded: " + status.toString(), userInfo);
+    }
+
+    private void flush(PendingMorningLogs pending, ScanEventResult[] results, Set<String> checkedIn) {
+        if (pending.logs.isEmpty()) return;
+        try {
+            eventTransaction.executeWithoutResult(tx -> morningFingerprintLogRepository.saveAll(pending.logs));
+        } catch (Exception e) {
+            // Nothing of this saveAll was committed: report those check-ins as failed, not recorded
+            for (int i = 0; i < pending.logs.size(); i++) {
+                MorningFingerprintLog log = pending.logs.get(i);
+                checkedIn.remove(morningKey(log.getUserIdentifier(), log.getScanDate(), log.getUserType()));
+                ScanEventResult result = results[pending.resultSlots.get(i)];
+                result.setStatus("ERROR");
+                result.setMessage("Error saving morning check-in: " + e.getMessage());
+                result.setData(null);
+            }
+        } finally {
+            pending.logs.clear();
+            pending.resultSlots.clear();
+        }
+    }
+
+    private static String morningKey(String identifier, LocalDate date, MorningFingerprintLog.UserType userType) {
+        return userType + "|" + identifier + "|" + date;
+    }
+}
@@ -0,0 +1,278 @@
+package com.rfid.tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rfid.tracker.entity.VerificationCode;
+import com.rfid.tracker.repository.VerificationCodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-section push channel for verification code windows.
+ *
+ * Every section keeps its current valid code in memory. A section is loaded from MySQL once, on
+ * first use; after that new codes arrive through {@link VerificationCodeWriteListener} and are
+ * dropped again by a timer at their validUntil, so active-code reads never hit the database.
+ *
+ * Students subscribe to their section over Server-Sent Events: a "code" event when a window opens
+ * (and on connect while one is open), "expired" when it closes, "idle" on connect otherwise. One
+ * publish is serialized once and written to every subscriber of the section. The code value
+ * itself is not pushed; students still get it from the staff member in class.
+ *
+ * Sends, timers and subscriber lists run on one thread, so a section's events stay in order.
+ */
+@Service
+public class SectionCodeChannel {
+
+    private static final Logger logger = Logger.getLogger(SectionCodeChannel.class.getName());
+
+    @Autowired
+    private VerificationCodeRepository verificationCodeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.code-push.stream-timeout-minutes:60}")
+    private long streamTimeoutMinutes;
+
+    private ScheduledExecutorService pusher;
+
+    private final ConcurrentHashMap<String, Section> sections = new ConcurrentHashMap<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    private static final class Section {
+        final String sectionId;
+        final List<SseEmitter> subscribers = new ArrayList<>();   // pusher thread only
+        ScheduledFuture<?> expiry;                                 // pusher thread only
+        volatile VerificationCode current;
+        volatile boolean loaded;
+
+        Section(String sectionId) {
+            this.sectionId = sectionId;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        pusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "section-code-push");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pusher.shutdownNow();
+    }
+
+    // ========== READS ==========
+
+    /**
+     * The section's code that is valid right now, if any.
+     */
+    public Optional<VerificationCode> current(String sectionId) {
+        if (sectionId == null) return Optional.empty();
+        Section section = load(sectionId);
+        VerificationCode code = section.current;
+        return code != null && code.getValidUntil().isAfter(LocalDateTime.now()) ? Optional.of(code) : Optional.empty();
+    }
+
+    /**
+     * Open a stream for one section; the current state is sent first.
+     */
+    public SseEmitter subscribe(String sectionId) {
+        Section section = load(sectionId);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMinutes * 60_000L);
+        Runnable remove = () -> pusher.execute(() -> section.subscribers.remove(emitter));
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        pusher.execute(() -> {
+            try {
+                VerificationCode code = section.current;
+                if (code != null && code.getValidUntil().isAfter(LocalDateTime.now())) {
+                    emitter.send(SseEmitter.event().name("code").data(objectMapper.writeValueAsString(describe(code))));
+                } else {
+                    emitter.send(SseEmitter.event().name("idle").data(objectMapper.writeValueAsString(idle(sectionId))));
+                }
+                section.subscribers.add(emitter);
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Payload of a "code" event and of the active-code endpoints (without the code value).
+     */
+    public static Map<String, Object> describe(VerificationCode code) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sectionId", code.getSectionId());
+        payload.put("codeActive", true);
+        payload.put("className", code.getClassName());
+        payload.put("staffId", code.getStaffId());
+        payload.put("generatedTime", code.getGeneratedTime().toString());
+        payload.put("validUntil", code.getValidUntil().toString());
+        payload.put("minutesRemaining", Math.max(0, ChronoUnit.MINUTES.between(LocalDateTime.now(), code.getValidUntil())));
+        return payload;
+    }
+
+    // ========== WRITES ==========
+
+    /**
+     * A new code was committed: make it the section's current code and push it to the section.
+     */
+    public void publish(VerificationCode code) {
+        if (code.getSectionId() == null || code.getValidUntil() == null) return;
+        Section section = sections.computeIfAbsent(code.getSectionId(), Section::new);
+        synchronized (section) {
+            section.current = code;
+            section.loaded = true;
+        }
+        published.increment();
+        pusher.execute(() -> {
+            scheduleExpiry(section, code);
+            broadcast(section, "code", describe(code));
+        });
+        logger.info("📣 Code window opened for section " + code.getSectionId() + " until " + code.getValidUntil());
+    }
+
+    /**
+     * The code's row was deleted: close the section's window if it is the current code.
+     */
+    public void withdraw(String sectionId, String code) {
+        Section section = sectionId != null ? sections.get(sectionId) : null;
+        if (section == null || code == null) return;
+        synchronized (section) {
+            if (section.current == null || !code.equals(section.current.getCode())) return;
+            section.current = null;
+        }
+        pusher.execute(() -> {
+            if (section.expiry != null) section.expiry.cancel(false);
+            section.expiry = null;
+            broadcast(section, "expired", idle(section.sectionId));
+        });
+        logger.info("🗑️ Code window withdrawn for section " + sectionId);
+    }
+
+    // Keeps proxies from closing idle streams and notices students that went away
+    @Scheduled(fixedDelayString = "${app.code-push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        pusher.execute(() -> {
+            for (Section section : sections.values()) {
+                for (SseEmitter emitter : new ArrayList<>(section.subscribers)) {
+                    try {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } catch (Exception e) {
+                        section.subscribers.remove(emitter);
+                        emitter.completeWithError(e);
+                    }
+                }
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sections", sections.size());
+        stats.put("activeCodes", sections.values().stream().filter(s -> s.current != null).count());
+        stats.put("subscribers", sections.values().stream().mapToInt(s -> s.subscribers.size()).sum());
+        stats.put("published", published.sum());
+        stats.put("expired", expired.sum());
+        stats.put("deliveries", deliveries.sum());
+        stats.put("loads", loads.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    private Section load(String sectionId) {
+        Section section = sections.computeIfAbsent(sectionId, Section::new);
+        if (section.loaded) return section;
+        synchronized (section) {
+            if (!section.loaded) {
+                // A code published meanwhile is newer than anything the query can return
+                Optional<VerificationCode> stored = verificationCodeRepository
+                        .findFirstBySectionIdAndValidUntilAfterOrderByGeneratedTimeDesc(sectionId, LocalDateTime.now());
+                if (section.current == null && stored.isPresent()) {
+                    VerificationCode code = stored.get();
+                    section.current = code;
+                    pusher.execute(() -> scheduleExpiry(section, code));
+                }
+                section.loaded = true;
+                loads.increment();
+            }
+        }
+        return section;
+    }
+
+    private void scheduleExpiry(Section section, VerificationCode code) {
+        if (section.expiry != null) section.expiry.cancel(false);
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), code.getValidUntil()).toMillis());
+        section.expiry = pusher.schedule(() -> expire(section, code), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void expire(Section section, VerificationCode code) {
+        synchronized (section) {
+            if (section.current != code) return;
+            section.current = null;
+        }
+        section.expiry = null;
+        expired.increment();
+        Map<String, Object> payload = idle(section.sectionId);
+        payload.put("className", code.getClassName());
+        payload.put("expiredAt", code.getValidUntil().toString());
+        broadcast(section, "expired", payload);
+    }
+
+    private void broadcast(Section section, String name, Map<String, Object> payload) {
+        if (section.subscribers.isEmpty()) return;
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Could not serialize code event for section " + section.sectionId, e);
+            return;
+        }
+        for (SseEmitter emitter : new ArrayList<>(section.subscribers)) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(json));
+                deliveries.increment();
+            } catch (Exception e) {
+                section.subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static Map<String, Object> idle(String sectionId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sectionId", sectionId);
+        payload.put("codeActive", false);
+        return payload;
+    }
+}
@@ -0,0 +1,204 @@
+package com.rfid.tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rfid.tracker.dto.StaffAlertEvent;
+import com.rfid.tracker.repository.StaffLateAlertRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-Sent Events stream of staff late alerts for the admin dashboard.
+ *
+ * A new connection gets one "snapshot" event with the unacknowledged alerts; after that every
+ * committed {@link StaffAlertEvent} is pushed as an "alert" event. Event ids are
+ * {@code <boot>-<sequence>}, and the last app.alerts.replay-size events are kept, so a client that
+ * reconnects with Last-Event-ID only receives what it missed. An unknown or too old id (e.g. after
+ * a restart) falls back to a fresh snapshot. Idle dashboards cost a comment line per heartbeat.
+ *
+ * All sends, the replay buffer and snapshot queries run on one dispatcher thread, so each client
+ * sees events in commit order and a snapshot never overtakes a change that was pushed after it.
+ */
+@Service
+public class StaffAlertStreamService {
+
+    private static final Logger logger = Logger.getLogger(StaffAlertStreamService.class.getName());
+
+    @Autowired
+    private StaffLateAlertRepository staffLateAlertRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.alerts.replay-size:500}")
+    private int replaySize;
+
+    @Value("${app.alerts.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes;
+
+    // Ids from a previous run never match, so those clients get a snapshot
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private ExecutorService dispatcher;
+
+    // Dispatcher thread only
+    private final ArrayDeque<Entry> replay = new ArrayDeque<>();
+    private final List<SseEmitter> subscribers = new ArrayList<>();
+    private long sequence;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder resumes = new LongAdder();
+
+    private static final class Entry {
+        final long seq;
+        final String json;
+
+        Entry(long seq, String json) {
+            this.seq = seq;
+            this.json = json;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread t = new Thread(runnable, "staff-alert-stream");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Open a stream, resuming after lastEventId when it is still in the replay buffer.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMinutes * 60_000L);
+        Runnable remove = () -> dispatcher.execute(() -> subscribers.remove(emitter));
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        dispatcher.execute(() -> {
+            try {
+                long resumeAfter = resumePoint(lastEventId);
+                if (resumeAfter >= 0) {
+                    for (Entry entry : replay) {
+                        if (entry.seq > resumeAfter) sendAlert(emitter, entry);
+                    }
+                    resumes.increment();
+                } else {
+                    emitter.send(SseEmitter.event()
+                            .id(eventId(sequence))
+                            .name("snapshot")
+                            .data(objectMapper.writeValueAsString(
+                                    staffLateAlertRepository.findByAdminAcknowledgedFalseOrderByCreatedAtDesc())));
+                    snapshots.increment();
+                }
+                subscribers.add(emitter);
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    @EventListener
+    public void onAlertChange(StaffAlertEvent event) {
+        String json;
+        try {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", event.getType().name());
+            payload.put("alert", event.getAlert());
+            json = objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Could not serialize staff alert event", e);
+            return;
+        }
+
+        dispatcher.execute(() -> {
+            Entry entry = new Entry(++sequence, json);
+            replay.addLast(entry);
+            while (replay.size() > replaySize) replay.removeFirst();
+            for (SseEmitter emitter : new ArrayList<>(subscribers)) {
+                try {
+                    sendAlert(emitter, entry);
+                } catch (Exception e) {
+                    subscribers.remove(emitter);
+                    emitter.completeWithError(e);
+                }
+            }
+            published.increment();
+        });
+    }
+
+    // Keeps proxies from closing idle streams and notices clients that went away
+    @Scheduled(fixedDelayString = "${app.alerts.heartbeat-ms:25000}")
+    public void heartbeat() {
+        dispatcher.execute(() -> {
+            for (SseEmitter emitter : new ArrayList<>(subscribers)) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (Exception e) {
+                    subscribers.remove(emitter);
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("published", published.sum());
+        stats.put("snapshots", snapshots.sum());
+        stats.put("resumes", resumes.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    /**
+     * Sequence to replay after, or -1 when the client needs a snapshot.
+     */
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(bootId + "-")) return -1;
+        long seq;
+        try {
+            seq = Long.parseLong(lastEventId.substring(bootId.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        long oldest = replay.isEmpty() ? sequence + 1 : replay.peekFirst().seq;
+        // Everything after seq must still be buffered
+        return seq <= sequence && seq >= oldest - 1 ? seq : -1;
+    }
+
+    private void sendAlert(SseEmitter emitter, Entry entry) throws Exception {
+        emitter.send(SseEmitter.event()
+                .id(eventId(entry.seq))
+                .name("alert")
+                .data(entry.json));
+    }
+
+    private String eventId(long seq) {
+        return bootId + "-" + seq;
+    }
+}
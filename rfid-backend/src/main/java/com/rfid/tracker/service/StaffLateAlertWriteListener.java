@@ -0,0 +1,58 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.StaffAlertEvent;
+import com.rfid.tracker.entity.StaffLateAlert;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on StaffLateAlert that publishes a {@link StaffAlertEvent} for every insert, update
+ * and delete once the write has committed. This covers every place alerts are created
+ * (EmailService, AttendanceService, HardwareIntegrationService) and the acknowledge / dismiss endpoints.
+ */
+@Component
+public class StaffLateAlertWriteListener {
+
+    @Autowired
+    @Lazy
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onCreate(StaffLateAlert alert) {
+        publishAfterCommit(new StaffAlertEvent(StaffAlertEvent.Type.CREATED, alert));
+    }
+
+    @PostUpdate
+    public void onUpdate(StaffLateAlert alert) {
+        publishAfterCommit(new StaffAlertEvent(alert.isAdminAcknowledged()
+                ? StaffAlertEvent.Type.ACKNOWLEDGED : StaffAlertEvent.Type.UPDATED, alert));
+    }
+
+    @PostRemove
+    public void onRemove(StaffLateAlert alert) {
+        publishAfterCommit(new StaffAlertEvent(StaffAlertEvent.Type.DISMISSED, alert));
+    }
+
+    private void publishAfterCommit(StaffAlertEvent event) {
+        if (eventPublisher == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventPublisher.publishEvent(event);
+            }
+        });
+    }
+}
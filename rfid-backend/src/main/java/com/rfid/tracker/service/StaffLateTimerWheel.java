@@ -0,0 +1,251 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.Timetable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Minute timer wheel for staff late detection (replaces the 15-minute full scan in EmailService).
+ *
+ * The wheel has one slot per minute of the day. When the day starts (and on startup) every class
+ * of the day is placed in the slot of start + app.staff.late.threshold; later timetable refreshes
+ * add or drop classes without touching deadlines that are already placed. Once a minute the wheel
+ * advances and fires the classes in the slots it passed.
+ *
+ * Staff RFID entries and morning fingerprints arrive from {@link StaffPresenceListener}. A class
+ * whose staff has both in {@link DailyStaffPresence} is cancelled and fires nothing, so a day where
+ * nobody is late costs no queries at all. A deadline that does fire goes through
+ * {@link EmailService#checkClassAndAlert}.
+ *
+ * Slots are only touched on the wheel thread; deadlines are also cancelled from presence events.
+ */
+@Service
+public class StaffLateTimerWheel {
+
+    private static final Logger logger = Logger.getLogger(StaffLateTimerWheel.class.getName());
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Autowired
+    private TimetableIndex timetableIndex;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private DailyStaffPresence dailyStaffPresence;
+
+    @Value("${app.staff.late.threshold:15}")
+    private int lateThreshold;
+
+    private ScheduledExecutorService ticker;
+
+    // Wheel thread only
+    private final List<List<Deadline>> slots = new ArrayList<>(Collections.nCopies(MINUTES_PER_DAY, null));
+    private long timetableVersion = -1;
+    private boolean started;
+
+    // Written by the wheel thread, read by presence events and stats; staff|slot -> deadline
+    private final ConcurrentHashMap<String, Deadline> deadlines = new ConcurrentHashMap<>();
+    private volatile LocalDate day;
+    private volatile int cursor = -1;   // last minute of the day already fired
+
+    private final LongAdder seeded = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+
+    private static final class Deadline {
+        final String key;
+        final Timetable classEntry;
+        volatile boolean live = true;
+
+        Deadline(String key, Timetable classEntry) {
+            this.key = key;
+            this.classEntry = classEntry;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "staff-late-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWheel() {
+        // First tick right after the next minute boundary, then once a minute
+        long delayMs = 60_000L - (System.currentTimeMillis() % 60_000L) + 50;
+        ticker.execute(this::safeTick);
+        ticker.scheduleAtFixedRate(this::safeTick, delayMs, 60_000L, TimeUnit.MILLISECONDS);
+    }
+
+    // ========== PRESENCE ==========
+
+    /**
+     * A staff member scanned in for a class period (already recorded in {@link DailyStaffPresence}).
+     */
+    public void onStaffEntry(String staffId, LocalDate date, String timeSlot) {
+        if (staffId == null || timeSlot == null || date == null) return;
+        cancelIfPresent(date, staffId, timeSlot);
+    }
+
+    /**
+     * A staff member gave the morning fingerprint (already recorded in {@link DailyStaffPresence}).
+     */
+    public void onMorningScan(String staffId, LocalDate date) {
+        if (staffId == null || date == null) return;
+        String prefix = staffId + "|";
+        for (String key : deadlines.keySet()) {
+            if (key.startsWith(prefix)) cancelIfPresent(date, staffId, key.substring(prefix.length()));
+        }
+    }
+
+    private void cancelIfPresent(LocalDate date, String staffId, String timeSlot) {
+        if (!date.equals(day) || !isPresent(date, staffId, timeSlot)) return;
+        Deadline deadline = deadlines.get(staffId + "|" + timeSlot);
+        if (deadline != null && deadline.live) {
+            deadline.live = false;
+            cancelled.increment();
+        }
+    }
+
+    private boolean isPresent(LocalDate date, String staffId, String timeSlot) {
+        return dailyStaffPresence.hasMorningScan(staffId, date) && dailyStaffPresence.hasEntry(staffId, date, timeSlot);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("day", day != null ? day.toString() : null);
+        stats.put("cursor", cursor >= 0 ? LocalTime.MIN.plusMinutes(cursor).toString() : null);
+        stats.put("pending", deadlines.values().stream().filter(d -> d.live).count());
+        stats.put("seeded", seeded.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("fired", fired.sum());
+        stats.put("alerts", alerts.sum());
+        return stats;
+    }
+
+    // ========== WHEEL THREAD ==========
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Staff late wheel tick failed", e);
+        }
+    }
+
+    private void tick() {
+        LocalDateTime now = LocalDateTime.now();
+        int minute = now.getHour() * 60 + now.getMinute();
+
+        if (!now.toLocalDate().equals(day)) {
+            if (day != null) advance(MINUTES_PER_DAY - 1);   // finish yesterday's last slots
+            startDay(now.toLocalDate(), minute);
+        } else if (timetableIndex.version() != timetableVersion) {
+            seed(minute);
+        }
+        advance(minute);
+    }
+
+    private void startDay(LocalDate today, int minute) {
+        day = today;
+        cursor = started ? -1 : minute - 1;   // after a restart only the classes still running are caught up
+        started = true;
+        deadlines.clear();
+        Collections.fill(slots, null);
+        seed(minute);
+    }
+
+    /**
+     * Place every class of the day that is not placed yet and drop the ones no longer scheduled.
+     */
+    private void seed(int minute) {
+        timetableVersion = timetableIndex.version();
+        Set<String> scheduled = new HashSet<>();
+        int placed = 0;
+        for (Timetable t : timetableIndex.findByDay(day.getDayOfWeek())) {
+            LocalTime start = t.getScheduledStartTime();
+            LocalTime end = t.getScheduledEndTime();
+            if (start == null || end == null || t.getStaffId() == null || t.getTimeSlot() == null) continue;
+
+            String key = t.getStaffId() + "|" + t.getTimeSlot();
+            scheduled.add(key);
+            if (deadlines.containsKey(key)) continue;
+
+            long due = start.toSecondOfDay() / 60 + lateThreshold;
+            int endMinute = end.toSecondOfDay() / 60;
+            // Past the class end (or past midnight) there is nothing left to detect
+            if (due >= MINUTES_PER_DAY || endMinute <= minute) continue;
+            if (isPresent(day, t.getStaffId(), t.getTimeSlot())) continue;
+
+            Deadline deadline = new Deadline(key, t);
+            deadlines.put(key, deadline);
+            // A threshold already passed (startup, timetable change) fires on the next tick
+            int slot = (int) Math.max(due, cursor + 1);
+            if (slots.get(slot) == null) slots.set(slot, new ArrayList<>());
+            slots.get(slot).add(deadline);
+            placed++;
+        }
+        for (Deadline deadline : deadlines.values()) {
+            if (!scheduled.contains(deadline.key)) deadline.live = false;
+        }
+        seeded.add(placed);
+        logger.info("⏱️ Staff late wheel: " + placed + " class deadlines placed for " + day);
+    }
+
+    private void advance(int minute) {
+        while (cursor < minute) {
+            cursor++;
+            List<Deadline> due = slots.get(cursor);
+            if (due == null) continue;
+            slots.set(cursor, null);
+            for (Deadline deadline : due) {
+                if (deadline.live) fire(deadline);
+            }
+        }
+    }
+
+    private void fire(Deadline deadline) {
+        deadline.live = false;
+        Timetable t = deadline.classEntry;
+        LocalTime now = LocalTime.now();
+        if (!now.isBefore(t.getScheduledEndTime())) return;
+        fired.increment();
+        logger.info("⏰ " + t.getSubject() + " (" + t.getSectionId() + ") passed its late threshold at "
+                + t.getScheduledStartTime().plusMinutes(lateThreshold).truncatedTo(ChronoUnit.MINUTES)
+                + " without a scan from " + t.getStaffId());
+        try {
+            if (emailService.checkClassAndAlert(t, day, now)) alerts.increment();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Late check failed for " + t.getStaffId() + " at " + t.getTimeSlot(), e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.MorningFingerprintLog;
+import com.rfid.tracker.entity.StaffEntryLog;
+import jakarta.persistence.PostPersist;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on StaffEntryLog and MorningFingerprintLog. Once a staff scan is committed it is
+ * added to {@link DailyStaffPresence} and handed to {@link StaffLateTimerWheel}, which cancels that
+ * class's late deadline. Covers the RFID paths in AttendanceService, AttendanceController and
+ * HardwareIntegrationService, and the morning fingerprint paths.
+ */
+@Component
+public class StaffPresenceListener {
+
+    @Autowired
+    @Lazy
+    private DailyStaffPresence dailyStaffPresence;
+
+    @Autowired
+    @Lazy
+    private StaffLateTimerWheel staffLateTimerWheel;
+
+    @PostPersist
+    public void onInsert(Object entity) {
+        if (staffLateTimerWheel == null) {
+            return;
+        }
+        Runnable record;
+        if (entity instanceof StaffEntryLog entry) {
+            record = () -> {
+                dailyStaffPresence.recordEntry(entry.getStaffIdNumber(), entry.getEntryDate(), entry.getTimeSlot());
+                staffLateTimerWheel.onStaffEntry(entry.getStaffIdNumber(), entry.getEntryDate(), entry.getTimeSlot());
+            };
+        } else if (entity instanceof MorningFingerprintLog morning) {
+            record = () -> {
+                dailyStaffPresence.recordMorning(morning.getUserIdentifier(), morning.getScanDate());
+                staffLateTimerWheel.onMorningScan(morning.getUserIdentifier(), morning.getScanDate());
+            };
+        } else {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+}
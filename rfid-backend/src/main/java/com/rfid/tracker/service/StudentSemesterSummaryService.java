@@ -0,0 +1,394 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.dto.AttendanceChangeEvent;
+import com.rfid.tracker.entity.AttendanceStatus;
+import com.rfid.tracker.entity.AttendanceSummary;
+import com.rfid.tracker.entity.SemesterConfig;
+import com.rfid.tracker.entity.Student;
+import com.rfid.tracker.repository.AttendanceRepository;
+import com.rfid.tracker.repository.AttendanceSummaryRepository;
+import com.rfid.tracker.repository.SemesterConfigRepository;
+import com.rfid.tracker.repository.StudentRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Per-student semester attendance counters behind the live summary and attendance_summary.
+ *
+ * Counters are maintained by delta: every committed {@link AttendanceChangeEvent} is queued, and
+ * the queue is drained in batches every app.summary.flush-interval-ms. A batch adjusts the cached
+ * counters of each student it touches (a new row adds a day, PRESENT in / out adds / removes an
+ * attended day), then writes the new totals to attendance_summary and any DETAINED / CONDONATION /
+ * NORMAL change to students with JDBC batches. That is O(1) work per change.
+ *
+ * A student is counted from MySQL (one grouped query per semester window) only when it is first
+ * needed: on a live-summary read or the first event after startup. The cache is rebuilt nightly
+ * so any drift (e.g. a row committed between that seed query and its event) does not outlive a day.
+ *
+ * The read path ({@link #getLive}) never writes.
+ */
+@Service
+public class StudentSemesterSummaryService {
+
+    private static final Logger logger = Logger.getLogger(StudentSemesterSummaryService.class.getName());
+
+    // Same academic year the rest of the attendance code uses
+    public static final String CURRENT_ACADEMIC_YEAR = "2024-2025";
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private AttendanceSummaryRepository attendanceSummaryRepository;
+
+    @Autowired
+    private SemesterConfigRepository semesterConfigRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate flushTransaction;
+
+    private final ConcurrentHashMap<Long, LiveSummary> cache = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<AttendanceChangeEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final Set<Long> pendingSeeds = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder deltasApplied = new LongAdder();
+    private final LongAdder seeded = new LongAdder();
+
+    /**
+     * Immutable semester counters for one student.
+     */
+    public static final class LiveSummary {
+        private final long studentId;
+        private final Integer semester;
+        private final Integer year;
+        private final Long regulationId;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final long totalClasses;
+        private final long attendedClasses;
+
+        LiveSummary(Student student, Long regulationId, SemesterConfig config, long totalClasses, long attendedClasses) {
+            this(student.getId(), student.getSemester(), student.getYear(), regulationId,
+                    config.getStartDate(), config.getEndDate(), totalClasses, attendedClasses);
+        }
+
+        private LiveSummary(long studentId, Integer semester, Integer year, Long regulationId,
+                            LocalDate startDate, LocalDate endDate, long totalClasses, long attendedClasses) {
+            this.studentId = studentId;
+            this.semester = semester;
+            this.year = year;
+            this.regulationId = regulationId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.totalClasses = totalClasses;
+            this.attendedClasses = attendedClasses;
+        }
+
+        public long getStudentId() { return studentId; }
+        public Integer getSemester() { return semester; }
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public long getTotalClasses() { return totalClasses; }
+        public long getAttendedClasses() { return attendedClasses; }
+
+        public double getPercentage() {
+            double percentage = totalClasses > 0 ? (double) attendedClasses / totalClasses * 100 : 0.0;
+            return Math.round(percentage * 100.0) / 100.0;
+        }
+
+        public String getStatus() {
+            double percentage = totalClasses > 0 ? (double) attendedClasses / totalClasses * 100 : 0.0;
+            if (percentage < 65) return "DETAINED";
+            if (percentage < 75) return "CONDONATION";
+            return "NORMAL";
+        }
+
+        // Changes whenever the counters do; used as the HTTP ETag
+        public String getVersion() {
+            return Long.toHexString(studentId) + "-" + semester + "-" + totalClasses + "-" + attendedClasses;
+        }
+
+        boolean counts(LocalDate date) {
+            return !date.isBefore(startDate) && !date.isAfter(endDate) && !date.isAfter(LocalDate.now());
+        }
+
+        LiveSummary plus(long totalDelta, long attendedDelta) {
+            return new LiveSummary(studentId, semester, year, regulationId, startDate, endDate,
+                    totalClasses + totalDelta, attendedClasses + attendedDelta);
+        }
+
+        boolean matches(Student student, Long regulationId) {
+            return Objects.equals(semester, student.getSemester()) && Objects.equals(year, student.getYear())
+                    && Objects.equals(this.regulationId, regulationId);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        flushTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // ========== READ PATH ==========
+
+    /**
+     * Live summary for the student's current semester; empty when the semester is not configured.
+     * A miss is answered from MySQL and the student is seeded into the cache by the next flush.
+     */
+    public Optional<LiveSummary> getLive(Student student) {
+        Long regulationId = regulationOf(student);
+        LiveSummary cached = cache.get(student.getId());
+        if (cached != null && cached.matches(student, regulationId)) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+
+        Optional<SemesterConfig> config = configFor(student, regulationId);
+        if (config.isEmpty()) {
+            return Optional.empty();
+        }
+        long[] counts = countsFor(List.of(student.getId()), config.get()).getOrDefault(student.getId(), new long[2]);
+        pendingSeeds.add(student.getId());
+        return Optional.of(new LiveSummary(student, regulationId, config.get(), counts[0], counts[1]));
+    }
+
+    // ========== WRITE PATH ==========
+
+    @EventListener
+    public void onAttendanceChange(AttendanceChangeEvent event) {
+        if (event.isStudent() && event.getDate() != null && event.getStatus() != event.getPreviousStatus()) {
+            pendingEvents.add(event);
+        }
+    }
+
+    /**
+     * Drain queued events and seed requests. Only the flusher thread writes to the cache.
+     */
+    @Scheduled(fixedDelayString = "${app.summary.flush-interval-ms:1000}")
+    public void flush() {
+        if (pendingEvents.isEmpty() && pendingSeeds.isEmpty()) return;
+        try {
+            flushTransaction.executeWithoutResult(tx -> flushBatch());
+        } catch (Exception e) {
+            // The cache may be ahead of what was rolled back; count everyone from MySQL again
+            cache.clear();
+            logger.log(Level.WARNING, "⚠️ Semester summary flush failed, counters will be re-seeded", e);
+        }
+    }
+
+    private void flushBatch() {
+        // Sum the deltas per student
+        Map<Long, long[]> deltas = new LinkedHashMap<>();   // [total, attended]
+        Map<Long, List<LocalDate>> dates = new HashMap<>();
+        AttendanceChangeEvent event;
+        int drained = 0;
+        while (drained < BATCH_SIZE * 10 && (event = pendingEvents.poll()) != null) {
+            drained++;
+            long[] d = deltas.computeIfAbsent(event.getStudentId(), k -> new long[2]);
+            if (event.isNewRow()) d[0]++;
+            if (event.isDeletedRow()) d[0]--;
+            if (event.getStatus() == AttendanceStatus.PRESENT) d[1]++;
+            if (event.getPreviousStatus() == AttendanceStatus.PRESENT) d[1]--;
+            dates.computeIfAbsent(event.getStudentId(), k -> new ArrayList<>()).add(event.getDate());
+        }
+
+        // Students not cached yet are counted from MySQL, which already includes these events
+        Set<Long> toSeed = new LinkedHashSet<>();
+        for (Iterator<Long> it = pendingSeeds.iterator(); it.hasNext(); ) {
+            toSeed.add(it.next());
+            it.remove();
+        }
+        List<LiveSummary> changed = new ArrayList<>();
+        Map<Long, String> previousStatus = new HashMap<>();
+        for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+            LiveSummary current = cache.get(entry.getKey());
+            if (current == null || toSeed.contains(entry.getKey())) {
+                toSeed.add(entry.getKey());
+                continue;
+            }
+            // Rows outside the semester window (or in the future) are not counted
+            if (!dates.get(entry.getKey()).stream().allMatch(current::counts)) {
+                toSeed.add(entry.getKey());
+                continue;
+            }
+            LiveSummary next = current.plus(entry.getValue()[0], entry.getValue()[1]);
+            cache.put(entry.getKey(), next);
+            previousStatus.put(entry.getKey(), current.getStatus());
+            changed.add(next);
+            deltasApplied.increment();
+        }
+
+        writeCounters(changed, previousStatus);
+        if (!toSeed.isEmpty()) {
+            seed(toSeed);
+        }
+    }
+
+    /**
+     * attendance_summary totals and student status changes for delta-updated students.
+     */
+    private void writeCounters(List<LiveSummary> changed, Map<Long, String> previousStatus) {
+        if (changed.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> summaryArgs = new ArrayList<>(changed.size());
+        List<Object[]> statusArgs = new ArrayList<>();
+        for (LiveSummary s : changed) {
+            AttendanceSummary row = new AttendanceSummary(s.studentId, s.semester, CURRENT_ACADEMIC_YEAR);
+            row.setTotalClasses((int) s.totalClasses);
+            row.setAttendedClasses((int) s.attendedClasses);
+            row.calculateAttendance();
+            summaryArgs.add(new Object[]{row.getTotalClasses(), row.getAttendedClasses(), row.getAttendancePercentage(),
+                    row.getStatus(), now, s.studentId, s.semester, CURRENT_ACADEMIC_YEAR});
+            if (!s.getStatus().equals(previousStatus.get(s.studentId))) {
+                statusArgs.add(new Object[]{s.getStatus(), s.studentId});
+            }
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE attendance_summary SET total_classes = ?, attended_classes = ?, attendance_percentage = ?, " +
+                "status = ?, last_updated = ? WHERE student_id = ? AND semester = ? AND academic_year = ?",
+                summaryArgs);
+        if (!statusArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE students SET attendance_status = ? WHERE id = ?", statusArgs);
+        }
+
+        // No summary row yet: create it through the seeding path
+        Set<Long> missing = new LinkedHashSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) missing.add(changed.get(i).studentId);
+        }
+        if (!missing.isEmpty()) {
+            seed(missing);
+        }
+    }
+
+    /**
+     * Count these students from MySQL (one grouped query per semester window), cache the counters
+     * and persist AttendanceSummary and Student.attendanceStatus where they differ.
+     */
+    private void seed(Collection<Long> studentIds) {
+        Map<String, List<Student>> byWindow = new HashMap<>();
+        Map<String, SemesterConfig> configs = new HashMap<>();
+        for (Student student : studentRepository.findAllById(studentIds)) {
+            Long regulationId = regulationOf(student);
+            String window = regulationId + "|" + student.getYear() + "|" + student.getSemester();
+            if (!configs.containsKey(window)) {
+                configs.put(window, configFor(student, regulationId).orElse(null));
+            }
+            if (configs.get(window) == null) {
+                cache.remove(student.getId());
+                continue;
+            }
+            byWindow.computeIfAbsent(window, k -> new ArrayList<>()).add(student);
+        }
+
+        Map<String, AttendanceSummary> existing = new HashMap<>();
+        for (AttendanceSummary s : attendanceSummaryRepository.findByStudentIdInAndAcademicYear(studentIds, CURRENT_ACADEMIC_YEAR)) {
+            existing.put(s.getStudentId() + "|" + s.getSemester(), s);
+        }
+
+        List<AttendanceSummary> summaryUpdates = new ArrayList<>();
+        List<Object[]> statusArgs = new ArrayList<>();
+        for (Map.Entry<String, List<Student>> entry : byWindow.entrySet()) {
+            SemesterConfig config = configs.get(entry.getKey());
+            List<Long> ids = entry.getValue().stream().map(Student::getId).collect(Collectors.toList());
+            Map<Long, long[]> counts = countsFor(ids, config);
+
+            for (Student student : entry.getValue()) {
+                long[] c = counts.getOrDefault(student.getId(), new long[2]);
+                LiveSummary live = new LiveSummary(student, regulationOf(student), config, c[0], c[1]);
+                cache.put(student.getId(), live);
+
+                AttendanceSummary summary = existing.getOrDefault(student.getId() + "|" + student.getSemester(),
+                        new AttendanceSummary(student.getId(), student.getSemester(), CURRENT_ACADEMIC_YEAR));
+                if (summary.getId() == null || summary.getTotalClasses() != c[0] || summary.getAttendedClasses() != c[1]) {
+                    summary.setTotalClasses((int) c[0]);
+                    summary.setAttendedClasses((int) c[1]);
+                    summary.calculateAttendance();
+                    summaryUpdates.add(summary);
+                }
+                if (!live.getStatus().equals(student.getAttendanceStatus())) {
+                    statusArgs.add(new Object[]{live.getStatus(), student.getId()});
+                }
+            }
+        }
+
+        attendanceSummaryRepository.saveAll(summaryUpdates);
+        if (!statusArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE students SET attendance_status = ? WHERE id = ?", statusArgs);
+        }
+        seeded.add(studentIds.size());
+    }
+
+    // Semester windows and "today" move; start each day from MySQL again
+    @Scheduled(cron = "0 30 0 * * *")
+    public void resetDaily() {
+        cache.clear();
+        logger.info("🔄 Semester summary counters cleared, students re-seed on next use");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cached", cache.size());
+        stats.put("pendingEvents", pendingEvents.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("deltasApplied", deltasApplied.sum());
+        stats.put("seeded", seeded.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    /**
+     * [total, present] per student, counting rows from the semester start up to today (or the semester end).
+     */
+    private Map<Long, long[]> countsFor(Collection<Long> studentIds, SemesterConfig config) {
+        LocalDate today = LocalDate.now();
+        LocalDate endDate = today.isAfter(config.getEndDate()) ? config.getEndDate() : today;
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] r : attendanceRepository.countSemesterAttendance(studentIds, config.getStartDate(), endDate)) {
+            counts.put((Long) r[0], new long[]{((Number) r[1]).longValue(), r[2] == null ? 0 : ((Number) r[2]).longValue()});
+        }
+        return counts;
+    }
+
+    private Optional<SemesterConfig> configFor(Student student, Long regulationId) {
+        return semesterConfigRepository.findByAcademicYearAndRegulationIdAndYearAndSemester(
+                CURRENT_ACADEMIC_YEAR, regulationId, student.getYear(), student.getSemester());
+    }
+
+    private static Long regulationOf(Student student) {
+        return student.getRegulationId() != null ? student.getRegulationId() : 1L;
+    }
+}
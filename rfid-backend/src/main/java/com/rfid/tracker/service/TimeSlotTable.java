@@ -0,0 +1,243 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.Timetable;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Period definitions compiled into per-day minute-of-day lookup arrays.
+ *
+ * The college's default period grid is a short[7][1440] mapping each minute to a slot index
+ * (0 = no class). Sections whose timetable rows have their own start/end times get their own
+ * copy of that grid with their rows overlaid, so one section's times never relabel another's.
+ * Staff are resolved from their own rows only: for every staff member and day the rows they teach,
+ * with their minute ranges. Resolving the period of a scan is a map lookup and array reads on an
+ * immutable snapshot.
+ *
+ * {@link TimetableIndex} recompiles the table every time it reloads the timetable.
+ */
+@Service
+public class TimeSlotTable {
+
+    private static final Logger logger = Logger.getLogger(TimeSlotTable.class.getName());
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // Default period grid (lunch 13:00-13:30 is left empty)
+    private static final String[] DEFAULT_SLOTS = {
+            "09:00-10:00", "10:00-11:00", "11:00-12:00", "12:00-13:00",
+            "13:30-14:30", "14:30-15:30", "15:30-16:30"
+    };
+
+    private static final StaffRow[] NO_ROWS = new StaffRow[0];
+
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    /**
+     * One timetable row of a staff member with its minute range [start, end).
+     */
+    static final class StaffRow {
+        final int start;
+        final int end;
+        final Timetable entry;
+
+        StaffRow(int start, int end, Timetable entry) {
+            this.start = start;
+            this.end = end;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Immutable compiled form of the timetable.
+     */
+    static final class Snapshot {
+        final String[] slotLabels;                    // index 0 unused (no slot)
+        final Set<String> knownLabels;                // default grid and timetable row labels
+        final short[][] slotByMinute;                 // default grid: [day 0-6][minute] -> slot index
+        final Map<String, short[][]> sectionSlots;    // sectionId -> default grid + the section's rows
+        final Map<String, StaffRow[][]> staffRows;    // staffId -> [day 0-6] -> rows by start time
+
+        private Snapshot(String[] slotLabels, short[][] slotByMinute,
+                         Map<String, short[][]> sectionSlots, Map<String, StaffRow[][]> staffRows) {
+            this.slotLabels = slotLabels;
+            this.knownLabels = Set.of(Arrays.copyOfRange(slotLabels, 1, slotLabels.length));
+            this.slotByMinute = slotByMinute;
+            this.sectionSlots = sectionSlots;
+            this.staffRows = staffRows;
+        }
+
+        static Snapshot build(List<Timetable> entries) {
+            List<String> labels = new ArrayList<>();
+            labels.add(null);
+            Map<String, Integer> labelIndex = new HashMap<>();
+
+            short[][] slotByMinute = new short[7][MINUTES_PER_DAY];
+
+            // 1. Default grid on every day
+            for (String slot : DEFAULT_SLOTS) {
+                int idx = indexOf(slot, labels, labelIndex);
+                int[] range = parseSlot(slot);
+                for (short[] day : slotByMinute) {
+                    Arrays.fill(day, range[0], range[1], (short) idx);
+                }
+            }
+
+            // 2. Timetable rows overlay their own section's copy of the grid
+            Map<String, short[][]> sectionSlots = new HashMap<>();
+            Map<String, List<List<StaffRow>>> staffRowLists = new HashMap<>();
+
+            for (Timetable t : entries) {
+                if (t.getId() == null || isLunch(t)) continue;
+                DayOfWeek day = parseDay(t.getDayOfWeek());
+                if (day == null || t.getTimeSlot() == null) continue;
+
+                int[] range = t.getScheduledStartTime() != null && t.getScheduledEndTime() != null
+                        ? new int[]{minuteOf(t.getScheduledStartTime()), minuteOf(t.getScheduledEndTime())}
+                        : parseSlot(t.getTimeSlot());
+                if (range == null || range[0] >= range[1]) continue;
+
+                int dayIdx = day.getValue() - 1;
+                int idx = indexOf(t.getTimeSlot(), labels, labelIndex);
+                if (t.getSectionId() != null) {
+                    short[][] grid = sectionSlots.computeIfAbsent(t.getSectionId(), k -> copyOf(slotByMinute));
+                    Arrays.fill(grid[dayIdx], range[0], range[1], (short) idx);
+                }
+                if (t.getStaffId() != null) {
+                    List<List<StaffRow>> days = staffRowLists.computeIfAbsent(t.getStaffId(), k -> newDayLists());
+                    days.get(dayIdx).add(new StaffRow(range[0], range[1], t));
+                }
+            }
+
+            // 3. Staff rows are frozen into arrays ordered by start time
+            Map<String, StaffRow[][]> staffRows = new HashMap<>();
+            for (Map.Entry<String, List<List<StaffRow>>> e : staffRowLists.entrySet()) {
+                StaffRow[][] days = new StaffRow[7][];
+                for (int d = 0; d < 7; d++) {
+                    List<StaffRow> rows = e.getValue().get(d);
+                    rows.sort(Comparator.comparingInt(r -> r.start));
+                    days[d] = rows.isEmpty() ? NO_ROWS : rows.toArray(new StaffRow[0]);
+                }
+                staffRows.put(e.getKey(), days);
+            }
+
+            return new Snapshot(labels.toArray(new String[0]), slotByMinute, sectionSlots, staffRows);
+        }
+
+        private static int indexOf(String label, List<String> labels, Map<String, Integer> labelIndex) {
+            return labelIndex.computeIfAbsent(label, l -> {
+                labels.add(l);
+                return labels.size() - 1;
+            });
+        }
+
+        private static short[][] copyOf(short[][] grid) {
+            short[][] copy = new short[grid.length][];
+            for (int d = 0; d < grid.length; d++) copy[d] = grid[d].clone();
+            return copy;
+        }
+
+        private static List<List<StaffRow>> newDayLists() {
+            List<List<StaffRow>> days = new ArrayList<>(7);
+            for (int d = 0; d < 7; d++) days.add(new ArrayList<>());
+            return days;
+        }
+    }
+
+    public void rebuild(List<Timetable> entries) {
+        snapshot = Snapshot.build(entries);
+        logger.info("✅ Time slot table compiled from " + entries.size() + " timetable entries ("
+                + (snapshot.slotLabels.length - 1) + " slots, " + snapshot.sectionSlots.size() + " section grids)");
+    }
+
+    // ========== LOOKUPS (hot path, no allocation) ==========
+
+    /**
+     * Period of the college's default grid at this time, or null.
+     */
+    public String slotAt(DayOfWeek day, LocalTime time) {
+        Snapshot s = snapshot;
+        return s.slotLabels[s.slotByMinute[day.getValue() - 1][minuteOf(time)]];
+    }
+
+    public String slotAt(LocalDate date, LocalTime time) {
+        return slotAt(date.getDayOfWeek(), time);
+    }
+
+    /**
+     * Period of the section at this time: its own timetable rows, else the default grid.
+     */
+    public String slotAt(String sectionId, LocalDate date, LocalTime time) {
+        Snapshot s = snapshot;
+        short[][] grid = sectionId != null ? s.sectionSlots.get(sectionId) : null;
+        if (grid == null) grid = s.slotByMinute;
+        return s.slotLabels[grid[date.getDayOfWeek().getValue() - 1][minuteOf(time)]];
+    }
+
+    /**
+     * Whether the label is a period of the default grid or of some timetable row.
+     */
+    public boolean isKnownSlot(String timeSlot) {
+        return timeSlot != null && snapshot.knownLabels.contains(timeSlot);
+    }
+
+    /**
+     * Timetable row the staff member teaches at this time, or null.
+     */
+    public Timetable staffEntryAt(String staffId, DayOfWeek day, LocalTime time) {
+        StaffRow[][] days = snapshot.staffRows.get(staffId);
+        if (days == null) return null;
+        int minute = minuteOf(time);
+        for (StaffRow row : days[day.getValue() - 1]) {
+            if (row.start > minute) break;
+            if (minute < row.end) return row.entry;
+        }
+        return null;
+    }
+
+    /**
+     * Timetable row the staff member teaches in the given slot, or null.
+     */
+    public Timetable staffEntryForSlot(String staffId, DayOfWeek day, String timeSlot) {
+        StaffRow[][] days = snapshot.staffRows.get(staffId);
+        if (days == null || timeSlot == null) return null;
+        for (StaffRow row : days[day.getValue() - 1]) {
+            if (timeSlot.equals(row.entry.getTimeSlot())) return row.entry;
+        }
+        return null;
+    }
+
+    // ========== HELPERS ==========
+
+    static boolean isLunch(Timetable t) {
+        return "LUNCH BREAK".equalsIgnoreCase(t.getSubject()) || "ALL".equalsIgnoreCase(t.getDayOfWeek());
+    }
+
+    static DayOfWeek parseDay(String dayOfWeek) {
+        if (dayOfWeek == null) return null;
+        try {
+            return DayOfWeek.valueOf(dayOfWeek.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // "HH:mm-HH:mm" -> [startMinute, endMinute)
+    private static int[] parseSlot(String slot) {
+        try {
+            String[] parts = slot.split("-");
+            return new int[]{minuteOf(LocalTime.parse(parts[0].trim())), minuteOf(LocalTime.parse(parts[1].trim()))};
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
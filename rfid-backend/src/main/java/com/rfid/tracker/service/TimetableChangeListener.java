@@ -0,0 +1,41 @@
+package com.rfid.tracker.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on Timetable. Once the change is committed, {@link TimetableIndex}
+ * (and with it the compiled {@link TimeSlotTable}) is reloaded in the background.
+ */
+@Component
+public class TimetableChangeListener {
+
+    @Autowired
+    @Lazy
+    private TimetableIndex timetableIndex;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (timetableIndex == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    timetableIndex.requestRefresh();
+                }
+            });
+        } else {
+            timetableIndex.requestRefresh();
+        }
+    }
+}
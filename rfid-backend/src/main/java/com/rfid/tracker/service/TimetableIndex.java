@@ -0,0 +1,196 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.Timetable;
+import com.rfid.tracker.repository.TimetableRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-through, in-memory index of the timetable with secondary keys for the scan and alert paths:
+ * section/day/slot, staff/day, room/day and day.
+ *
+ * The whole table is loaded on first use (or at startup) into an immutable snapshot and reloaded
+ * in the background after any Timetable row is created, updated or deleted (see
+ * {@link TimetableChangeListener}). Every reload also recompiles {@link TimeSlotTable}.
+ *
+ * Returned entities are shared by all readers and must not be modified.
+ */
+@Service
+public class TimetableIndex {
+
+    private static final Logger logger = Logger.getLogger(TimetableIndex.class.getName());
+
+    @Autowired
+    private TimetableRepository timetableRepository;
+
+    @Autowired
+    private TimeSlotTable timeSlotTable;
+
+    private volatile Snapshot snapshot;
+
+    // Bumped on every successful refresh so derived schedules can tell the timetable changed
+    private volatile long version;
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "timetable-index-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private static final class Snapshot {
+        final Map<String, Timetable> bySectionDaySlot = new HashMap<>();
+        final Map<String, List<Timetable>> byStaffDay = new HashMap<>();
+        final Map<String, List<Timetable>> byRoomDay = new HashMap<>();
+        final Map<DayOfWeek, List<Timetable>> byDay = new EnumMap<>(DayOfWeek.class);
+        int size;
+
+        static Snapshot build(List<Timetable> entries) {
+            Snapshot s = new Snapshot();
+            s.size = entries.size();
+            for (Timetable t : entries) {
+                DayOfWeek day = TimeSlotTable.parseDay(t.getDayOfWeek());
+                if (day == null) continue;   // lunch rows use "ALL"
+
+                s.bySectionDaySlot.put(key(t.getSectionId(), day, t.getTimeSlot()), t);
+                s.byStaffDay.computeIfAbsent(key(t.getStaffId(), day), k -> new ArrayList<>()).add(t);
+                s.byRoomDay.computeIfAbsent(key(t.getRoom(), day), k -> new ArrayList<>()).add(t);
+                s.byDay.computeIfAbsent(day, k -> new ArrayList<>()).add(t);
+            }
+
+            Comparator<Timetable> byStart = Comparator.comparing(Timetable::getScheduledStartTime,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            s.byStaffDay.replaceAll((k, v) -> sortedCopy(v, byStart));
+            s.byRoomDay.replaceAll((k, v) -> sortedCopy(v, byStart));
+            s.byDay.replaceAll((k, v) -> sortedCopy(v, byStart));
+            return s;
+        }
+
+        private static List<Timetable> sortedCopy(List<Timetable> list, Comparator<Timetable> order) {
+            list.sort(order);
+            return List.copyOf(list);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Schedule a background reload. Bursts of edits collapse into a single reload.
+     */
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            refreshExecutor.submit(() -> {
+                refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    public synchronized void refresh() {
+        try {
+            List<Timetable> entries = timetableRepository.findAll();
+            snapshot = Snapshot.build(entries);
+            timeSlotTable.rebuild(entries);
+            version++;
+            logger.info("✅ Timetable index loaded with " + entries.size() + " entries");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Timetable index refresh failed, keeping previous snapshot", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // ========== LOOKUPS ==========
+
+    public Optional<Timetable> findBySectionDayAndSlot(String sectionId, DayOfWeek day, String timeSlot) {
+        return Optional.ofNullable(current().bySectionDaySlot.get(key(sectionId, day, timeSlot)));
+    }
+
+    public List<Timetable> findByStaffAndDay(String staffId, DayOfWeek day) {
+        return current().byStaffDay.getOrDefault(key(staffId, day), List.of());
+    }
+
+    public Optional<Timetable> findByStaffDayAndSlot(String staffId, DayOfWeek day, String timeSlot) {
+        for (Timetable t : findByStaffAndDay(staffId, day)) {
+            if (Objects.equals(t.getTimeSlot(), timeSlot)) return Optional.of(t);
+        }
+        return Optional.empty();
+    }
+
+    public List<Timetable> findByRoomAndDay(String room, DayOfWeek day) {
+        return current().byRoomDay.getOrDefault(key(room, day), List.of());
+    }
+
+    /**
+     * Same semantics as {@code TimetableRepository.findByRoomAndDayAndTimeRange}: start <= time <= end.
+     */
+    public Optional<Timetable> findByRoomAndTime(String room, DayOfWeek day, LocalTime time) {
+        for (Timetable t : findByRoomAndDay(room, day)) {
+            if (t.getScheduledStartTime() != null && t.getScheduledEndTime() != null
+                    && !time.isBefore(t.getScheduledStartTime()) && !time.isAfter(t.getScheduledEndTime())) {
+                return Optional.of(t);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<Timetable> findByDay(DayOfWeek day) {
+        return current().byDay.getOrDefault(day, List.of());
+    }
+
+    public int size() {
+        return current().size;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Whether the label is a period of the default grid or of some timetable row.
+     */
+    public boolean isKnownSlot(String timeSlot) {
+        current();   // the slot table is compiled by the first load
+        return timeSlotTable.isKnownSlot(timeSlot);
+    }
+
+    // Read-through: the first caller before startup loading completes loads synchronously
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                s = snapshot != null ? snapshot : Snapshot.build(List.of());
+            }
+        }
+        return s;
+    }
+
+    private static String key(String a, DayOfWeek day) {
+        return a + "|" + day;
+    }
+
+    private static String key(String a, DayOfWeek day, String slot) {
+        return a + "|" + day + "|" + slot;
+    }
+}
@@ -0,0 +1,266 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.VerificationCode;
+import com.rfid.tracker.repository.PeriodAttendanceLogRepository;
+import com.rfid.tracker.repository.VerificationCodeRepository;
+import com.rfid.tracker.util.CodeGenerationUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory registry of verification codes for the verify-code hot path.
+ *
+ * Every code is registered when it commits ({@link VerificationCodeWriteListener}); codes that were
+ * still valid at startup are loaded once on ApplicationReadyEvent. A whole section submitting in
+ * the same minute therefore never reads or locks the verification_codes row: validity and the
+ * duplicate check ("already entered by this student") are answered from memory, and entry counts
+ * are atomic counters that are added to code_entered_count in one JDBC batch every
+ * app.code-registry.flush-interval-ms.
+ *
+ * Codes are kept for app.code-registry.retention-minutes after they expire, so late submissions
+ * still get "expired" rather than "invalid", and are dropped once their count is flushed.
+ *
+ * New codes come from {@link #reserveNewCode}: a candidate is claimed with putIfAbsent in a
+ * reservation map and checked against the registered codes, so two live codes can never collide,
+ * without any lock. Because verification_codes.code is unique over all rows, not just live ones, a
+ * claimed candidate is also checked against the unique index before it is handed out. A reservation
+ * ends when the code is registered, when the caller releases it, or after RESERVATION_MINUTES.
+ */
+@Service
+public class VerificationCodeRegistry {
+
+    private static final Logger logger = Logger.getLogger(VerificationCodeRegistry.class.getName());
+
+    private static final long RESERVATION_MINUTES = 10;
+
+    @Autowired
+    private VerificationCodeRepository verificationCodeRepository;
+
+    @Autowired
+    private PeriodAttendanceLogRepository periodAttendanceLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.code-registry.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final ConcurrentHashMap<String, ActiveCode> codes = new ConcurrentHashMap<>();
+
+    // Generated but not yet committed codes -> reserved at
+    private final ConcurrentHashMap<String, LocalDateTime> reserved = new ConcurrentHashMap<>();
+
+    // Until startup loading is done a miss may still be a stored code
+    private volatile boolean warmed;
+
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder reservationCollisions = new LongAdder();
+
+    /**
+     * One code with its unflushed entry count and the students who entered it.
+     */
+    public static final class ActiveCode {
+        private final Long id;
+        private final String code;
+        private final String sectionId;
+        private final String staffId;
+        private final Long timetableId;
+        private final LocalDateTime validUntil;
+        private final AtomicInteger pendingEntries = new AtomicInteger();
+        private final Set<String> enteredBy = ConcurrentHashMap.newKeySet();
+
+        ActiveCode(VerificationCode vc) {
+            this.id = vc.getId();
+            this.code = vc.getCode();
+            this.sectionId = vc.getSectionId();
+            this.staffId = vc.getStaffId();
+            this.timetableId = vc.getTimetableId();
+            this.validUntil = vc.getValidUntil();
+        }
+
+        public Long getId() { return id; }
+        public String getCode() { return code; }
+        public String getSectionId() { return sectionId; }
+        public String getStaffId() { return staffId; }
+        public Long getTimetableId() { return timetableId; }
+        public LocalDateTime getValidUntil() { return validUntil; }
+
+        public boolean isExpired() {
+            return LocalDateTime.now().isAfter(validUntil);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<VerificationCode> stored = verificationCodeRepository
+                    .findByValidUntilAfter(LocalDateTime.now().minusMinutes(retentionMinutes));
+            for (VerificationCode vc : stored) {
+                load(vc);
+            }
+            logger.info("✅ Verification code registry loaded with " + stored.size() + " codes");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Verification code registry warm-up failed, falling back to lookups", e);
+            return;
+        }
+        warmed = true;
+    }
+
+    // ========== LOOKUPS ==========
+
+    public Optional<ActiveCode> find(String code) {
+        if (code == null) return Optional.empty();
+        ActiveCode active = codes.get(code);
+        if (active != null || warmed) return Optional.ofNullable(active);
+        return verificationCodeRepository.findByCode(code).map(this::load);
+    }
+
+    public boolean isValid(String code) {
+        return find(code).map(c -> !c.isExpired()).orElse(false);
+    }
+
+    // ========== WRITES ==========
+
+    /**
+     * A new code was committed.
+     */
+    public void register(VerificationCode vc) {
+        if (vc.getCode() == null || vc.getValidUntil() == null) return;
+        // Registered before the reservation ends, so the code is never free in between
+        codes.putIfAbsent(vc.getCode(), new ActiveCode(vc));
+        reserved.remove(vc.getCode());
+    }
+
+    /**
+     * A fresh code that collides with no live or reserved code and no stored row.
+     */
+    public String reserveNewCode() {
+        return CodeGenerationUtil.generateUniqueCode(candidate -> {
+            if (reserved.putIfAbsent(candidate, LocalDateTime.now()) != null) {
+                reservationCollisions.increment();
+                return false;
+            }
+            if (codes.containsKey(candidate) || verificationCodeRepository.existsByCode(candidate)) {
+                reserved.remove(candidate);
+                reservationCollisions.increment();
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * The code's row was deleted (its timetable entry was removed): stop accepting it.
+     */
+    public void evict(String code) {
+        if (code != null && codes.remove(code) != null) {
+            logger.info("🗑️ Verification code " + code + " evicted from the registry");
+        }
+    }
+
+    /**
+     * Give back a reserved code that was not saved.
+     */
+    public void releaseReservation(String code) {
+        if (code != null) reserved.remove(code);
+    }
+
+    /**
+     * Claim the student's entry of a code. Returns false if the student already entered it.
+     * The entry is counted right away; {@link #release} takes it back if the period log could not be saved.
+     */
+    public boolean claim(ActiveCode code, String studentRegNo) {
+        if (!code.enteredBy.add(studentRegNo)) {
+            duplicates.increment();
+            return false;
+        }
+        code.pendingEntries.incrementAndGet();
+        entries.increment();
+        return true;
+    }
+
+    public void release(ActiveCode code, String studentRegNo) {
+        if (code.enteredBy.remove(studentRegNo)) {
+            code.pendingEntries.decrementAndGet();
+        }
+    }
+
+    // ========== FLUSH & EXPIRY ==========
+
+    @Scheduled(fixedDelayString = "${app.code-registry.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<ActiveCode> flushed = new ArrayList<>();
+        for (ActiveCode code : codes.values()) {
+            if (code.id == null) continue;
+            int delta = code.pendingEntries.getAndSet(0);
+            if (delta != 0) {
+                batch.add(new Object[]{delta, code.id});
+                flushed.add(code);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE verification_codes SET code_entered_count = code_entered_count + ? WHERE id = ?", batch);
+                flushedRows.add(batch.size());
+            } catch (Exception e) {
+                // Put the counts back for the next flush
+                for (int i = 0; i < flushed.size(); i++) {
+                    flushed.get(i).pendingEntries.addAndGet((Integer) batch.get(i)[0]);
+                }
+                logger.log(Level.WARNING, "⚠️ Code entry count flush failed, will retry", e);
+                return;
+            }
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        codes.values().removeIf(code -> code.validUntil.isBefore(cutoff) && code.pendingEntries.get() == 0);
+        LocalDateTime reservationCutoff = LocalDateTime.now().minusMinutes(RESERVATION_MINUTES);
+        reserved.values().removeIf(at -> at.isBefore(reservationCutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("codes", codes.size());
+        stats.put("active", codes.values().stream().filter(c -> !c.isExpired()).count());
+        stats.put("pendingEntries", codes.values().stream().mapToInt(c -> c.pendingEntries.get()).sum());
+        stats.put("entries", entries.sum());
+        stats.put("duplicates", duplicates.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("reserved", reserved.size());
+        stats.put("reservationCollisions", reservationCollisions.sum());
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    private ActiveCode load(VerificationCode vc) {
+        ActiveCode loaded = new ActiveCode(vc);
+        loaded.enteredBy.addAll(periodAttendanceLogRepository.findStudentsByVerificationCode(vc.getCode()));
+        ActiveCode existing = codes.putIfAbsent(vc.getCode(), loaded);
+        return existing != null ? existing : loaded;
+    }
+}
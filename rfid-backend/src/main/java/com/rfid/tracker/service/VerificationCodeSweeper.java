@@ -0,0 +1,181 @@
+package com.rfid.tracker.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps verification_codes down to today's codes.
+ *
+ * Every hour, codes that expired before today are moved to verification_codes_archive (or deleted,
+ * with app.code-sweeper.mode=DELETE) in batches of app.code-sweeper.batch-size rows. Each batch is
+ * its own short transaction, selected by primary key, with a pause in between, so the sweep never
+ * holds locks the code generator or verify path would wait on.
+ *
+ * Also makes sure the indexes behind the "today" range queries exist. The repo has no migrations and
+ * Hibernate only validates, so the archive table and indexes are created here if they are missing.
+ */
+@Service
+public class VerificationCodeSweeper {
+
+    private static final Logger logger = Logger.getLogger(VerificationCodeSweeper.class.getName());
+
+    private static final String COLUMNS = "id, staff_id, class_name, section_id, code, generated_time, valid_until, " +
+            "is_used, code_entered_count, timetable_id, created_at";
+
+    // No unique key on code: codes may be reused once they have left the hot table
+    private static final String CREATE_ARCHIVE_SQL =
+            "CREATE TABLE IF NOT EXISTS verification_codes_archive (" +
+            "id BIGINT NOT NULL PRIMARY KEY, " +
+            "staff_id VARCHAR(255) NOT NULL, " +
+            "class_name VARCHAR(255) NOT NULL, " +
+            "section_id VARCHAR(255) NOT NULL, " +
+            "code VARCHAR(10) NOT NULL, " +
+            "generated_time DATETIME(6) NOT NULL, " +
+            "valid_until DATETIME(6) NOT NULL, " +
+            "is_used BOOLEAN, " +
+            "code_entered_count INT, " +
+            "timetable_id BIGINT, " +
+            "created_at DATETIME(6), " +
+            "archived_at DATETIME(6) NOT NULL, " +
+            "INDEX idx_vca_code (code), " +
+            "INDEX idx_vca_generated (generated_time))";
+
+    // name -> columns
+    private static final Map<String, String> HOT_INDEXES = new LinkedHashMap<>();
+    static {
+        HOT_INDEXES.put("idx_vc_section_valid", "section_id, valid_until");
+        HOT_INDEXES.put("idx_vc_staff_generated", "staff_id, generated_time");
+        HOT_INDEXES.put("idx_vc_valid_until", "valid_until");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VerificationCodeRegistry verificationCodeRegistry;
+
+    @Value("${app.code-sweeper.mode:ARCHIVE}")
+    private String mode;
+
+    @Value("${app.code-sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.code-sweeper.pause-ms:200}")
+    private long pauseMs;
+
+    private TransactionTemplate batchTransaction;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder archived = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private volatile LocalDateTime lastSweep;
+
+    @PostConstruct
+    public void start() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+        try {
+            jdbcTemplate.execute(CREATE_ARCHIVE_SQL);
+            ensureIndexes();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Could not prepare verification code archive / indexes", e);
+        }
+    }
+
+    @Scheduled(cron = "0 5 * * * *")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * Move (or delete) every code that expired before today. Returns the number of rows swept.
+     */
+    public int sweep() {
+        if (!running.compareAndSet(false, true)) return 0;
+        try {
+            // Entry counts of yesterday's codes must land before their rows move
+            verificationCodeRegistry.flush();
+
+            Timestamp cutoff = Timestamp.valueOf(LocalDate.now().atStartOfDay());
+            boolean archive = !"DELETE".equalsIgnoreCase(mode);
+            int total = 0;
+            while (true) {
+                Integer swept = batchTransaction.execute(tx -> sweepBatch(cutoff, archive));
+                if (swept == null || swept == 0) break;
+                total += swept;
+                if (swept < batchSize) break;
+                Thread.sleep(pauseMs);
+            }
+            lastSweep = LocalDateTime.now();
+            if (total > 0) {
+                logger.info("🧹 " + (archive ? "Archived " : "Deleted ") + total + " expired verification codes");
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "⚠️ Verification code sweep failed", e);
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("archived", archived.sum());
+        stats.put("deleted", deleted.sum());
+        stats.put("lastSweep", lastSweep != null ? lastSweep.toString() : null);
+        return stats;
+    }
+
+    // ========== INTERNALS ==========
+
+    private int sweepBatch(Timestamp cutoff, boolean archive) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM verification_codes WHERE valid_until < ? ORDER BY id LIMIT ?",
+                Long.class, cutoff, batchSize);
+        if (ids.isEmpty()) return 0;
+
+        String in = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        if (archive) {
+            jdbcTemplate.update("INSERT IGNORE INTO verification_codes_archive (" + COLUMNS + ", archived_at) " +
+                    "SELECT " + COLUMNS + ", NOW() FROM verification_codes WHERE id IN (" + in + ")");
+        }
+        int removed = jdbcTemplate.update("DELETE FROM verification_codes WHERE id IN (" + in + ")");
+        (archive ? archived : deleted).add(removed);
+        return removed;
+    }
+
+    private void ensureIndexes() {
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT index_name FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = 'verification_codes'", String.class));
+        for (Map.Entry<String, String> index : HOT_INDEXES.entrySet()) {
+            if (!existing.contains(index.getKey())) {
+                jdbcTemplate.execute("CREATE INDEX " + index.getKey() + " ON verification_codes (" + index.getValue() + ")");
+                logger.info("✅ Created index " + index.getKey() + " on verification_codes");
+            }
+        }
+    }
+}
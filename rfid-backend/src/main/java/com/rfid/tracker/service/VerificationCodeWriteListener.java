@@ -0,0 +1,48 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.VerificationCode;
+import jakarta.persistence.PostPersist;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on VerificationCode that hands every new code to {@link VerificationCodeRegistry} and
+ * {@link SectionCodeChannel} once it has committed. Covers generateVerificationCodeForPeriod and the
+ * RFID entry path in AttendanceController.
+ */
+@Component
+public class VerificationCodeWriteListener {
+
+    @Autowired
+    @Lazy
+    private VerificationCodeRegistry verificationCodeRegistry;
+
+    @Autowired
+    @Lazy
+    private SectionCodeChannel sectionCodeChannel;
+
+    @PostPersist
+    public void onCreate(VerificationCode code) {
+        if (sectionCodeChannel == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(code);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(code);
+            }
+        });
+    }
+
+    private void publish(VerificationCode code) {
+        verificationCodeRegistry.register(code);
+        sectionCodeChannel.publish(code);
+    }
+}
@@ -1,12 +1,15 @@
 package com.rfid.tracker.util;
 
 import java.security.SecureRandom;
+import java.util.function.Predicate;
 
 public class CodeGenerationUtil {
 
     private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    private static final SecureRandom random = new SecureRandom();
+    // One generator per thread: no shared lock when many staff scan in at once
+    private static final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
     private static final int CODE_LENGTH = 6;
+    private static final int MAX_ATTEMPTS = 100;
 
     /**
      * Generate a 6-character alphanumeric verification code
@@ -15,21 +18,29 @@ public class CodeGenerationUtil {
      * @return 6-character code
      */
     public static String generateVerificationCode() {
-        StringBuilder code = new StringBuilder();
+        SecureRandom rnd = random.get();
+        char[] code = new char[CODE_LENGTH];
         for (int i = 0; i < CODE_LENGTH; i++) {
-            code.append(ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
+            code[i] = ALPHANUMERIC.charAt(rnd.nextInt(ALPHANUMERIC.length()));
         }
-        return code.toString();
+        return new String(code);
     }
 
     /**
-     * Generate unique code with retry logic (prevent duplicates)
-     * This method is thread-safe
+     * Generate a code that the caller could claim (e.g. reserve among live codes)
+     * Retries with fresh random codes until claim accepts one; lock-free
      *
+     * @param claim Atomically claims a candidate, returns false if it is taken
      * @return Unique 6-character code
      */
-    public static synchronized String generateUniqueCode() {
-        return generateVerificationCode();
+    public static String generateUniqueCode(Predicate<String> claim) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            String code = generateVerificationCode();
+            if (claim.test(code)) {
+                return code;
+            }
+        }
+        throw new IllegalStateException("No free verification code after " + MAX_ATTEMPTS + " attempts");
     }
 
     /**
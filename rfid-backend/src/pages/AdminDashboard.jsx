@@ -3,6 +3,7 @@ import { AuthContext } from '../context/AuthContext';
 import { useNavigate } from 'react-router-dom';
 import axios from 'axios';
 import LateAlertPopup from '../components/Common/LateAlertPopup';
+import { openEventStream } from '../utils/eventStream';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
@@ -48,33 +49,24 @@ const AdminDashboard = () => {
     fetchComplaintStats();
   }, [token]);
 
-  // ✅ NEW: Fetch Staff Late Alerts
+  // ✅ Staff Late Alerts: SSE stream (snapshot first, then pushed changes; resumes with Last-Event-ID)
   useEffect(() => {
-    const fetchLateAlerts = async () => {
-      if (!token) return;
+    if (!token) return;
 
-      setLoadingAlerts(true);
-      try {
-        const response = await axios.get(`${API_BASE_URL}/admin/alerts`, {
-          headers: { Authorization: `Bearer ${token}` }
-        });
-        console.log('✅ Late alerts fetched:', response.data);
-        setLateAlerts(response.data || []);
-      } catch (err) {
-        console.error('❌ Error fetching late alerts:', err);
-        setLateAlerts([]);
-      } finally {
+    setLoadingAlerts(true);
+    return openEventStream(`${API_BASE_URL}/admin/alerts/staff-late/stream`, token, (name, data) => {
+      if (name === 'snapshot') {
+        setLateAlerts(data || []);
         setLoadingAlerts(false);
+        return;
       }
-    };
-
-    // Fetch immediately on mount
-    fetchLateAlerts();
-
-    // Poll every 30 seconds for new alerts
-    const interval = setInterval(fetchLateAlerts, 30000);
-
-    return () => clearInterval(interval);
+      const { type, alert } = data;
+      setLateAlerts((prevAlerts) => {
+        const others = prevAlerts.filter((a) => a.id !== alert.id);
+        if (type === 'DISMISSED' || type === 'ACKNOWLEDGED' || alert.adminAcknowledged) return others;
+        return [alert, ...others];
+      });
+    }, { onOpen: () => console.log('✅ Late alert stream connected') });
   }, [token]);
 
   // ✅ NEW: Handle closing/acknowledging an alert
@@ -5,6 +5,7 @@ import { AuthContext } from '../context/AuthContext';
 import { ThemeContext } from '../context/ThemeContext';
 import StudyAssistant from '../components/StudyAssistant';
 import StudentAttendance from './StudentAttendance';
+import { openEventStream } from '../utils/eventStream';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
@@ -47,6 +48,7 @@ const StudentDashboard = () => {
   const [retryCount, setRetryCount] = useState(0);
   const [timerActive, setTimerActive] = useState(false);
   const [timeLeft, setTimeLeft] = useState(0);
+  const [activeCodeWindow, setActiveCodeWindow] = useState(null);
 
   const authAxios = useMemo(() => {
     return axios.create({
@@ -115,6 +117,20 @@ const StudentDashboard = () => {
     fetchLiveSummary();
   }, [authAxios, token]);
 
+  // ✅ Code windows for this student's section, pushed by the server (no polling)
+  useEffect(() => {
+    if (!token) return;
+
+    return openEventStream(`${API_BASE_URL}/students/active-code/stream`, token, (name, data) => {
+      if (name === 'code') {
+        setActiveCodeWindow(data);
+        setSectionId((prev) => prev || data.sectionId);
+      } else {
+        setActiveCodeWindow(null);
+      }
+    });
+  }, [token]);
+
   useEffect(() => {
     const handleClickOutside = (event) => {
       if (menuRef.current && !menuRef.current.contains(event.target)) {
@@ -934,7 +950,9 @@ const StudentDashboard = () => {
                     textAlign: 'center',
                     lineHeight: '1.5'
                   }}>
-                    Have a code? Enter it below to mark your presence for this session.
+                    {activeCodeWindow
+                      ? `🔔 ${activeCodeWindow.className} code is open until ${activeCodeWindow.validUntil.slice(11, 16)}. Enter it below to mark your presence.`
+                      : 'Have a code? Enter it below to mark your presence for this session.'}
                   </p>
                 </div>
 
@@ -0,0 +1,86 @@
+package com.rfid.tracker.service;
+
+import com.rfid.tracker.entity.VerificationCode;
+import com.rfid.tracker.repository.VerificationCodeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VerificationCodeRegistryTest {
+
+    private static final int THREADS = 16;
+    private static final int CODES_PER_THREAD = 500;
+
+    @Mock
+    private VerificationCodeRepository verificationCodeRepository;
+
+    @InjectMocks
+    private VerificationCodeRegistry registry;
+
+    @Test
+    void reservedCodesAreUniqueAndNeverStoredOrRegistered() throws Exception {
+        // Every third distinct candidate is reported as an existing row, so the fallback path is exercised
+        Set<String> stored = ConcurrentHashMap.newKeySet();
+        when(verificationCodeRepository.existsByCode(anyString())).thenAnswer(invocation -> {
+            String code = invocation.getArgument(0);
+            if (Math.floorMod(code.hashCode(), 3) != 0) return false;
+            stored.add(code);
+            return true;
+        });
+
+        // Half of a first round is committed (registered), the other half released again
+        Set<String> registered = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            String code = registry.reserveNewCode();
+            if (i % 2 == 0) {
+                registry.register(new VerificationCode("STAFF" + i, "Class", "SEC", code,
+                        LocalDateTime.now().plusMinutes(10), null));
+                registered.add(code);
+            } else {
+                registry.releaseReservation(code);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    List<String> codes = new ArrayList<>(CODES_PER_THREAD);
+                    for (int i = 0; i < CODES_PER_THREAD; i++) codes.add(registry.reserveNewCode());
+                    return codes;
+                }));
+            }
+            start.countDown();
+
+            Set<String> handedOut = new HashSet<>();
+            for (Future<List<String>> result : results) {
+                for (String code : result.get(30, TimeUnit.SECONDS)) {
+                    assertTrue(handedOut.add(code), "code reserved twice: " + code);
+                    assertFalse(registered.contains(code), "registered code reserved again: " + code);
+                    assertFalse(stored.contains(code), "stored code reserved: " + code);
+                }
+            }
+            assertEquals(THREADS * CODES_PER_THREAD, handedOut.size());
+            assertFalse(stored.isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.rfid.tracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeGenerationUtilTest {
+
+    private static final int THREADS = 16;
+    private static final int CODES_PER_THREAD = 2_000;
+
+    @Test
+    void concurrentCallersSharingOneClaimNeverGetTheSameCode() throws Exception {
+        ConcurrentHashMap<String, Boolean> claimed = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    List<String> codes = new ArrayList<>(CODES_PER_THREAD);
+                    for (int i = 0; i < CODES_PER_THREAD; i++) {
+                        codes.add(CodeGenerationUtil.generateUniqueCode(c -> claimed.putIfAbsent(c, Boolean.TRUE) == null));
+                    }
+                    return codes;
+                }));
+            }
+            start.countDown();
+
+            Set<String> seen = new HashSet<>();
+            for (Future<List<String>> result : results) {
+                for (String code : result.get(30, TimeUnit.SECONDS)) {
+                    assertTrue(CodeGenerationUtil.isValidCodeFormat(code), "bad format: " + code);
+                    assertTrue(seen.add(code), "code handed out twice: " + code);
+                }
+            }
+            assertEquals(THREADS * CODES_PER_THREAD, seen.size());
+            assertEquals(claimed.keySet(), seen);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void retriesUntilTheClaimAcceptsACandidate() {
+        Set<String> tried = new HashSet<>();
+        String code = CodeGenerationUtil.generateUniqueCode(c -> tried.add(c) && tried.size() > 3);
+
+        assertEquals(4, tried.size());
+        assertTrue(tried.contains(code));
+    }
+
+    @Test
+    void givesUpWhenEveryCandidateIsTaken() {
+        assertThrows(IllegalStateException.class, () -> CodeGenerationUtil.generateUniqueCode(c -> false));
+    }
+}
@@ -0,0 +1,61 @@
+// Server-Sent Events over fetch(), so the JWT can go in the Authorization header (EventSource can't).
+// Reconnects after a drop and sends Last-Event-ID when the server gave events ids.
+// Returns a function that closes the stream.
+export const openEventStream = (url, token, onEvent, { retryMs = 5000, onOpen } = {}) => {
+    const controller = new AbortController();
+    let lastEventId = null;
+    let retryTimer = null;
+
+    const dispatch = (block) => {
+        let name = 'message';
+        let id = null;
+        const dataLines = [];
+        for (const line of block.split('\n')) {
+            if (line.startsWith('id:')) id = line.slice(3).trim();
+            else if (line.startsWith('event:')) name = line.slice(6).trim();
+            else if (line.startsWith('data:')) dataLines.push(line.slice(5));
+        }
+        if (dataLines.length === 0) return; // heartbeat comment
+        onEvent(name, JSON.parse(dataLines.join('\n')));
+        if (id) lastEventId = id;
+    };
+
+    const connect = async () => {
+        try {
+            const headers = { Authorization: `Bearer ${token}`, Accept: 'text/event-stream' };
+            if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+
+            const response = await fetch(url, { headers, signal: controller.signal });
+            if (!response.ok || !response.body) throw new Error(`HTTP ${response.status}`);
+            if (onOpen) onOpen();
+
+            const reader = response.body.getReader();
+            const decoder = new TextDecoder();
+            let buffer = '';
+            for (;;) {
+                const { value, done } = await reader.read();
+                if (done) break;
+                buffer += decoder.decode(value, { stream: true });
+
+                let boundary;
+                while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+                    dispatch(buffer.slice(0, boundary));
+                    buffer = buffer.slice(boundary + 2);
+                }
+            }
+        } catch (err) {
+            if (controller.signal.aborted) return;
+            console.error('❌ Event stream error:', url, err);
+        }
+        if (!controller.signal.aborted) {
+            retryTimer = setTimeout(connect, retryMs);
+        }
+    };
+
+    connect();
+
+    return () => {
+        controller.abort();
+        clearTimeout(retryTimer);
+    };
+};
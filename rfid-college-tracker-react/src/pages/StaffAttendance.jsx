@@ -20,6 +20,28 @@ const MONTHS = [
 	{ value: 12, name: 'December' }
 ];
 
+const STATUS_BY_CODE = { P: 'PRESENT', L: 'LATE', A: 'ABSENT', H: 'HALF_DAY' };
+
+// ✅ Expand compact staff rows ([id, name, staffId, days, ...]) into the objects the table renders,
+// with the attendance map keyed by YYYY-MM-DD
+const decodeStaffGrid = ({ columns, staff }, year, month) => {
+	const col = Object.fromEntries(columns.map((name, i) => [name, i]));
+	const prefix = `${year}-${String(month).padStart(2, '0')}-`;
+	return staff.map((row) => {
+		const days = row[col.days] || '';
+		const attendance = {};
+		for (let i = 0; i < days.length; i++) {
+			if (STATUS_BY_CODE[days[i]]) attendance[prefix + String(i + 1).padStart(2, '0')] = STATUS_BY_CODE[days[i]];
+		}
+		return {
+			id: row[col.id],
+			name: row[col.name],
+			staffId: row[col.staffId],
+			attendance
+		};
+	});
+};
+
 const StaffAttendance = () => {
 	const { token } = useContext(AuthContext);
 
@@ -88,7 +110,7 @@ const StaffAttendance = () => {
 				try {
 					const endpoint = `/attendance/view/staff/${encodeURIComponent(
 						selectedBranch
-					)}/${currentYear}/${selectedMonth}`;
+					)}/${currentYear}/${selectedMonth}?format=compact`;
 
 					console.log('🌐 [REQUEST] Endpoint:', `${API_BASE_URL}${endpoint}`);
 					console.log('🔑 [REQUEST] Token:', token ? '✅ Present' : '❌ Missing');
@@ -102,7 +124,11 @@ const StaffAttendance = () => {
 					if (response.data && response.data.staff) {
 						console.log(`📋 Processing ${response.data.staff.length} staff members`);
 
-						const staffWithCounts = response.data.staff.map((staff, index) => {
+						const staffRows = response.data.columns
+							? decodeStaffGrid(response.data, currentYear, selectedMonth)
+							: response.data.staff;
+
+						const staffWithCounts = staffRows.map((staff, index) => {
 							let presentCount = 0;
 							let lateCount = 0;
 							let absentCount = 0;
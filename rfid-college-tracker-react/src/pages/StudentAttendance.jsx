@@ -5,6 +5,29 @@ import './StudentAttendance.css';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
+const STATUS_BY_CODE = { P: 'PRESENT', L: 'LATE', A: 'ABSENT', H: 'HALF_DAY' };
+
+// ✅ Expand the compact month grid into the row objects the table renders
+const decodeMonthGrid = ({ columns, rows }) => {
+  const col = Object.fromEntries(columns.map((name, i) => [name, i]));
+  return rows.map((row) => {
+    const days = row[col.days] || '';
+    const attendance = {};
+    for (let i = 0; i < days.length; i++) {
+      if (STATUS_BY_CODE[days[i]]) attendance[i + 1] = STATUS_BY_CODE[days[i]];
+    }
+    return {
+      id: row[col.id],
+      registrationNumber: row[col.registrationNumber],
+      name: row[col.name],
+      attendance,
+      presentCount: row[col.present],
+      lateCount: row[col.late],
+      absentCount: row[col.absent]
+    };
+  });
+};
+
 const StudentAttendance = () => {
   const { token } = useContext(AuthContext);
   
@@ -128,8 +151,16 @@ const StudentAttendance = () => {
           
           // ✅ Handle response and structure it properly
           if (response.data) {
+            // Compact grid: one array per student, days as a string of status codes
+            if (Array.isArray(response.data.rows) && Array.isArray(response.data.columns)) {
+              setAttendanceData({
+                attendanceGrid: decodeMonthGrid(response.data),
+                daysInMonth: response.data.daysInMonth
+              });
+              console.log('✅ Attendance data loaded (compact format)');
+            }
             // If response has students key (object format)
-            if (response.data.students || response.data.attendanceGrid) {
+            else if (response.data.students || response.data.attendanceGrid) {
               const grid = response.data.students || response.data.attendanceGrid;
               const totalDays = response.data.totalDays || response.data.daysInMonth || new Date(currentYear, selectedMonth, 0).getDate();
               